@@ -20,10 +20,13 @@ public class SVMParser extends Parser {
 	protected static final PredictionContextCache _sharedContextCache =
 		new PredictionContextCache();
 	public static final int
-		PUSH=1, POP=2, ADD=3, SUB=4, MULT=5, DIV=6, STOREW=7, LOADW=8, BRANCH=9, 
-		BRANCHEQ=10, BRANCHLESSEQ=11, JS=12, LOADRA=13, STORERA=14, LOADTM=15, 
-		STORETM=16, LOADFP=17, STOREFP=18, COPYFP=19, LOADHP=20, STOREHP=21, PRINT=22, 
-		HALT=23, COL=24, LABEL=25, INTEGER=26, COMMENT=27, WHITESP=28, ERR=29;
+		PUSH=1, POP=2, ADD=3, SUB=4, MULT=5, DIV=6, SHIFTLEFT=7, STOREW=8, LOADW=9, 
+		LOADWA=10, LOADWG=11, LOADGP=12, MOVE=13, BRANCH=14, BRANCHEQ=15, BRANCHLESSEQ=16, 
+		BRANCHNOTEQ=17, BRANCHLESS=18, BRANCHGREATER=19, BRANCHGREATEREQ=20, JS=21, 
+		JUMP=22, CALL=23, LOADRA=24, STORERA=25, LOADTM=26, STORETM=27, LOADFP=28, 
+		STOREFP=29, COPYFP=30, LOADHP=31, STOREHP=32, DATA=33, WORD=34, MEMOGET=35, 
+		MEMOPUT=36, LOADFW=37, STOREFW=38, LOADOW=39, DUP=40, PRINT=41, HALT=42, 
+		COL=43, LABEL=44, INTEGER=45, COMMENT=46, WHITESP=47, ERR=48;
 	public static final int
 		RULE_assembly = 0, RULE_instruction = 1;
 	private static String[] makeRuleNames() {
@@ -35,19 +38,24 @@ public class SVMParser extends Parser {
 
 	private static String[] makeLiteralNames() {
 		return new String[] {
-			null, "'push'", "'pop'", "'add'", "'sub'", "'mult'", "'div'", "'sw'", 
-			"'lw'", "'b'", "'beq'", "'bleq'", "'js'", "'lra'", "'sra'", "'ltm'", 
-			"'stm'", "'lfp'", "'sfp'", "'cfp'", "'lhp'", "'shp'", "'print'", "'halt'", 
-			"':'"
+			null, "'push'", "'pop'", "'add'", "'sub'", "'mult'", "'div'", "'shl'", 
+			"'sw'", "'lw'", "'lwa'", "'lwg'", "'lgp'", "'mv'", "'b'", "'beq'", "'bleq'", 
+			"'bne'", "'blt'", "'bgt'", "'bgeq'", "'js'", "'j'", "'call'", "'lra'", 
+			"'sra'", "'ltm'", "'stm'", "'lfp'", "'sfp'", "'cfp'", "'lhp'", "'shp'", 
+			"'data'", "'word'", "'mget'", "'mput'", "'lfw'", "'sfw'", "'low'", "'dup'", 
+			"'print'", "'halt'", "':'"
 		};
 	}
 	private static final String[] _LITERAL_NAMES = makeLiteralNames();
 	private static String[] makeSymbolicNames() {
 		return new String[] {
-			null, "PUSH", "POP", "ADD", "SUB", "MULT", "DIV", "STOREW", "LOADW", 
-			"BRANCH", "BRANCHEQ", "BRANCHLESSEQ", "JS", "LOADRA", "STORERA", "LOADTM", 
-			"STORETM", "LOADFP", "STOREFP", "COPYFP", "LOADHP", "STOREHP", "PRINT", 
-			"HALT", "COL", "LABEL", "INTEGER", "COMMENT", "WHITESP", "ERR"
+			null, "PUSH", "POP", "ADD", "SUB", "MULT", "DIV", "SHIFTLEFT", "STOREW", 
+			"LOADW", "LOADWA", "LOADWG", "LOADGP", "MOVE", "BRANCH", "BRANCHEQ", 
+			"BRANCHLESSEQ", "BRANCHNOTEQ", "BRANCHLESS", "BRANCHGREATER", "BRANCHGREATEREQ", 
+			"JS", "JUMP", "CALL", "LOADRA", "STORERA", "LOADTM", "STORETM", "LOADFP", 
+			"STOREFP", "COPYFP", "LOADHP", "STOREHP", "DATA", "WORD", "MEMOGET", 
+			"MEMOPUT", "LOADFW", "STOREFW", "LOADOW", "DUP", "PRINT", "HALT", "COL", 
+			"LABEL", "INTEGER", "COMMENT", "WHITESP", "ERR"
 		};
 	}
 	private static final String[] _SYMBOLIC_NAMES = makeSymbolicNames();
@@ -145,7 +153,7 @@ public class SVMParser extends Parser {
 			setState(7);
 			_errHandler.sync(this);
 			_la = _input.LA(1);
-			while ((((_la) & ~0x3f) == 0 && ((1L << _la) & 50331646L) != 0)) {
+			while ((((_la) & ~0x3f) == 0 && ((1L << _la) & 26388279066622L) != 0)) {
 				{
 				{
 				setState(4);
@@ -186,13 +194,24 @@ public class SVMParser extends Parser {
 		public TerminalNode SUB() { return getToken(SVMParser.SUB, 0); }
 		public TerminalNode MULT() { return getToken(SVMParser.MULT, 0); }
 		public TerminalNode DIV() { return getToken(SVMParser.DIV, 0); }
+		public TerminalNode SHIFTLEFT() { return getToken(SVMParser.SHIFTLEFT, 0); }
 		public TerminalNode STOREW() { return getToken(SVMParser.STOREW, 0); }
 		public TerminalNode LOADW() { return getToken(SVMParser.LOADW, 0); }
+		public TerminalNode LOADWA() { return getToken(SVMParser.LOADWA, 0); }
+		public TerminalNode LOADWG() { return getToken(SVMParser.LOADWG, 0); }
+		public TerminalNode LOADGP() { return getToken(SVMParser.LOADGP, 0); }
+		public TerminalNode MOVE() { return getToken(SVMParser.MOVE, 0); }
 		public TerminalNode COL() { return getToken(SVMParser.COL, 0); }
 		public TerminalNode BRANCH() { return getToken(SVMParser.BRANCH, 0); }
 		public TerminalNode BRANCHEQ() { return getToken(SVMParser.BRANCHEQ, 0); }
 		public TerminalNode BRANCHLESSEQ() { return getToken(SVMParser.BRANCHLESSEQ, 0); }
+		public TerminalNode BRANCHNOTEQ() { return getToken(SVMParser.BRANCHNOTEQ, 0); }
+		public TerminalNode BRANCHLESS() { return getToken(SVMParser.BRANCHLESS, 0); }
+		public TerminalNode BRANCHGREATER() { return getToken(SVMParser.BRANCHGREATER, 0); }
+		public TerminalNode BRANCHGREATEREQ() { return getToken(SVMParser.BRANCHGREATEREQ, 0); }
 		public TerminalNode JS() { return getToken(SVMParser.JS, 0); }
+		public TerminalNode JUMP() { return getToken(SVMParser.JUMP, 0); }
+		public TerminalNode CALL() { return getToken(SVMParser.CALL, 0); }
 		public TerminalNode LOADRA() { return getToken(SVMParser.LOADRA, 0); }
 		public TerminalNode STORERA() { return getToken(SVMParser.STORERA, 0); }
 		public TerminalNode LOADTM() { return getToken(SVMParser.LOADTM, 0); }
@@ -202,6 +221,14 @@ public class SVMParser extends Parser {
 		public TerminalNode COPYFP() { return getToken(SVMParser.COPYFP, 0); }
 		public TerminalNode LOADHP() { return getToken(SVMParser.LOADHP, 0); }
 		public TerminalNode STOREHP() { return getToken(SVMParser.STOREHP, 0); }
+		public TerminalNode DATA() { return getToken(SVMParser.DATA, 0); }
+		public TerminalNode WORD() { return getToken(SVMParser.WORD, 0); }
+		public TerminalNode MEMOGET() { return getToken(SVMParser.MEMOGET, 0); }
+		public TerminalNode MEMOPUT() { return getToken(SVMParser.MEMOPUT, 0); }
+		public TerminalNode LOADFW() { return getToken(SVMParser.LOADFW, 0); }
+		public TerminalNode STOREFW() { return getToken(SVMParser.STOREFW, 0); }
+		public TerminalNode LOADOW() { return getToken(SVMParser.LOADOW, 0); }
+		public TerminalNode DUP() { return getToken(SVMParser.DUP, 0); }
 		public TerminalNode PRINT() { return getToken(SVMParser.PRINT, 0); }
 		public TerminalNode HALT() { return getToken(SVMParser.HALT, 0); }
 		public InstructionContext(ParserRuleContext parent, int invokingState) {
@@ -227,7 +254,7 @@ public class SVMParser extends Parser {
 		InstructionContext _localctx = new InstructionContext(_ctx, getState());
 		enterRule(_localctx, 2, RULE_instruction);
 		try {
-			setState(69);
+			setState(126);
 			_errHandler.sync(this);
 			switch ( getInterpreter().adaptivePredict(_input,1,_ctx) ) {
 			case 1:
@@ -296,153 +323,362 @@ public class SVMParser extends Parser {
 				enterOuterAlt(_localctx, 8);
 				{
 				setState(29);
-				match(STOREW);
-				code[i++] = STOREW;
+				match(SHIFTLEFT);
+				setState(30);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = SHIFTLEFT;
+					                         code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
 				}
 				break;
 			case 9:
 				enterOuterAlt(_localctx, 9);
 				{
-				setState(31);
-				match(LOADW);
-				code[i++] = LOADW;
+				setState(32);
+				match(STOREW);
+				code[i++] = STOREW;
 				}
 				break;
 			case 10:
 				enterOuterAlt(_localctx, 10);
 				{
-				setState(33);
-				((InstructionContext)_localctx).l = match(LABEL);
 				setState(34);
-				match(COL);
-				labelDef.put((((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null),i);
+				match(LOADW);
+				code[i++] = LOADW;
 				}
 				break;
 			case 11:
 				enterOuterAlt(_localctx, 11);
 				{
 				setState(36);
-				match(BRANCH);
+				match(LOADWA);
 				setState(37);
-				((InstructionContext)_localctx).l = match(LABEL);
-				code[i++] = BRANCH;
-				                       labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = LOADWA;
+					                      code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
 				}
 				break;
 			case 12:
 				enterOuterAlt(_localctx, 12);
 				{
 				setState(39);
-				match(BRANCHEQ);
+				match(LOADWG);
 				setState(40);
-				((InstructionContext)_localctx).l = match(LABEL);
-				code[i++] = BRANCHEQ;
-				                        labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = LOADWG;
+					                      code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
 				}
 				break;
 			case 13:
 				enterOuterAlt(_localctx, 13);
 				{
 				setState(42);
-				match(BRANCHLESSEQ);
-				setState(43);
-				((InstructionContext)_localctx).l = match(LABEL);
-				code[i++] = BRANCHLESSEQ;
-				                          labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				match(LOADGP);
+				code[i++] = LOADGP;
 				}
 				break;
 			case 14:
 				enterOuterAlt(_localctx, 14);
 				{
+				setState(44);
+				match(MOVE);
 				setState(45);
-				match(JS);
-				code[i++] = JS;
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = MOVE;
+					                     code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
 				}
 				break;
 			case 15:
 				enterOuterAlt(_localctx, 15);
 				{
 				setState(47);
-				match(LOADRA);
-				code[i++] = LOADRA;
+				((InstructionContext)_localctx).l = match(LABEL);
+				setState(48);
+				match(COL);
+				labelDef.put((((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null),i);
 				}
 				break;
 			case 16:
 				enterOuterAlt(_localctx, 16);
 				{
-				setState(49);
-				match(STORERA);
-				code[i++] = STORERA;
+				setState(50);
+				match(BRANCH);
+				setState(51);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCH;
+				                       labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 17:
 				enterOuterAlt(_localctx, 17);
 				{
-				setState(51);
-				match(LOADTM);
-				code[i++] = LOADTM;
+				setState(53);
+				match(BRANCHEQ);
+				setState(54);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHEQ;
+				                        labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 18:
 				enterOuterAlt(_localctx, 18);
 				{
-				setState(53);
-				match(STORETM);
-				code[i++] = STORETM;
+				setState(56);
+				match(BRANCHLESSEQ);
+				setState(57);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHLESSEQ;
+				                          labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 19:
 				enterOuterAlt(_localctx, 19);
 				{
-				setState(55);
-				match(LOADFP);
-				code[i++] = LOADFP;
+				setState(59);
+				match(BRANCHNOTEQ);
+				setState(60);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHNOTEQ;
+				                         labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 20:
 				enterOuterAlt(_localctx, 20);
 				{
-				setState(57);
-				match(STOREFP);
-				code[i++] = STOREFP;
+				setState(62);
+				match(BRANCHLESS);
+				setState(63);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHLESS;
+				                        labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 21:
 				enterOuterAlt(_localctx, 21);
 				{
-				setState(59);
-				match(COPYFP);
-				code[i++] = COPYFP;
+				setState(65);
+				match(BRANCHGREATER);
+				setState(66);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHGREATER;
+				                           labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 22:
 				enterOuterAlt(_localctx, 22);
 				{
-				setState(61);
-				match(LOADHP);
-				code[i++] = LOADHP;
+				setState(68);
+				match(BRANCHGREATEREQ);
+				setState(69);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = BRANCHGREATEREQ;
+				                             labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
 				}
 				break;
 			case 23:
 				enterOuterAlt(_localctx, 23);
 				{
-				setState(63);
-				match(STOREHP);
-				code[i++] = STOREHP;
+				setState(71);
+				match(JS);
+				code[i++] = JS;
 				}
 				break;
 			case 24:
 				enterOuterAlt(_localctx, 24);
 				{
-				setState(65);
-				match(PRINT);
-				code[i++] = PRINT;
+				setState(73);
+				match(JUMP);
+				code[i++] = JUMP;
 				}
 				break;
 			case 25:
 				enterOuterAlt(_localctx, 25);
 				{
-				setState(67);
+				setState(75);
+				match(CALL);
+				setState(76);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = CALL;
+				                       labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				}
+				break;
+			case 26:
+				enterOuterAlt(_localctx, 26);
+				{
+				setState(78);
+				match(LOADRA);
+				code[i++] = LOADRA;
+				}
+				break;
+			case 27:
+				enterOuterAlt(_localctx, 27);
+				{
+				setState(80);
+				match(STORERA);
+				code[i++] = STORERA;
+				}
+				break;
+			case 28:
+				enterOuterAlt(_localctx, 28);
+				{
+				setState(82);
+				match(LOADTM);
+				code[i++] = LOADTM;
+				}
+				break;
+			case 29:
+				enterOuterAlt(_localctx, 29);
+				{
+				setState(84);
+				match(STORETM);
+				code[i++] = STORETM;
+				}
+				break;
+			case 30:
+				enterOuterAlt(_localctx, 30);
+				{
+				setState(86);
+				match(LOADFP);
+				code[i++] = LOADFP;
+				}
+				break;
+			case 31:
+				enterOuterAlt(_localctx, 31);
+				{
+				setState(88);
+				match(STOREFP);
+				code[i++] = STOREFP;
+				}
+				break;
+			case 32:
+				enterOuterAlt(_localctx, 32);
+				{
+				setState(90);
+				match(COPYFP);
+				code[i++] = COPYFP;
+				}
+				break;
+			case 33:
+				enterOuterAlt(_localctx, 33);
+				{
+				setState(92);
+				match(LOADHP);
+				code[i++] = LOADHP;
+				}
+				break;
+			case 34:
+				enterOuterAlt(_localctx, 34);
+				{
+				setState(94);
+				match(STOREHP);
+				code[i++] = STOREHP;
+				}
+				break;
+			case 35:
+				enterOuterAlt(_localctx, 35);
+				{
+				setState(96);
+				match(DATA);
+				setState(97);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = DATA;
+					                     code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 36:
+				enterOuterAlt(_localctx, 36);
+				{
+				setState(99);
+				match(WORD);
+				setState(100);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 37:
+				enterOuterAlt(_localctx, 37);
+				{
+				setState(102);
+				match(WORD);
+				setState(103);
+				((InstructionContext)_localctx).l = match(LABEL);
+				labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				}
+				break;
+			case 38:
+				enterOuterAlt(_localctx, 38);
+				{
+				setState(105);
+				match(MEMOGET);
+				setState(106);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = MEMOGET;
+					                       code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 39:
+				enterOuterAlt(_localctx, 39);
+				{
+				setState(108);
+				match(MEMOPUT);
+				setState(109);
+				((InstructionContext)_localctx).l = match(LABEL);
+				code[i++] = MEMOPUT;
+					                     labelRef.put(i++,(((InstructionContext)_localctx).l!=null?((InstructionContext)_localctx).l.getText():null));
+				}
+				break;
+			case 40:
+				enterOuterAlt(_localctx, 40);
+				{
+				setState(111);
+				match(LOADFW);
+				setState(112);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = LOADFW;
+					                      code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 41:
+				enterOuterAlt(_localctx, 41);
+				{
+				setState(114);
+				match(STOREFW);
+				setState(115);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = STOREFW;
+					                       code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 42:
+				enterOuterAlt(_localctx, 42);
+				{
+				setState(117);
+				match(LOADOW);
+				setState(118);
+				((InstructionContext)_localctx).n = match(INTEGER);
+				code[i++] = LOADOW;
+					                      code[i++] = Integer.parseInt((((InstructionContext)_localctx).n!=null?((InstructionContext)_localctx).n.getText():null));
+				}
+				break;
+			case 43:
+				enterOuterAlt(_localctx, 43);
+				{
+				setState(120);
+				match(DUP);
+				code[i++] = DUP;
+				}
+				break;
+			case 44:
+				enterOuterAlt(_localctx, 44);
+				{
+				setState(122);
+				match(PRINT);
+				code[i++] = PRINT;
+				}
+				break;
+			case 45:
+				enterOuterAlt(_localctx, 45);
+				{
+				setState(124);
 				match(HALT);
 				code[i++] = HALT;
 				}
@@ -461,7 +697,7 @@ public class SVMParser extends Parser {
 	}
 
 	public static final String _serializedATN =
-		"\u0004\u0001\u001dH\u0002\u0000\u0007\u0000\u0002\u0001\u0007\u0001\u0001"+
+		"\u0004\u00010\u0081\u0002\u0000\u0007\u0000\u0002\u0001\u0007\u0001\u0001"+
 		"\u0000\u0005\u0000\u0006\b\u0000\n\u0000\f\u0000\t\t\u0000\u0001\u0000"+
 		"\u0001\u0000\u0001\u0000\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
 		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
@@ -472,48 +708,88 @@ public class SVMParser extends Parser {
 		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
 		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
 		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
-		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0003\u0001F\b\u0001"+
-		"\u0001\u0001\u0000\u0000\u0002\u0000\u0002\u0000\u0000^\u0000\u0007\u0001"+
-		"\u0000\u0000\u0000\u0002E\u0001\u0000\u0000\u0000\u0004\u0006\u0003\u0002"+
-		"\u0001\u0000\u0005\u0004\u0001\u0000\u0000\u0000\u0006\t\u0001\u0000\u0000"+
-		"\u0000\u0007\u0005\u0001\u0000\u0000\u0000\u0007\b\u0001\u0000\u0000\u0000"+
-		"\b\n\u0001\u0000\u0000\u0000\t\u0007\u0001\u0000\u0000\u0000\n\u000b\u0005"+
-		"\u0000\u0000\u0001\u000b\f\u0006\u0000\uffff\uffff\u0000\f\u0001\u0001"+
-		"\u0000\u0000\u0000\r\u000e\u0005\u0001\u0000\u0000\u000e\u000f\u0005\u001a"+
-		"\u0000\u0000\u000fF\u0006\u0001\uffff\uffff\u0000\u0010\u0011\u0005\u0001"+
-		"\u0000\u0000\u0011\u0012\u0005\u0019\u0000\u0000\u0012F\u0006\u0001\uffff"+
-		"\uffff\u0000\u0013\u0014\u0005\u0002\u0000\u0000\u0014F\u0006\u0001\uffff"+
-		"\uffff\u0000\u0015\u0016\u0005\u0003\u0000\u0000\u0016F\u0006\u0001\uffff"+
-		"\uffff\u0000\u0017\u0018\u0005\u0004\u0000\u0000\u0018F\u0006\u0001\uffff"+
-		"\uffff\u0000\u0019\u001a\u0005\u0005\u0000\u0000\u001aF\u0006\u0001\uffff"+
-		"\uffff\u0000\u001b\u001c\u0005\u0006\u0000\u0000\u001cF\u0006\u0001\uffff"+
-		"\uffff\u0000\u001d\u001e\u0005\u0007\u0000\u0000\u001eF\u0006\u0001\uffff"+
-		"\uffff\u0000\u001f \u0005\b\u0000\u0000 F\u0006\u0001\uffff\uffff\u0000"+
-		"!\"\u0005\u0019\u0000\u0000\"#\u0005\u0018\u0000\u0000#F\u0006\u0001\uffff"+
-		"\uffff\u0000$%\u0005\t\u0000\u0000%&\u0005\u0019\u0000\u0000&F\u0006\u0001"+
-		"\uffff\uffff\u0000\'(\u0005\n\u0000\u0000()\u0005\u0019\u0000\u0000)F"+
-		"\u0006\u0001\uffff\uffff\u0000*+\u0005\u000b\u0000\u0000+,\u0005\u0019"+
-		"\u0000\u0000,F\u0006\u0001\uffff\uffff\u0000-.\u0005\f\u0000\u0000.F\u0006"+
-		"\u0001\uffff\uffff\u0000/0\u0005\r\u0000\u00000F\u0006\u0001\uffff\uffff"+
-		"\u000012\u0005\u000e\u0000\u00002F\u0006\u0001\uffff\uffff\u000034\u0005"+
-		"\u000f\u0000\u00004F\u0006\u0001\uffff\uffff\u000056\u0005\u0010\u0000"+
-		"\u00006F\u0006\u0001\uffff\uffff\u000078\u0005\u0011\u0000\u00008F\u0006"+
-		"\u0001\uffff\uffff\u00009:\u0005\u0012\u0000\u0000:F\u0006\u0001\uffff"+
-		"\uffff\u0000;<\u0005\u0013\u0000\u0000<F\u0006\u0001\uffff\uffff\u0000"+
-		"=>\u0005\u0014\u0000\u0000>F\u0006\u0001\uffff\uffff\u0000?@\u0005\u0015"+
-		"\u0000\u0000@F\u0006\u0001\uffff\uffff\u0000AB\u0005\u0016\u0000\u0000"+
-		"BF\u0006\u0001\uffff\uffff\u0000CD\u0005\u0017\u0000\u0000DF\u0006\u0001"+
-		"\uffff\uffff\u0000E\r\u0001\u0000\u0000\u0000E\u0010\u0001\u0000\u0000"+
-		"\u0000E\u0013\u0001\u0000\u0000\u0000E\u0015\u0001\u0000\u0000\u0000E"+
-		"\u0017\u0001\u0000\u0000\u0000E\u0019\u0001\u0000\u0000\u0000E\u001b\u0001"+
-		"\u0000\u0000\u0000E\u001d\u0001\u0000\u0000\u0000E\u001f\u0001\u0000\u0000"+
-		"\u0000E!\u0001\u0000\u0000\u0000E$\u0001\u0000\u0000\u0000E\'\u0001\u0000"+
-		"\u0000\u0000E*\u0001\u0000\u0000\u0000E-\u0001\u0000\u0000\u0000E/\u0001"+
-		"\u0000\u0000\u0000E1\u0001\u0000\u0000\u0000E3\u0001\u0000\u0000\u0000"+
-		"E5\u0001\u0000\u0000\u0000E7\u0001\u0000\u0000\u0000E9\u0001\u0000\u0000"+
-		"\u0000E;\u0001\u0000\u0000\u0000E=\u0001\u0000\u0000\u0000E?\u0001\u0000"+
-		"\u0000\u0000EA\u0001\u0000\u0000\u0000EC\u0001\u0000\u0000\u0000F\u0003"+
-		"\u0001\u0000\u0000\u0000\u0002\u0007E";
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001"+
+		"\u0001\u0001\u0003\u0001\u007f\b\u0001\u0001\u0001\u0000\u0000\u0002\u0000"+
+		"\u0002\u0000\u0000\u00ab\u0000\u0007\u0001\u0000\u0000\u0000\u0002~\u0001"+
+		"\u0000\u0000\u0000\u0004\u0006\u0003\u0002\u0001\u0000\u0005\u0004\u0001"+
+		"\u0000\u0000\u0000\u0006\t\u0001\u0000\u0000\u0000\u0007\u0005\u0001\u0000"+
+		"\u0000\u0000\u0007\b\u0001\u0000\u0000\u0000\b\n\u0001\u0000\u0000\u0000"+
+		"\t\u0007\u0001\u0000\u0000\u0000\n\u000b\u0005\u0000\u0000\u0001\u000b"+
+		"\f\u0006\u0000\uffff\uffff\u0000\f\u0001\u0001\u0000\u0000\u0000\r\u000e"+
+		"\u0005\u0001\u0000\u0000\u000e\u000f\u0005-\u0000\u0000\u000f\u007f\u0006"+
+		"\u0001\uffff\uffff\u0000\u0010\u0011\u0005\u0001\u0000\u0000\u0011\u0012"+
+		"\u0005,\u0000\u0000\u0012\u007f\u0006\u0001\uffff\uffff\u0000\u0013\u0014"+
+		"\u0005\u0002\u0000\u0000\u0014\u007f\u0006\u0001\uffff\uffff\u0000\u0015"+
+		"\u0016\u0005\u0003\u0000\u0000\u0016\u007f\u0006\u0001\uffff\uffff\u0000"+
+		"\u0017\u0018\u0005\u0004\u0000\u0000\u0018\u007f\u0006\u0001\uffff\uffff"+
+		"\u0000\u0019\u001a\u0005\u0005\u0000\u0000\u001a\u007f\u0006\u0001\uffff"+
+		"\uffff\u0000\u001b\u001c\u0005\u0006\u0000\u0000\u001c\u007f\u0006\u0001"+
+		"\uffff\uffff\u0000\u001d\u001e\u0005\u0007\u0000\u0000\u001e\u001f\u0005"+
+		"-\u0000\u0000\u001f\u007f\u0006\u0001\uffff\uffff\u0000 !\u0005\b\u0000"+
+		"\u0000!\u007f\u0006\u0001\uffff\uffff\u0000\"#\u0005\t\u0000\u0000#\u007f"+
+		"\u0006\u0001\uffff\uffff\u0000$%\u0005\n\u0000\u0000%&\u0005-\u0000\u0000"+
+		"&\u007f\u0006\u0001\uffff\uffff\u0000\'(\u0005\u000b\u0000\u0000()\u0005"+
+		"-\u0000\u0000)\u007f\u0006\u0001\uffff\uffff\u0000*+\u0005\f\u0000\u0000"+
+		"+\u007f\u0006\u0001\uffff\uffff\u0000,-\u0005\r\u0000\u0000-.\u0005-\u0000"+
+		"\u0000.\u007f\u0006\u0001\uffff\uffff\u0000/0\u0005,\u0000\u000001\u0005"+
+		"+\u0000\u00001\u007f\u0006\u0001\uffff\uffff\u000023\u0005\u000e\u0000"+
+		"\u000034\u0005,\u0000\u00004\u007f\u0006\u0001\uffff\uffff\u000056\u0005"+
+		"\u000f\u0000\u000067\u0005,\u0000\u00007\u007f\u0006\u0001\uffff\uffff"+
+		"\u000089\u0005\u0010\u0000\u00009:\u0005,\u0000\u0000:\u007f\u0006\u0001"+
+		"\uffff\uffff\u0000;<\u0005\u0011\u0000\u0000<=\u0005,\u0000\u0000=\u007f"+
+		"\u0006\u0001\uffff\uffff\u0000>?\u0005\u0012\u0000\u0000?@\u0005,\u0000"+
+		"\u0000@\u007f\u0006\u0001\uffff\uffff\u0000AB\u0005\u0013\u0000\u0000"+
+		"BC\u0005,\u0000\u0000C\u007f\u0006\u0001\uffff\uffff\u0000DE\u0005\u0014"+
+		"\u0000\u0000EF\u0005,\u0000\u0000F\u007f\u0006\u0001\uffff\uffff\u0000"+
+		"GH\u0005\u0015\u0000\u0000H\u007f\u0006\u0001\uffff\uffff\u0000IJ\u0005"+
+		"\u0016\u0000\u0000J\u007f\u0006\u0001\uffff\uffff\u0000KL\u0005\u0017"+
+		"\u0000\u0000LM\u0005,\u0000\u0000M\u007f\u0006\u0001\uffff\uffff\u0000"+
+		"NO\u0005\u0018\u0000\u0000O\u007f\u0006\u0001\uffff\uffff\u0000PQ\u0005"+
+		"\u0019\u0000\u0000Q\u007f\u0006\u0001\uffff\uffff\u0000RS\u0005\u001a"+
+		"\u0000\u0000S\u007f\u0006\u0001\uffff\uffff\u0000TU\u0005\u001b\u0000"+
+		"\u0000U\u007f\u0006\u0001\uffff\uffff\u0000VW\u0005\u001c\u0000\u0000"+
+		"W\u007f\u0006\u0001\uffff\uffff\u0000XY\u0005\u001d\u0000\u0000Y\u007f"+
+		"\u0006\u0001\uffff\uffff\u0000Z[\u0005\u001e\u0000\u0000[\u007f\u0006"+
+		"\u0001\uffff\uffff\u0000\\]\u0005\u001f\u0000\u0000]\u007f\u0006\u0001"+
+		"\uffff\uffff\u0000^_\u0005 \u0000\u0000_\u007f\u0006\u0001\uffff\uffff"+
+		"\u0000`a\u0005!\u0000\u0000ab\u0005-\u0000\u0000b\u007f\u0006\u0001\uffff"+
+		"\uffff\u0000cd\u0005\"\u0000\u0000de\u0005-\u0000\u0000e\u007f\u0006\u0001"+
+		"\uffff\uffff\u0000fg\u0005\"\u0000\u0000gh\u0005,\u0000\u0000h\u007f\u0006"+
+		"\u0001\uffff\uffff\u0000ij\u0005#\u0000\u0000jk\u0005-\u0000\u0000k\u007f"+
+		"\u0006\u0001\uffff\uffff\u0000lm\u0005$\u0000\u0000mn\u0005,\u0000\u0000"+
+		"n\u007f\u0006\u0001\uffff\uffff\u0000op\u0005%\u0000\u0000pq\u0005-\u0000"+
+		"\u0000q\u007f\u0006\u0001\uffff\uffff\u0000rs\u0005&\u0000\u0000st\u0005"+
+		"-\u0000\u0000t\u007f\u0006\u0001\uffff\uffff\u0000uv\u0005\'\u0000\u0000"+
+		"vw\u0005-\u0000\u0000w\u007f\u0006\u0001\uffff\uffff\u0000xy\u0005(\u0000"+
+		"\u0000y\u007f\u0006\u0001\uffff\uffff\u0000z{\u0005)\u0000\u0000{\u007f"+
+		"\u0006\u0001\uffff\uffff\u0000|}\u0005*\u0000\u0000}\u007f\u0006\u0001"+
+		"\uffff\uffff\u0000~\r\u0001\u0000\u0000\u0000~\u0010\u0001\u0000\u0000"+
+		"\u0000~\u0013\u0001\u0000\u0000\u0000~\u0015\u0001\u0000\u0000\u0000~"+
+		"\u0017\u0001\u0000\u0000\u0000~\u0019\u0001\u0000\u0000\u0000~\u001b\u0001"+
+		"\u0000\u0000\u0000~\u001d\u0001\u0000\u0000\u0000~ \u0001\u0000\u0000"+
+		"\u0000~\"\u0001\u0000\u0000\u0000~$\u0001\u0000\u0000\u0000~\'\u0001\u0000"+
+		"\u0000\u0000~*\u0001\u0000\u0000\u0000~,\u0001\u0000\u0000\u0000~/\u0001"+
+		"\u0000\u0000\u0000~2\u0001\u0000\u0000\u0000~5\u0001\u0000\u0000\u0000"+
+		"~8\u0001\u0000\u0000\u0000~;\u0001\u0000\u0000\u0000~>\u0001\u0000\u0000"+
+		"\u0000~A\u0001\u0000\u0000\u0000~D\u0001\u0000\u0000\u0000~G\u0001\u0000"+
+		"\u0000\u0000~I\u0001\u0000\u0000\u0000~K\u0001\u0000\u0000\u0000~N\u0001"+
+		"\u0000\u0000\u0000~P\u0001\u0000\u0000\u0000~R\u0001\u0000\u0000\u0000"+
+		"~T\u0001\u0000\u0000\u0000~V\u0001\u0000\u0000\u0000~X\u0001\u0000\u0000"+
+		"\u0000~Z\u0001\u0000\u0000\u0000~\\\u0001\u0000\u0000\u0000~^\u0001\u0000"+
+		"\u0000\u0000~`\u0001\u0000\u0000\u0000~c\u0001\u0000\u0000\u0000~f\u0001"+
+		"\u0000\u0000\u0000~i\u0001\u0000\u0000\u0000~l\u0001\u0000\u0000\u0000"+
+		"~o\u0001\u0000\u0000\u0000~r\u0001\u0000\u0000\u0000~u\u0001\u0000\u0000"+
+		"\u0000~x\u0001\u0000\u0000\u0000~z\u0001\u0000\u0000\u0000~|\u0001\u0000"+
+		"\u0000\u0000\u007f\u0003\u0001\u0000\u0000\u0000\u0002\u0007~";
 	public static final ATN _ATN =
 		new ATNDeserializer().deserialize(_serializedATN.toCharArray());
 	static {
@@ -0,0 +1,68 @@
+package c;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+* CProgram Class
+* The C source generated for a program, which is compiled with the system C compiler (cc, or the one in the CC
+* environment variable) and run as a separate process
+* */
+public class CProgram {
+
+	private static final List<String> FLAGS = List.of("-O2", "-pthread", "-w");
+
+	public final String source;
+	private Path executable; // once compiled
+
+	public CProgram(String source) {
+		this.source = source;
+	}
+
+	/*
+	 * Write the source to the given file and compile it into the executable with the same name, without the .c
+	 * The messages of the compiler are thrown as an IOException if it fails
+	 * */
+	public Path compile(Path sourceFile) throws IOException, InterruptedException {
+		Files.writeString(sourceFile, source);
+		String name = sourceFile.getFileName().toString();
+		Path executable = sourceFile.resolveSibling(name.endsWith(".c") ? name.substring(0, name.length() - 2) : name + ".out");
+		List<String> command = new ArrayList<>();
+		command.add(System.getenv().getOrDefault("CC", "cc"));
+		command.addAll(FLAGS);
+		command.addAll(List.of("-o", executable.toString(), sourceFile.toString()));
+		Process cc = new ProcessBuilder(command).redirectErrorStream(true).start();
+		String messages = new String(cc.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+		if (cc.waitFor() != 0) throw new IOException("C compilation failed:\n" + messages);
+		this.executable = executable;
+		return executable;
+	}
+
+	/*
+	 * Compile the program in a temporary directory, unless already compiled
+	 * */
+	public Path compile() throws IOException, InterruptedException {
+		if (executable != null) return executable;
+		Path directory = Files.createTempDirectory("fool");
+		directory.toFile().deleteOnExit();
+		Path executable = compile(directory.resolve("program.c"));
+		directory.resolve("program.c").toFile().deleteOnExit();
+		executable.toFile().deleteOnExit();
+		return executable;
+	}
+
+	/*
+	 * Run the program, copying what it prints to the given sink
+	 * If it stops with an error (like a division by zero) a RuntimeException is thrown, with the message the
+	 * program printed on the standard error
+	 * */
+	public void run(PrintStream sink) throws IOException, InterruptedException {
+		Process process = new ProcessBuilder(compile().toString()).start();
+		process.getInputStream().transferTo(sink);
+		String error = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+		if (process.waitFor() != 0) throw new RuntimeException(error.isEmpty() ? "exit code " + process.exitValue() : error);
+		sink.flush();
+	}
+}
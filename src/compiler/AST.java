@@ -2,6 +2,7 @@ package compiler;
 
 import java.util.*;
 import compiler.lib.*;
+import svm.Label;
 
 /*
 * AST Class
@@ -15,8 +16,8 @@ public class AST {
 	* It contains the list of declarations and the main expression
 	* */
 	public static class ProgLetInNode extends Node {
-		final List<DecNode> declist;
-		final Node exp;
+		List<DecNode> declist;
+		Node exp;
 		ProgLetInNode(List<DecNode> d, Node e) {
 			declist = Collections.unmodifiableList(d); 
 			exp = e;
@@ -32,7 +33,7 @@ public class AST {
 	 * It contains the main expression
 	 * */
 	public static class ProgNode extends Node {
-		final Node exp;
+		Node exp;
 		ProgNode(Node e) {exp = e;}
 
 		@Override
@@ -48,13 +49,17 @@ public class AST {
 	 * The return type of function
 	 * The list of declaration
 	 * The expression contained in body function
+	 * The STentry of the function, used to find its label
+	 * Whether its results are kept in the memo table of the virtual machine (memoization)
 	 * */
 	public static class FunNode extends DecNode {
 		final String id;
 		final TypeNode retType;
 		final List<ParNode> parlist;
-		final List<DecNode> declist; 
-		final Node exp;
+		List<DecNode> declist; 
+		Node exp;
+		STentry entry;
+		boolean memoized;
 		FunNode(String i, TypeNode rt, List<ParNode> pl, List<DecNode> dl, Node e) {
 	    	id=i; 
 	    	retType=rt; 
@@ -94,7 +99,8 @@ public class AST {
 	 * */
 	public static class VarNode extends DecNode {
 		final String id;
-		final Node exp;
+		Node exp;
+		STentry entry;
 		VarNode(String i, TypeNode t, Node v) {id = i; type = t; exp = v;}
 
 		@Override
@@ -108,7 +114,7 @@ public class AST {
 	 * The expression to print
 	 * */
 	public static class PrintNode extends Node {
-		final Node exp;
+		Node exp;
 		PrintNode(Node e) {exp = e;}
 
 		@Override
@@ -124,9 +130,9 @@ public class AST {
 	 * The else clause
 	 * */
 	public static class IfNode extends Node {
-		final Node cond;
-		final Node th;
-		final Node el;
+		Node cond;
+		Node th;
+		Node el;
 		IfNode(Node c, Node t, Node e) {cond = c; th = t; el = e;}
 
 		@Override
@@ -141,8 +147,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class EqualNode extends Node {
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 		EqualNode(Node l, Node r) {left = l; right = r;}
 
 		@Override
@@ -157,8 +163,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class TimesNode extends Node {
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 		TimesNode(Node l, Node r) {left = l; right = r;}
 
 		@Override
@@ -173,8 +179,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class PlusNode extends Node {
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 		PlusNode(Node l, Node r) {left = l; right = r;}
 
 		@Override
@@ -186,15 +192,18 @@ public class AST {
 	 * Is an abstraction of the concept of a function call
 	 * It contains:
 	 * The id of the caller function
-	 * The list of arguments
+	 * The list of arguments (extended with the free variables of lambda lifted functions)
 	 * The symbol table entry
 	 * The number of the nesting level for the function context
 	 * */
 	public static class CallNode extends Node {
 		final String id;
-		final List<Node> arglist;
+		List<Node> arglist;
 		STentry entry;
 		int nl;
+		MethodNode target; // method called directly when it is the only one the call can reach (null otherwise)
+		MethodNode candidate; // method of the static class (or of the profiled one), when subclasses override it (null otherwise)
+		DecNode inline; // function or method whose body replaces the call (null if it is called)
 		CallNode(String i, List<Node> p) {
 			id = i; 
 			arglist = Collections.unmodifiableList(p);
@@ -299,8 +308,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class LessEqualNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		LessEqualNode(final Node left, final Node right){
 			this.left = left;
@@ -320,8 +329,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class GreaterEqualNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		GreaterEqualNode(final Node left, final Node right){
 			this.left = left;
@@ -341,8 +350,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class OrNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		OrNode(final Node left, final Node right){
 			this.left = left;
@@ -362,8 +371,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class AndNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		AndNode(final Node left, final Node right){
 			this.left = left;
@@ -383,8 +392,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class DivNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		DivNode(final Node left, final Node right){
 			this.left = left;
@@ -404,8 +413,8 @@ public class AST {
 	 * The right expression
 	 * */
 	public static class MinusNode extends Node{
-		final Node left;
-		final Node right;
+		Node left;
+		Node right;
 
 		MinusNode(final Node left, final Node right){
 			this.left = left;
@@ -424,7 +433,7 @@ public class AST {
 	 * The expression to negate
 	 * */
 	public static class NotNode extends Node{
-		final Node exp;
+		Node exp;
 
 		NotNode(final Node exp){
 			this.exp = exp;
@@ -435,6 +444,50 @@ public class AST {
 		}
 	}
 
+	/*
+	 * ShiftLeftNode Class
+	 * Is an abstraction of the multiplication by a power of two, introduced by the algebraic simplification
+	 * (it has no syntax in FOOL)
+	 * It contains:
+	 * The expression to multiply
+	 * The exponent of the power of two
+	 * */
+	public static class ShiftLeftNode extends Node{
+		Node exp;
+		final int bits;
+
+		ShiftLeftNode(final Node exp, final int bits){
+			this.exp = exp;
+			this.bits = bits;
+		}
+		@Override
+		public <S, E extends Exception> S accept(BaseASTVisitor<S, E> visitor) throws E {
+			return visitor.visitNode(this);
+		}
+	}
+
+	/*
+	 * TempNode Class
+	 * Is an abstraction of the evaluation of an expression whose value is also written in a temporary slot of the
+	 * frame, introduced by the common subexpression elimination (it has no syntax in FOOL)
+	 * It contains:
+	 * The expression
+	 * The entry of the temporary declaration
+	 * */
+	public static class TempNode extends Node{
+		Node exp;
+		final STentry entry;
+
+		TempNode(final Node exp, final STentry entry){
+			this.exp = exp;
+			this.entry = entry;
+		}
+		@Override
+		public <S, E extends Exception> S accept(BaseASTVisitor<S, E> visitor) throws E {
+			return visitor.visitNode(this);
+		}
+	}
+
 	/*----------------------------------------------CLASS EXTENSION---------------------------------------------------*/
 
 	/*
@@ -471,10 +524,10 @@ public class AST {
 	public static class MethodNode extends DecNode{
 		final String id;
 		final List<ParNode> parList;
-		final List<DecNode> decList;
+		List<DecNode> decList;
 		final TypeNode retType;
-		final Node exp;
-		String label;
+		Node exp;
+		Label label;
 		int offset = 0;
 
 		public MethodNode(String id, List<ParNode> parList, List<DecNode> decList, TypeNode retType, Node body){
@@ -501,9 +554,10 @@ public class AST {
 	public static class ClassNode extends DecNode{
 		final String id;
 		final List<FieldNode> fieldNodeList;
-		final List<MethodNode> methodNodeList;
+		List<MethodNode> methodNodeList;
 		final String superId; //Used for the super class, can be null
 		STentry superSTentry;
+		boolean instantiated = true; // false when the program never creates objects of the class (dead code elimination)
 
 		public ClassNode(String id, List<FieldNode> field, List<MethodNode> methodList, String superId){
 			this.id = id;
@@ -534,10 +588,13 @@ public class AST {
 
 		final String id;
 		final String methodId;
-		final List<Node> arg;
+		List<Node> arg;
 		STentry entry;
 		STentry methodEntry;
 		int nestingLevel = 0;
+		MethodNode target; // method called directly when it is the only one the call can reach (null otherwise)
+		MethodNode candidate; // method of the static class (or of the profiled one), when subclasses override it (null otherwise)
+		DecNode inline; // function or method whose body replaces the call (null if it is called)
 
 		public ClassCallNode(String id, String methodId, List<Node> arg){
 			this.id = id;
@@ -557,12 +614,16 @@ public class AST {
 	 * It contains:
 	 * The id of the new class instance
 	 * The list of arguments
+	 * The frame slot of the object, when it does not escape the activation creating it (escape analysis)
+	 * Whether the object is built at compile time, in the static data (preallocation)
 	 * */
 	public static class NewNode extends Node{
 		final String id;
-		final List<Node> arg;
+		List<Node> arg;
 		STentry entry;
 		int nestingLevel;
+		STentry frame; // slot of the dispatch pointer, followed by the fields (null if the object is on the heap)
+		boolean preallocated;
 
 		public NewNode(String id, List<Node> arg){
 			this.id = id;
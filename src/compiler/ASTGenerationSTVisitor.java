@@ -201,7 +201,7 @@ public class ASTGenerationSTVisitor extends FOOLBaseVisitor<Node> {
 	 * visitIf method to visit an If context
 	 * Visit the three expressions that, respectively, represent the condition, the then branch and the else branch
 	 * Return a new IfNode representing the conditional if statement
-	 * The IfNode line of code is set
+	 * The IfNode line and column of code are set
 	 * */
 	@Override
 	public Node visitIf(IfContext c) {
@@ -211,6 +211,7 @@ public class ASTGenerationSTVisitor extends FOOLBaseVisitor<Node> {
 		Node elseNode = visit(c.exp(2));
 		Node n = new IfNode(ifNode, thenNode, elseNode);
 		n.setLine(c.IF().getSymbol().getLine());			
+		n.setColumn(c.IF().getSymbol().getCharPositionInLine());
         return n;		
 	}
 
@@ -0,0 +1,346 @@
+package compiler;
+
+import java.util.*;
+import java.util.function.Function;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* AlgebraicSimplificationEASTVisitor Class
+* It implements the visitor pattern to rewrite the expressions of the enriched AST with algebraic identities
+* (x*1, x+0, x-x, !!x, ...) and to reduce the multiplications by a power of two to left shifts
+* The rewrite rules are kept in a table: after its operands are simplified, a node is rewritten by the first rule
+* of its class which applies, and the result is simplified again
+* Each visitNode method returns the node replacing the visited one (the node itself if nothing changes), which its
+* parent stores in place of it
+* A rule may drop an operand only if evaluating it has no effects: it cannot print, call, allocate or divide by zero
+* */
+public class AlgebraicSimplificationEASTVisitor extends BaseEASTVisitor<Node, VoidException> {
+
+	/*
+	 * A rewrite rule for the nodes of a class: it returns the replacing node, or null if it does not apply
+	 * */
+	private record Rule(String name, Class<? extends Node> type, Function<Node, Node> rewrite) {}
+
+	private static <T extends Node> Rule rule(String name, Class<T> type, Function<T, Node> rewrite) {
+		return new Rule(name, type, n -> rewrite.apply(type.cast(n)));
+	}
+
+	private static final List<Rule> RULES = List.of(
+			rule("x*1 -> x", TimesNode.class, n -> isInt(n.right, 1) ? n.left : null),
+			rule("1*x -> x", TimesNode.class, n -> isInt(n.left, 1) ? n.right : null),
+			rule("x*0 -> 0", TimesNode.class, n -> isInt(n.right, 0) && isPure(n.left) ? n.right : null),
+			rule("0*x -> 0", TimesNode.class, n -> isInt(n.left, 0) && isPure(n.right) ? n.left : null),
+			rule("x*2^k -> x<<k", TimesNode.class, n -> isPowerOfTwo(n.right) ? shift(n.left, n.right) : null),
+			rule("2^k*x -> x<<k", TimesNode.class, n -> isPowerOfTwo(n.left) ? shift(n.right, n.left) : null),
+			rule("x+0 -> x", PlusNode.class, n -> isInt(n.right, 0) ? n.left : null),
+			rule("0+x -> x", PlusNode.class, n -> isInt(n.left, 0) ? n.right : null),
+			rule("x-0 -> x", MinusNode.class, n -> isInt(n.right, 0) ? n.left : null),
+			rule("x-x -> 0", MinusNode.class, n -> isSame(n.left, n.right) ? new IntNode(0) : null),
+			rule("x/1 -> x", DivNode.class, n -> isInt(n.right, 1) ? n.left : null),
+			rule("!!x -> x", NotNode.class, n -> n.exp instanceof NotNode not ? not.exp : null),
+			rule("x&&true -> x", AndNode.class, n -> isBool(n.right, true) ? n.left : null),
+			rule("x&&false -> false", AndNode.class, n -> isBool(n.right, false) && isPure(n.left) ? n.right : null),
+			rule("x||false -> x", OrNode.class, n -> isBool(n.right, false) ? n.left : null),
+			rule("x||true -> true", OrNode.class, n -> isBool(n.right, true) && isPure(n.left) ? n.right : null),
+			rule("x==x -> true", EqualNode.class, n -> isSame(n.left, n.right) ? new BoolNode(true) : null),
+			rule("x<=x -> true", LessEqualNode.class, n -> isSame(n.left, n.right) ? new BoolNode(true) : null),
+			rule("x>=x -> true", GreaterEqualNode.class, n -> isSame(n.left, n.right) ? new BoolNode(true) : null),
+			rule("if c then true else false -> c", IfNode.class,
+					n -> isBool(n.th, true) && isBool(n.el, false) ? n.cond : null),
+			rule("if c then false else true -> !c", IfNode.class,
+					n -> isBool(n.th, false) && isBool(n.el, true) ? new NotNode(n.cond) : null),
+			rule("if c then x else x -> x", IfNode.class,
+					n -> isPure(n.cond) && isSame(n.th, n.el) ? n.th : null)
+	);
+
+	// rules of each class of nodes, in the order of the table
+	private static final Map<Class<? extends Node>, List<Rule>> RULES_BY_TYPE = new HashMap<>();
+	static {
+		for (Rule rule : RULES) RULES_BY_TYPE.computeIfAbsent(rule.type(), k -> new ArrayList<>()).add(rule);
+	}
+
+	int simplifiedExpressions = 0; // number of rewrites
+	final Map<String, Integer> appliedRules = new LinkedHashMap<>(); // number of rewrites of each rule
+
+	AlgebraicSimplificationEASTVisitor() {}
+	AlgebraicSimplificationEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	private static boolean isInt(Node n, int value) {
+		return n instanceof IntNode i && i.val == value;
+	}
+
+	private static boolean isBool(Node n, boolean value) {
+		return n instanceof BoolNode b && b.val == value;
+	}
+
+	private static boolean isPowerOfTwo(Node n) {
+		return n instanceof IntNode i && i.val > 1 && Integer.bitCount(i.val) == 1;
+	}
+
+	private static Node shift(Node exp, Node power) {
+		return new ShiftLeftNode(exp, Integer.numberOfTrailingZeros(((IntNode) power).val));
+	}
+
+	/*
+	 * Operands of the arithmetic and boolean expressions (null for the other nodes)
+	 * */
+	static List<Node> operands(Node n) {
+		if (n instanceof PlusNode e) return List.of(e.left, e.right);
+		if (n instanceof MinusNode e) return List.of(e.left, e.right);
+		if (n instanceof TimesNode e) return List.of(e.left, e.right);
+		if (n instanceof DivNode e) return List.of(e.left, e.right);
+		if (n instanceof EqualNode e) return List.of(e.left, e.right);
+		if (n instanceof LessEqualNode e) return List.of(e.left, e.right);
+		if (n instanceof GreaterEqualNode e) return List.of(e.left, e.right);
+		if (n instanceof AndNode e) return List.of(e.left, e.right);
+		if (n instanceof OrNode e) return List.of(e.left, e.right);
+		if (n instanceof IfNode e) return List.of(e.cond, e.th, e.el);
+		if (n instanceof NotNode e) return List.of(e.exp);
+		if (n instanceof ShiftLeftNode e) return List.of(e.exp);
+		return null;
+	}
+
+	/*
+	 * Whether evaluating the expression has no effects: it only reads variables and computes on them,
+	 * dividing only by constants different from zero
+	 * */
+	static boolean isPure(Node n) {
+		if (n instanceof IdNode || n instanceof IntNode || n instanceof BoolNode || n instanceof EmptyNode) return true;
+		if (n instanceof DivNode d && (!(d.right instanceof IntNode i) || i.val == 0)) return false;
+		List<Node> operands = operands(n);
+		return operands != null && operands.stream().allMatch(AlgebraicSimplificationEASTVisitor::isPure);
+	}
+
+	/*
+	 * Whether two pure expressions have the same structure, so that they have the same value
+	 * */
+	static boolean isSame(Node a, Node b) {
+		if (a.getClass() != b.getClass() || !isPure(a)) return false;
+		if (a instanceof IdNode x) return x.entry == ((IdNode) b).entry && x.nestingLevel == ((IdNode) b).nestingLevel;
+		if (a instanceof IntNode x) return x.val.equals(((IntNode) b).val);
+		if (a instanceof BoolNode x) return x.val.equals(((BoolNode) b).val);
+		if (a instanceof ShiftLeftNode x && x.bits != ((ShiftLeftNode) b).bits) return false;
+		List<Node> left = operands(a), right = operands(b);
+		if (left == null) return true; // EmptyNode
+		for (int i = 0; i < left.size(); i++)
+			if (!isSame(left.get(i), right.get(i))) return false;
+		return true;
+	}
+
+	/*
+	 * Rewrite a node, whose operands are already simplified, with the first rule which applies, then simplify the
+	 * result again
+	 * */
+	private Node simplify(Node n) {
+		for (Rule rule : RULES_BY_TYPE.getOrDefault(n.getClass(), List.of())) {
+			Node result = rule.rewrite().apply(n);
+			if (result == null) continue;
+			simplifiedExpressions++;
+			appliedRules.merge(rule.name(), 1, Integer::sum);
+			if (result.getLine() == -1) result.setLine(n.getLine()); // new node
+			return simplify(result);
+		}
+		return n;
+	}
+
+	private List<Node> visitList(List<Node> nodes) {
+		List<Node> visited = new ArrayList<>();
+		for (Node node : nodes) visited.add(visit(node));
+		return Collections.unmodifiableList(visited);
+	}
+
+	@Override
+	public Node visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ProgNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PrintNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IfNode n) {
+		if (print) printNode(n);
+		n.cond = visit(n.cond);
+		n.th = visit(n.th);
+		n.el = visit(n.el);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(EqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(TimesNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(PlusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		n.arglist = visitList(n.arglist);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(OrNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(AndNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(DivNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(MinusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(NotNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return simplify(n);
+	}
+
+	@Override
+	public Node visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		for (MethodNode method : n.methodNodeList) visit(method);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.decList) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return n;
+	}
+}
@@ -0,0 +1,170 @@
+package compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import compiler.lib.*;
+import c.CProgram;
+import jvm.*;
+import svm.*;
+
+/*
+* BackendComparison Class
+* Runs the FOOL programs under a directory (test by default) on the stack virtual machine, on the JVM, through
+* the classes of JvmCodeGenerationASTVisitor, natively, through the C program of CCodeGenerationASTVisitor
+* compiled with the system C compiler, and on the tree of nodes of ClosureCompilationASTVisitor, and reports
+* whether they print the same values, with the run time of each backend (the native one includes the start of the
+* process, not the compilation)
+* The start time of the tree of nodes (from the enriched AST to the end of the first run) is compared with the
+* one of the virtual machine (code generation, assembly and the first run), which matters for short programs
+* Then it compares the run times on the large programs of Benchmark
+* A program printing an object is reported as different: the virtual machine prints its address, the JVM an
+* identity hash code and the native program its own address
+* */
+public class BackendComparison {
+
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws Exception {
+		if (System.getProperty("svm.memsize") == null) System.setProperty("svm.memsize", String.valueOf(8000000));
+		Path directory = Paths.get(args.length > 0 ? args[0] : "test");
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(directory)) {
+			files = walk.filter(file -> file.toString().endsWith(".fool")).sorted().toList();
+		}
+		int compared = 0, differences = 0;
+		System.out.println("Differential test (best of " + RUNS + " runs)");
+		for (Path file : files) {
+			String source = Files.readString(file, StandardCharsets.ISO_8859_1);
+			try {
+				Benchmark.frontEnd(source);
+			} catch (IllegalStateException e) { // programs testing the front end
+				FOOLlib.typeErrors = 0;
+				System.out.printf("  %-32s skipped: front-end errors%n", file);
+				continue;
+			}
+			compared++;
+			if (!compare(file.toString(), source)) differences++;
+		}
+		System.out.println("  " + (compared - differences) + " of " + compared + " programs print the same values\n");
+
+		System.out.println("Run time (best of " + RUNS + " runs)");
+		compare("list processing", Benchmark.lists(1000000));
+		compare("nested globals", Benchmark.nestedGlobals(8, 16));
+		if (differences > 0) System.exit(Test.EXIT_WHIT_ERRORS);
+	}
+
+	/*
+	 * Run a program on all the backends and print its line of the report: return whether they print the same values
+	 * */
+	static boolean compare(String name, String source) throws ReflectiveOperationException, IOException, InterruptedException {
+		String svmOutput;
+		long svmTime = Long.MAX_VALUE, svmStart = 0;
+		try {
+			Node ast = Benchmark.frontEnd(source);
+			long start = System.nanoTime();
+			CodeEmitter emitter = new CodeEmitter();
+			new CodeGenerationASTVisitor(emitter).visit(ast);
+			int[] program = Assembler.assemble(emitter.getCode());
+			svmOutput = Benchmark.output(program);
+			svmStart = System.nanoTime() - start;
+			for (int run = 0; run < RUNS; run++) svmTime = Math.min(svmTime, Benchmark.execute(program));
+		} catch (RuntimeException e) { // a division by zero
+			svmOutput = e.getClass().getSimpleName();
+		}
+
+		String ssaOutput = optimizedOutput(source, "-ssa"), o3Output = optimizedOutput(source, "-O" + PassManager.MAX_LEVEL);
+
+		JvmProgram jvm = new JvmCodeGenerationASTVisitor("FoolProgram").generate(Benchmark.frontEnd(source));
+		String jvmOutput;
+		long jvmTime = Long.MAX_VALUE;
+		try {
+			ByteArrayOutputStream printed = new ByteArrayOutputStream();
+			jvm.run(new PrintStream(printed));
+			jvmOutput = printed.toString();
+			for (int run = 0; run < RUNS; run++) {
+				long start = System.nanoTime();
+				jvm.run(new PrintStream(OutputStream.nullOutputStream()));
+				jvmTime = Math.min(jvmTime, System.nanoTime() - start);
+			}
+		} catch (RuntimeException e) {
+			jvmOutput = e.getClass().getSimpleName();
+		}
+
+		CProgram c = new CProgram(new CCodeGenerationASTVisitor().generate(Benchmark.frontEnd(source)));
+		c.compile();
+		String cOutput;
+		long cTime = Long.MAX_VALUE;
+		try {
+			ByteArrayOutputStream printed = new ByteArrayOutputStream();
+			c.run(new PrintStream(printed));
+			cOutput = printed.toString();
+			for (int run = 0; run < RUNS; run++) {
+				long start = System.nanoTime();
+				c.run(new PrintStream(OutputStream.nullOutputStream()));
+				cTime = Math.min(cTime, System.nanoTime() - start);
+			}
+		} catch (RuntimeException e) { // the message printed by the program, like ArithmeticException: / by zero
+			cOutput = e.getMessage().split(":")[0];
+		}
+
+		String astOutput;
+		long astTime = Long.MAX_VALUE, astStart = 0;
+		try {
+			Node ast = Benchmark.frontEnd(source);
+			long start = System.nanoTime();
+			ClosureCompilationASTVisitor.Program program = new ClosureCompilationASTVisitor().compile(ast);
+			ByteArrayOutputStream printed = new ByteArrayOutputStream();
+			program.run(new PrintStream(printed));
+			astStart = System.nanoTime() - start;
+			astOutput = printed.toString();
+			for (int run = 0; run < RUNS; run++) {
+				start = System.nanoTime();
+				program.run(new PrintStream(OutputStream.nullOutputStream()));
+				astTime = Math.min(astTime, System.nanoTime() - start);
+			}
+		} catch (RuntimeException e) {
+			astOutput = e.getClass().getSimpleName();
+		}
+
+		boolean same = svmOutput.equals(jvmOutput) && svmOutput.equals(cOutput) && svmOutput.equals(astOutput)
+				&& svmOutput.equals(ssaOutput) && svmOutput.equals(o3Output);
+		System.out.printf("  %-32s %4s  svm %9s  jvm %9s  c %9s  ast %9s  start: svm %9s  ast %9s%n", name,
+				same ? "OK" : "DIFF", time(svmTime), time(jvmTime), time(cTime), time(astTime), time(svmStart), time(astStart));
+		if (!same) System.out.println("    svm: " + svmOutput.lines().toList() + "\n    jvm: " + jvmOutput.lines().toList()
+				+ "\n    c:   " + cOutput.lines().toList() + "\n    ast: " + astOutput.lines().toList()
+				+ "\n    ssa: " + ssaOutput.lines().toList() + "\n    O" + PassManager.MAX_LEVEL + ":  " + o3Output.lines().toList());
+		return same;
+	}
+
+	/*
+	 * Compile a program with the given optimization options, without printing the reports of the passes, and return
+	 * what it prints on the virtual machine
+	 * */
+	private static String optimizedOutput(String source, String... args) throws IOException {
+		Node ast = Benchmark.frontEnd(source);
+		PrintStream out = System.out;
+		int[] program;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			PassManager passManager = new PassManager(args, null);
+			passManager.run(ast);
+			CodeEmitter emitter = new CodeEmitter();
+			new CodeGenerationASTVisitor(emitter, passManager.optimizer()).visit(ast);
+			program = Assembler.assemble(passManager.run(emitter.getCode()));
+		} finally {
+			System.setOut(out);
+		}
+		try {
+			return Benchmark.output(program);
+		} catch (RuntimeException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static String time(long nanos) {
+		return nanos == Long.MAX_VALUE ? "-" : String.format("%.2f ms", nanos / 1e6);
+	}
+}
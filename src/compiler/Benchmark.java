@@ -0,0 +1,223 @@
+package compiler;
+
+import java.io.*;
+import java.util.*;
+import org.antlr.v4.runtime.*;
+import compiler.lib.*;
+import svm.*;
+
+/*
+* Benchmark Class
+* Measures the compiler on large FOOL programs generated on the fly
+* Each scenario prints its timings on the standard output
+* */
+public class Benchmark {
+
+	private static final int RUNS = 5;
+
+	private static final int LIST_SIZE = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		// list processing needs a memory larger than the default one: it must be set before ExecuteVM is loaded
+		if (System.getProperty("svm.memsize") == null) System.setProperty("svm.memsize", String.valueOf(8 * LIST_SIZE));
+		codeGeneration(new int[] {1000, 10000, 100000});
+		assembly(200);
+		globalAccess(new int[] {1, 2, 4, 8}, 16);
+		listProcessing(LIST_SIZE);
+	}
+
+	/*
+	 * Code generation of programs with an increasing number of global declarations
+	 * The time per declaration must stay (roughly) constant as the program grows
+	 * */
+	static void codeGeneration(int[] sizes) {
+		System.out.println("Code generation (best of " + RUNS + " runs)");
+		for (int size : sizes) {
+			Node ast = frontEnd(declarations(size));
+			long best = Long.MAX_VALUE;
+			int instructions = 0;
+			for (int run = 0; run < RUNS; run++) {
+				CodeEmitter emitter = new CodeEmitter();
+				long start = System.nanoTime();
+				new CodeGenerationASTVisitor(emitter).visit(ast);
+				best = Math.min(best, System.nanoTime() - start);
+				instructions = emitter.getCode().size();
+			}
+			System.out.printf("  %7d declarations: %8.2f ms, %6.1f ns/declaration, %9d instructions%n",
+					size, best / 1e6, (double) best / size, instructions);
+		}
+	}
+
+	/*
+	 * Assembly of the generated code: parsing its textual form with SVM.g4 against assembling the instructions
+	 * The program is kept small enough to fit into the code area of SVMParser
+	 * */
+	static void assembly(int size) throws IOException {
+		CodeEmitter emitter = new CodeEmitter();
+		new CodeGenerationASTVisitor(emitter).visit(frontEnd(declarations(size)));
+		List<Instruction> code = emitter.getCode();
+		StringBuilder text = new StringBuilder();
+		Assembler.write(code, text);
+
+		long parsed = Long.MAX_VALUE, assembled = Long.MAX_VALUE;
+		int[] parsedCode = null, assembledCode = null;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			SVMParser parser = new SVMParser(new CommonTokenStream(new SVMLexer(CharStreams.fromString(text.toString()))));
+			parser.assembly();
+			parsedCode = parser.code;
+			parsed = Math.min(parsed, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			assembledCode = Assembler.assemble(code);
+			assembled = Math.min(assembled, System.nanoTime() - start);
+		}
+		if (!Arrays.equals(assembledCode, Arrays.copyOf(parsedCode, assembledCode.length)))
+			throw new IllegalStateException("Textual and direct assembly differ");
+		System.out.println("Assembly of " + assembledCode.length + " words (best of " + RUNS + " runs)");
+		System.out.printf("  textual code via SVM.g4: %8.2f ms%n", parsed / 1e6);
+		System.out.printf("  instructions:            %8.2f ms%n", assembled / 1e6);
+	}
+
+	/*
+	 * Execution of code reading global variables from functions nested at an increasing depth
+	 * With absolute addressing the cost of a global access does not depend on the nesting level
+	 * */
+	static void globalAccess(int[] depths, int height) {
+		System.out.println("Global accesses from nested functions (best of " + RUNS + " runs, " + (1 << height) + " leaf calls)");
+		List<int[]> programs = new ArrayList<>();
+		for (int depth : depths) {
+			CodeEmitter emitter = new CodeEmitter();
+			new CodeGenerationASTVisitor(emitter).visit(frontEnd(nestedGlobals(depth, height)));
+			programs.add(Assembler.assemble(emitter.getCode()));
+		}
+		for (int run = 0; run < RUNS; run++)
+			for (int[] program : programs) execute(program); // warm up the virtual machine
+		for (int i = 0; i < depths.length; i++) {
+			long best = Long.MAX_VALUE;
+			for (int run = 0; run < RUNS; run++) best = Math.min(best, execute(programs.get(i)));
+			System.out.printf("  nesting depth %2d: %8.2f ms, %6.1f ns/leaf call%n",
+					depths[i], best / 1e6, (double) best / (1 << height));
+		}
+	}
+
+	/*
+	 * Execution of recursive functions building lists of the given size, which need (without tail recursion
+	 * modulo cons) a stack as deep as the list
+	 * */
+	static void listProcessing(int size) {
+		System.out.println("List processing (best of " + RUNS + " runs, " + size + " elements)");
+		CodeEmitter emitter = new CodeEmitter();
+		new CodeGenerationASTVisitor(emitter).visit(frontEnd(lists(size)));
+		int[] program = Assembler.assemble(emitter.getCode());
+		String output;
+		try {
+			output = output(program).trim();
+		} catch (RuntimeException e) {
+			output = e.toString();
+		}
+		if (!output.equals(String.valueOf(size))) {
+			System.out.println("  failed: " + output);
+			return;
+		}
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) best = Math.min(best, execute(program));
+		System.out.printf("  %8.2f ms, %6.1f ns/element%n", best / 1e6, (double) best / size);
+	}
+
+	/*
+	 * Run a program on the virtual machine, discarding what it prints, and return the elapsed time
+	 * */
+	static long execute(int[] program) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			ExecuteVM vm = new ExecuteVM(program);
+			long start = System.nanoTime();
+			vm.cpu();
+			return System.nanoTime() - start;
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/*
+	 * Run a program on the virtual machine and return what it prints
+	 * */
+	static String output(int[] program) {
+		PrintStream out = System.out;
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(printed));
+		try {
+			new ExecuteVM(program).cpu();
+			return printed.toString();
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/*
+	 * Generate a program building the list of the first size numbers, keeping the even ones and appending the
+	 * list of the first size/2 numbers: it prints the length of the result, that is size
+	 * */
+	static String lists(int size) {
+		return "let\n"
+				+ "  class List (f:int, r:List) { fun first:int() f; fun rest:List() r; }\n"
+				+ "  fun range:List (i:int, n:int) if (n <= i) then { null } else { new List(i, range(i + 1, n)) };\n"
+				+ "  fun even:List (l:List) if (l == null) then { null } else {\n"
+				+ "    if (l.first() / 2 * 2 == l.first()) then { new List(l.first(), even(l.rest())) } else { even(l.rest()) } };\n"
+				+ "  fun append:List (l1:List, l2:List) if (l1 == null) then { l2 } else { new List(l1.first(), append(l1.rest(), l2)) };\n"
+				+ "  fun length:int (l:List, acc:int) if (l == null) then { acc } else { length(l.rest(), acc + 1) };\n"
+				+ "in print(length(append(even(range(0, " + size + ")), range(0, " + size / 2 + ")), 0));\n";
+	}
+
+	/*
+	 * Generate a program whose innermost function, declared at the given depth, sums five global variables
+	 * in each of the 2^height leaves of its recursion
+	 * */
+	static String nestedGlobals(int depth, int height) {
+		StringBuilder program = new StringBuilder("let\n");
+		for (int i = 0; i < 5; i++) program.append("  var g").append(i).append(":int = ").append(i + 1).append(";\n");
+		for (int level = 1; level < depth; level++)
+			program.append("  fun f").append(level).append(":int (n:int) let\n");
+		program.append("  fun h:int (n:int) if (n <= 0) then { g0 + g1 + g2 + g3 + g4 } else { h(n - 1) + h(n - 1) };\n");
+		for (int level = depth - 1; level >= 1; level--)
+			program.append("  in ").append(level == depth - 1 ? "h" : "f" + (level + 1)).append("(n);\n");
+		return program.append("in print(").append(depth > 1 ? "f1" : "h").append("(").append(height).append("));\n").toString();
+	}
+
+	/*
+	 * Generate a program with the given number of declarations: mostly variables, one function every ten
+	 * */
+	static String declarations(int size) {
+		StringBuilder program = new StringBuilder("let\n  var x0:int = 0;\n");
+		for (int i = 1; i < size; i++) {
+			if (i % 10 == 0)
+				program.append("  fun x").append(i).append(":int (a:int) if (a <= x").append(i - 1)
+						.append(") then { a + x").append(i - 1).append(" } else { a / 2 };\n");
+			else
+				program.append("  var x").append(i).append(":int = x").append(i - 1).append(i % 10 == 1 && i > 1 ? "(x0)" : "")
+						.append(" - 2 * x0 + ").append(i).append(";\n");
+		}
+		return program.append("in print(x").append(size - 1).append(");\n").toString();
+	}
+
+	/*
+	 * Run lexer, parser, AST generation, symbol table and type checking on the given source
+	 * */
+	static Node frontEnd(String source) {
+		FOOLLexer lexer = new FOOLLexer(CharStreams.fromString(source));
+		FOOLParser parser = new FOOLParser(new CommonTokenStream(lexer));
+		Node ast = new ASTGenerationSTVisitor().visit(parser.prog());
+		SymbolTableASTVisitor symtableVisitor = new SymbolTableASTVisitor();
+		symtableVisitor.visit(ast);
+		int errors = lexer.lexicalErrors + parser.getNumberOfSyntaxErrors() + symtableVisitor.stErrors;
+		try {
+			new TypeCheckEASTVisitor().visit(ast);
+		} catch (Exception e) {
+			errors++;
+		}
+		if (errors + FOOLlib.typeErrors > 0) throw new IllegalStateException("Benchmark program has front-end errors");
+		return ast;
+	}
+}
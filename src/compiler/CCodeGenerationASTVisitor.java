@@ -0,0 +1,587 @@
+package compiler;
+
+import compiler.AST.*;
+import compiler.lib.*;
+import compiler.exc.*;
+
+import java.util.*;
+
+import static compiler.JvmCodeGenerationASTVisitor.isReference;
+
+/*
+* CCodeGenerationASTVisitor Class
+* It implements the visitor pattern to generate a C program from the enriched AST, compiled ahead of time with the
+* system C compiler (see c.CProgram):
+* - global declarations are static variables, functions and methods are C functions and the main expression runs
+*   in fool_run, on a thread with a large stack (FOOL has recursion only)
+* - each FOOL class is a struct with the pointer to its virtual table followed by all its fields, the inherited ones
+*   first, so that an object of a subclass can be used as one of its superclass; a method is called through the
+*   virtual table, at the offset of the method in the dispatch table of the virtual machine
+* - parameters and declarations are C locals, except the ones read by nested functions: a body declaring functions
+*   keeps them in an environment struct on the C stack, with the link (up) to the environment of the enclosing
+*   body (or to the object, for a method), and passes its address to the functions declared in it; the static
+*   chain of the virtual machine becomes the chain of the environments
+* - objects are allocated in an arena: chunks of memory filled in order and never freed
+* The visit of an expression returns a C expression without side effects: calls, prints and divisions are written
+* as statements before it, in the order in which the virtual machine evaluates them (arguments of calls from the
+* last to the first), and so are the branches of if-then-else and the right operands of && and || when they are not
+* as simple
+* int arithmetic wraps around like on the virtual machine, and a division by zero stops the program with an
+* ArithmeticException message
+* print of an object prints -1 for null and (the low bits of) its address otherwise
+* The annotations of the optimizations are ignored, like in JvmCodeGenerationASTVisitor
+* */
+public class CCodeGenerationASTVisitor extends BaseASTVisitor<String, VoidException> {
+
+	private static final String RUNTIME = """
+			#include <stdio.h>
+			#include <stdlib.h>
+			#include <stdint.h>
+			#include <pthread.h>
+
+			typedef void (*method)(void);
+			typedef struct object { const method *vtable; } object;
+
+			#define ADD(a, b) ((int) ((unsigned) (a) + (unsigned) (b)))
+			#define SUB(a, b) ((int) ((unsigned) (a) - (unsigned) (b)))
+			#define MUL(a, b) ((int) ((unsigned) (a) * (unsigned) (b)))
+			#define SHL(a, b) ((int) ((unsigned) (a) << (b)))
+
+			#define ARENA_CHUNK ((size_t) 1 << 20)
+			static char *arena_next, *arena_end;
+
+			static void *fool_alloc(size_t size) {
+			\tvoid *p;
+			\tsize = (size + 7) & ~(size_t) 7;
+			\tif ((size_t) (arena_end - arena_next) < size) {
+			\t\tsize_t chunk = size > ARENA_CHUNK ? size : ARENA_CHUNK;
+			\t\tarena_next = malloc(chunk);
+			\t\tif (arena_next == NULL) {
+			\t\t\tfflush(stdout);
+			\t\t\tfputs("OutOfMemoryError\\n", stderr);
+			\t\t\texit(1);
+			\t\t}
+			\t\tarena_end = arena_next + chunk;
+			\t}
+			\tp = arena_next;
+			\tarena_next += size;
+			\treturn p;
+			}
+
+			static int fool_div(int a, int b) {
+			\tif (b == 0) {
+			\t\tfflush(stdout);
+			\t\tfputs("ArithmeticException: / by zero\\n", stderr);
+			\t\texit(1);
+			\t}
+			\treturn b == -1 ? SUB(0, a) : a / b;
+			}
+
+			static int fool_print(int value) {
+			\tprintf("%d\\n", value);
+			\treturn value;
+			}
+
+			static object *fool_print_object(object *value) {
+			\tprintf("%d\\n", value == NULL ? -1 : (int) (intptr_t) value);
+			\treturn value;
+			}
+			""";
+
+	private static final String MAIN = """
+			int main(void) {
+			\tpthread_attr_t attributes;
+			\tpthread_t thread;
+			\tpthread_attr_init(&attributes);
+			\tpthread_attr_setstacksize(&attributes, (size_t) 1 << 30);
+			\tif (pthread_create(&thread, &attributes, fool_run, NULL) != 0) fool_run(NULL);
+			\telse pthread_join(thread, NULL);
+			\treturn 0;
+			}
+			""";
+
+	/*
+	 * Scope Class
+	 * A nesting level of the code being generated: the global one, a class or the body of a function or method
+	 * */
+	private static class Scope {
+		String owner; // struct of the object, for a class
+		String env; // struct of the environment, for a body declaring functions (null otherwise)
+		String link = "link"; // first parameter: the environment of the enclosing body, or the object of a method
+		final Set<Integer> captured = new HashSet<>(); // offsets of the declarations read by nested functions
+		final Map<Integer, TypeNode> types = new HashMap<>(); // types of the captured declarations
+	}
+
+	private final StringBuilder structs = new StringBuilder();
+	private final StringBuilder prototypes = new StringBuilder();
+	private final StringBuilder globals = new StringBuilder();
+	private final StringBuilder vtables = new StringBuilder();
+	private final StringBuilder functions = new StringBuilder();
+
+	private final Set<Integer> globalOffsets = new HashSet<>();
+	private final Map<String, List<String>> dispatchTables = new HashMap<>(); // C functions of the methods, by class
+	private final Map<STentry, String> functionNames = new HashMap<>();
+	private int environments = 0;
+
+	private StringBuilder body; // statements of the C function being generated
+	private String indent;
+	private int temporaries;
+	private final List<Scope> scopes = new ArrayList<>(); // scopes of the code being generated, by nesting level
+
+	/*
+	 * Generate the C source of a program
+	 * */
+	String generate(Node ast) {
+		StringBuilder run = new StringBuilder();
+		body = run;
+		indent = "\t";
+		temporaries = 0;
+		scopes.add(new Scope());
+		String value = visit(ast);
+		run.append(indent).append("(void) ").append(value).append(";\n");
+		return RUNTIME + "\n" + structs + "\n" + prototypes + "\n" + globals + "\n" + vtables + "\n" + functions
+				+ "static void *fool_run(void *unused) {\n" + run + "\tfflush(stdout);\n\treturn unused;\n}\n\n" + MAIN;
+	}
+
+	/*--------------------------------------------------TYPES---------------------------------------------------------*/
+
+	private static String type(TypeNode type) {
+		return isReference(type) ? "object *" : "int ";
+	}
+
+	private static String type(Node exp) {
+		return isReference(exp) ? "object *" : "int ";
+	}
+
+	private static String structName(String id) {
+		return "struct C_" + id;
+	}
+
+	private static String variable(int offset) {
+		return offset > 0 ? "p" + offset : "d" + -offset;
+	}
+
+	/*
+	 * Signature of a C function, with the given first parameter (null if none)
+	 * */
+	private static String signature(String name, String first, List<TypeNode> parameters, TypeNode result) {
+		StringJoiner list = new StringJoiner(", ", "(", ")");
+		if (first != null) list.add(first);
+		for (int i = 0; i < parameters.size(); i++) list.add(type(parameters.get(i)) + variable(i + 1));
+		if (list.length() == 2) list.add("void");
+		return "static " + type(result) + name + list;
+	}
+
+	/*
+	 * Type of the pointer to a method, to call it through the virtual table
+	 * */
+	private static String methodPointer(MethodTypeNode m) {
+		StringJoiner list = new StringJoiner(", ", "(" + type(m.fun.ret) + "(*)(", "))");
+		list.add("object *");
+		for (TypeNode parameter : m.fun.parlist) list.add(type(parameter).trim());
+		return list.toString();
+	}
+
+	/*-----------------------------------------------STATEMENTS-------------------------------------------------------*/
+
+	private void statement(String s) {
+		body.append(indent).append(s).append("\n");
+	}
+
+	/*
+	 * Evaluate an expression into a new temporary, returning its name
+	 * */
+	private String temporary(String type, String exp) {
+		String t = "t" + temporaries++;
+		statement(type + t + " = " + exp + ";");
+		return t;
+	}
+
+	/*
+	 * Generate the statements of an expression in a block of their own, returning the expression giving its value
+	 * The statements are returned in the given builder
+	 * */
+	private String block(Node exp, StringBuilder statements) {
+		StringBuilder outer = body;
+		String outerIndent = indent;
+		body = statements;
+		indent = indent + "\t";
+		String value = visit(exp);
+		body = outer;
+		indent = outerIndent;
+		return value;
+	}
+
+	/*
+	 * The arguments of a call, evaluated from the last to the first like on the virtual machine
+	 * */
+	private List<String> arguments(List<Node> args) {
+		String[] values = new String[args.size()];
+		for (int i = args.size() - 1; i >= 0; i--) values[i] = visit(args.get(i));
+		return Arrays.asList(values);
+	}
+
+	/*--------------------------------------------------SCOPES--------------------------------------------------------*/
+
+	/*
+	 * The object representing a scope, seen from the code at the given nesting level: the address of the
+	 * environment of a body, or the object of a class
+	 * */
+	private String frame(int nl, int current) {
+		if (nl == current) return "(&env)";
+		if (nl == current - 1) return scopes.get(current).link;
+		Scope scope = scopes.get(nl);
+		return "((" + (scope.owner != null ? "object" : "struct " + scope.env) + " *) " + frame(nl + 1, current) + "->up)";
+	}
+
+	/*
+	 * The value of a declaration read at the given nesting level
+	 * */
+	private String load(STentry entry, int nestingLevel) {
+		if (entry.nl == 0) return global(entry);
+		Scope scope = scopes.get(entry.nl);
+		if (scope.owner != null) // field of the object
+			return "((" + scope.owner + " *) " + frame(entry.nl, nestingLevel) + ")->f" + (-entry.offset - 1);
+		if (scope.captured.contains(entry.offset)) return frame(entry.nl, nestingLevel) + "->" + variable(entry.offset);
+		return variable(entry.offset);
+	}
+
+	/*
+	 * Write a value into a declaration of the current scope
+	 * */
+	private void store(STentry entry, TypeNode type, String value) {
+		if (entry.nl == 0) statement(global(entry) + " = " + value + ";");
+		else if (scopes.get(entry.nl).captured.contains(entry.offset)) statement("env." + variable(entry.offset) + " = " + value + ";");
+		else statement(type(type) + variable(entry.offset) + " = " + value + ";");
+	}
+
+	/*
+	 * Name of the static variable of a global declaration, declared at the first request
+	 * */
+	private String global(STentry entry) {
+		if (globalOffsets.add(entry.offset)) globals.append("static ").append(type(entry.type)).append("g").append(-entry.offset).append(";\n");
+		return "g" + -entry.offset;
+	}
+
+	/*
+	 * Generate the body of a function or method at the given nesting level, returning its value
+	 * */
+	private void body(String signature, String link, int nl, List<TypeNode> parameters, List<DecNode> declist, Node exp) {
+		StringBuilder outer = body;
+		String outerIndent = indent;
+		int outerTemporaries = temporaries;
+		body = new StringBuilder();
+		indent = "\t";
+		temporaries = 0;
+		Scope scope = new Scope();
+		scope.link = link;
+		scopes.add(scope);
+		if (declist.stream().anyMatch(dec -> dec instanceof FunNode)) {
+			for (DecNode dec : declist)
+				if (dec instanceof FunNode f) JvmCodeGenerationASTVisitor.references(f, nl, scope.captured);
+			for (int i = 0; i < parameters.size(); i++) scope.types.put(i + 1, parameters.get(i));
+			for (DecNode dec : declist) if (dec instanceof VarNode v) scope.types.put(v.entry.offset, v.getType());
+			scope.captured.retainAll(scope.types.keySet());
+			environment(scope, nl);
+		}
+		for (int i = 0; i < parameters.size(); i++)
+			if (scope.captured.contains(i + 1)) statement("env." + variable(i + 1) + " = " + variable(i + 1) + ";");
+		for (DecNode dec : declist) visit(dec);
+		statement("return " + visit(exp) + ";");
+		scopes.remove(scopes.size() - 1);
+		prototypes.append(signature).append(";\n");
+		functions.append(signature).append(" {\n").append(body).append("}\n\n");
+		body = outer;
+		indent = outerIndent;
+		temporaries = outerTemporaries;
+	}
+
+	/*
+	 * Declare the environment of a body, linked to the one of the enclosing body (or to the object, for a method)
+	 * */
+	private void environment(Scope scope, int nl) {
+		scope.env = "env" + environments++;
+		structs.append("struct ").append(scope.env).append(" {\n\tvoid *up;\n");
+		for (int offset : new TreeSet<>(scope.captured))
+			structs.append("\t").append(type(scope.types.get(offset))).append(variable(offset)).append(";\n");
+		structs.append("};\n");
+		statement("struct " + scope.env + " env;");
+		statement("env.up = " + (nl > 1 ? scope.link : "NULL") + ";");
+	}
+
+	/*-------------------------------------------------PROGRAM--------------------------------------------------------*/
+
+	@Override
+	public String visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		return visit(n.exp);
+	}
+
+	@Override
+	public String visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return visit(n.exp);
+	}
+
+	/*
+	 * A function is a C function: functions not declared in the global scope take the address of the environment
+	 * of the body declaring them as first parameter
+	 * */
+	@Override
+	public String visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		List<TypeNode> parameters = new ArrayList<>();
+		for (ParNode par : n.parlist) parameters.add(par.getType());
+		for (STentry lifted : n.entry.lifted) parameters.add(lifted.type); // lambda lifting
+		String name = "f_" + n.id + "_" + functionNames.size();
+		functionNames.put(n.entry, name);
+		String link = n.entry.nl > 0 ? "struct " + scopes.get(n.entry.nl).env + " *link" : null;
+		body(signature(name, link, parameters, n.retType), "link", n.entry.nl + 1, parameters, n.declist, n.exp);
+		return null;
+	}
+
+	@Override
+	public String visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		String value = visit(n.exp);
+		if (isReference(n.getType()) && !isReference(n.exp)) value = "NULL"; // slot reserved with an int (temporaries)
+		store(n.entry, n.getType(), value);
+		return null;
+	}
+
+	@Override
+	public String visitNode(TempNode n) {
+		if (print) printNode(n);
+		String value = visit(n.exp);
+		store(n.entry, n.entry.type, value);
+		return load(n.entry, n.entry.nl);
+	}
+
+	@Override
+	public String visitNode(PrintNode n) {
+		if (print) printNode(n);
+		String value = visit(n.exp);
+		return temporary(type(n.exp), (isReference(n.exp) ? "fool_print_object(" : "fool_print(") + value + ")");
+	}
+
+	/*-----------------------------------------------EXPRESSIONS------------------------------------------------------*/
+
+	@Override
+	public String visitNode(IfNode n) {
+		if (print) printNode(n);
+		String cond = visit(n.cond);
+		StringBuilder th = new StringBuilder(), el = new StringBuilder();
+		String thValue = block(n.th, th), elValue = block(n.el, el);
+		if (th.isEmpty() && el.isEmpty()) return "(" + cond + " ? " + thValue + " : " + elValue + ")";
+		String t = "t" + temporaries++;
+		statement(type(n) + t + ";");
+		statement("if (" + cond + ") {");
+		body.append(th).append(indent).append("\t").append(t).append(" = ").append(thValue).append(";\n");
+		statement("} else {");
+		body.append(el).append(indent).append("\t").append(t).append(" = ").append(elValue).append(";\n");
+		statement("}");
+		return t;
+	}
+
+	private String binary(Node left, Node right, String operator) {
+		String l = visit(left);
+		return "(" + l + " " + operator + " " + visit(right) + ")";
+	}
+
+	@Override
+	public String visitNode(EqualNode n) {
+		if (print) printNode(n);
+		return binary(n.left, n.right, "==");
+	}
+
+	@Override
+	public String visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		return binary(n.left, n.right, "<=");
+	}
+
+	@Override
+	public String visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		return binary(n.left, n.right, ">=");
+	}
+
+	/*
+	 * The right operand of && and || is evaluated only if the left one does not decide the result
+	 * */
+	private String shortCircuit(Node left, Node right, String operator) {
+		String l = visit(left);
+		StringBuilder statements = new StringBuilder();
+		String r = block(right, statements);
+		if (statements.isEmpty()) return "(" + l + " " + operator + " " + r + ")";
+		String t = temporary("int ", l);
+		statement("if (" + (operator.equals("&&") ? t : "!" + t) + ") {");
+		body.append(statements).append(indent).append("\t").append(t).append(" = ").append(r).append(";\n");
+		statement("}");
+		return t;
+	}
+
+	@Override
+	public String visitNode(AndNode n) {
+		if (print) printNode(n);
+		return shortCircuit(n.left, n.right, "&&");
+	}
+
+	@Override
+	public String visitNode(OrNode n) {
+		if (print) printNode(n);
+		return shortCircuit(n.left, n.right, "||");
+	}
+
+	@Override
+	public String visitNode(NotNode n) {
+		if (print) printNode(n);
+		return "(!" + visit(n.exp) + ")";
+	}
+
+	private String arithmetic(Node left, Node right, String operation) {
+		String l = visit(left);
+		return operation + "(" + l + ", " + visit(right) + ")";
+	}
+
+	@Override
+	public String visitNode(PlusNode n) {
+		if (print) printNode(n);
+		return arithmetic(n.left, n.right, "ADD");
+	}
+
+	@Override
+	public String visitNode(MinusNode n) {
+		if (print) printNode(n);
+		return arithmetic(n.left, n.right, "SUB");
+	}
+
+	@Override
+	public String visitNode(TimesNode n) {
+		if (print) printNode(n);
+		return arithmetic(n.left, n.right, "MUL");
+	}
+
+	@Override
+	public String visitNode(DivNode n) {
+		if (print) printNode(n);
+		return temporary("int ", arithmetic(n.left, n.right, "fool_div"));
+	}
+
+	@Override
+	public String visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		return "SHL(" + visit(n.exp) + ", " + n.bits + ")";
+	}
+
+	@Override
+	public String visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n.val == Integer.MIN_VALUE ? "(-2147483647 - 1)" : n.val < 0 ? "(" + n.val + ")" : n.val.toString();
+	}
+
+	@Override
+	public String visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n.val ? "1" : "0";
+	}
+
+	@Override
+	public String visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return "NULL";
+	}
+
+	@Override
+	public String visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return load(n.entry, n.nestingLevel);
+	}
+
+	/*
+	 * A call of a function calls its C function; a call of a method of the current object (from the body of
+	 * a method, or of a function declared in it) calls it through the virtual table of the object
+	 * */
+	@Override
+	public String visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		List<String> args = arguments(n.arglist);
+		if (n.entry.type instanceof MethodTypeNode m) {
+			String object = frame(n.entry.nl, n.nl);
+			return temporary(type(m.fun.ret), call("(" + methodPointer(m) + object + "->vtable[" + n.entry.offset + "])", object, args));
+		}
+		return temporary(type(JvmCodeGenerationASTVisitor.result(n.entry.type)),
+				call(functionNames.get(n.entry), n.entry.nl > 0 ? frame(n.entry.nl, n.nl) : null, args));
+	}
+
+	private static String call(String function, String first, List<String> args) {
+		StringJoiner list = new StringJoiner(", ", function + "(", ")");
+		if (first != null) list.add(first);
+		args.forEach(list::add);
+		return list.toString();
+	}
+
+	/*---------------------------------------------------CLASSES------------------------------------------------------*/
+
+	/*
+	 * A class has a struct with all its fields, a virtual table and a function creating its objects
+	 * */
+	@Override
+	public String visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		String struct = structName(n.id);
+		List<TypeNode> fields = ((ClassTypeNode) n.getType()).allFields;
+		structs.append(struct).append(" {\n\tconst method *vtable;\n");
+		for (int k = 0; k < fields.size(); k++) structs.append("\t").append(type(fields.get(k))).append("f").append(k).append(";\n");
+		structs.append("};\n");
+
+		List<String> table = new ArrayList<>(n.superId != null ? dispatchTables.get(n.superId) : List.of());
+		for (MethodNode method : n.methodNodeList) {
+			while (table.size() <= method.offset) table.add(null);
+			table.set(method.offset, "m_" + n.id + "_" + method.id);
+		}
+		dispatchTables.put(n.id, table);
+		vtables.append("static const method vtable_").append(n.id).append("[] = {");
+		for (String function : table) // a gap between the offsets of the methods has no function, like in the VM
+			vtables.append(function != null ? " (method) " + function : " NULL").append(",");
+		vtables.append(" NULL };\n");
+
+		StringJoiner parameters = new StringJoiner(", ", "static object *new_" + n.id + "(", ")");
+		for (int k = 0; k < fields.size(); k++) parameters.add(type(fields.get(k)) + "f" + k);
+		if (fields.isEmpty()) parameters.add("void");
+		prototypes.append(parameters).append(";\n");
+		functions.append(parameters).append(" {\n\t").append(struct).append(" *o = fool_alloc(sizeof(").append(struct)
+				.append("));\n\to->vtable = vtable_").append(n.id).append(";\n");
+		for (int k = 0; k < fields.size(); k++) functions.append("\to->f").append(k).append(" = f").append(k).append(";\n");
+		functions.append("\treturn (object *) o;\n}\n\n");
+
+		Scope scope = new Scope();
+		scope.owner = struct;
+		scopes.add(scope);
+		for (MethodNode method : n.methodNodeList) {
+			List<TypeNode> methodParameters = method.parList.stream().map(ParNode::getType).toList();
+			body(signature("m_" + n.id + "_" + method.id, "object *self", methodParameters, method.retType), "self", 2,
+					methodParameters, method.decList, method.exp);
+		}
+		scopes.remove(scopes.size() - 1);
+		return null;
+	}
+
+	@Override
+	public String visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		List<String> args = arguments(n.arg);
+		String object = load(n.entry, n.nestingLevel);
+		MethodTypeNode m = (MethodTypeNode) n.methodEntry.type;
+		return temporary(type(m.fun.ret), call("(" + methodPointer(m) + object + "->vtable[" + n.methodEntry.offset + "])", object, args));
+	}
+
+	@Override
+	public String visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		List<String> args = new ArrayList<>();
+		for (Node arg : n.arg) args.add(visit(arg)); // in order of appearance, like on the virtual machine
+		return temporary("object *", call("new_" + n.id, null, args));
+	}
+}
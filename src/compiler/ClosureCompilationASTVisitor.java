@@ -0,0 +1,955 @@
+package compiler;
+
+import compiler.AST.*;
+import compiler.lib.*;
+import compiler.exc.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static compiler.JvmCodeGenerationASTVisitor.isReference;
+
+/*
+* ClosureCompilationASTVisitor Class
+* It implements the visitor pattern to compile the enriched AST into a tree of executable nodes, which runs the
+* program directly: there is no code generation, assembly or virtual machine, and the JIT compiles the nodes of its
+* hot paths together
+* The visit of an expression returns an IntCode (int and bool values, bools are 0 and 1) or a RefCode (objects),
+* whose eval method takes the frame of the current activation
+* The nodes are instances of small named classes rather than lambdas, since each lambda is linked through
+* LambdaMetafactory the first time it is created, which made the start of a program slower than on the virtual machine
+* Everything a node needs is resolved when it is built, from the symbol table entries:
+* - the index of a parameter or declaration in its frame, where ints and references are kept in separate arrays,
+*   each one holding only the slots of its kind (likewise for the fields of an object)
+* - the number of Access Links to follow from the frame of the use to the one of the declaration, like the static
+*   chain of the virtual machine (the Access Link of a method is its object)
+* - the dispatch array of each class, with the methods at the offsets of the dispatch tables of the virtual machine
+* Global declarations are in the global frame, read without following the chain; arguments of calls are evaluated
+* from the last to the first, like on the virtual machine
+* print of an object prints -1 for null and an identity hash code otherwise
+* The annotations of the optimizations are ignored, like in JvmCodeGenerationASTVisitor
+* */
+public class ClosureCompilationASTVisitor extends BaseASTVisitor<Object, VoidException> {
+
+	abstract static class IntCode {
+		abstract int eval(Frame frame);
+	}
+
+	abstract static class RefCode {
+		abstract Object eval(Frame frame);
+	}
+
+	private static final int[] NO_INTS = new int[0];
+	private static final Object[] NO_REFS = new Object[0];
+
+	/*
+	 * Frame Class
+	 * The activation of a function or method (or the global one): its Access Link, the enclosing frame or the object
+	 * of a method, and the slots of its parameters and declarations
+	 * */
+	static final class Frame {
+		final Object link;
+		final int[] ints;
+		final Object[] refs;
+
+		Frame(Object link, int ints, int refs) {
+			this.link = link;
+			this.ints = ints == 0 ? NO_INTS : new int[ints];
+			this.refs = refs == 0 ? NO_REFS : new Object[refs];
+		}
+	}
+
+	/*
+	 * Instance Class
+	 * An object: its class and its fields
+	 * */
+	static final class Instance {
+		final Layout type;
+		final int[] ints;
+		final Object[] refs;
+
+		Instance(Layout type) {
+			this.type = type;
+			ints = type.slots.ints == 0 ? NO_INTS : new int[type.slots.ints];
+			refs = type.slots.refs == 0 ? NO_REFS : new Object[type.slots.refs];
+		}
+	}
+
+	/*
+	 * Layout Class
+	 * A class: the slots of its fields and its dispatch array
+	 * */
+	static final class Layout {
+		final Slots slots;
+		final Callable[] dispatch;
+
+		Layout(Slots slots, Callable[] dispatch) {
+			this.slots = slots;
+			this.dispatch = dispatch;
+		}
+	}
+
+	/*
+	 * Callable Class
+	 * A function or method: the number of int and reference slots of its frame and its body, returning an int (body)
+	 * or a reference (refBody); it is created before its body is compiled, so that recursive calls can refer to it
+	 * */
+	static final class Callable {
+		int ints;
+		int refs;
+		IntCode body;
+		RefCode refBody;
+	}
+
+	/*
+	 * Slots Class
+	 * The slots of a frame (parameters followed by declarations) or of the fields of an object, in order: whether each
+	 * one holds a reference, and its index in the array of its kind
+	 * */
+	private static final class Slots {
+		final boolean[] references;
+		final int[] index;
+		final int ints;
+		final int refs;
+
+		Slots(boolean[] references) {
+			this.references = references;
+			index = new int[references.length];
+			int ints = 0, refs = 0;
+			for (int i = 0; i < references.length; i++) index[i] = references[i] ? refs++ : ints++;
+			this.ints = ints;
+			this.refs = refs;
+		}
+	}
+
+	/*
+	 * Scope Class
+	 * A nesting level of the code being compiled: the global one, a class or the body of a function or method
+	 * */
+	private static class Scope {
+		final boolean isClass;
+		final int parameters;
+		final Slots slots;
+
+		Scope(boolean isClass, int parameters, Slots slots) {
+			this.isClass = isClass;
+			this.parameters = parameters;
+			this.slots = slots;
+		}
+	}
+
+	/*
+	 * Context Class
+	 * The state of a run shared by the nodes: the global frame and the sink of print
+	 * */
+	private static final class Context {
+		Frame globals;
+		PrintStream out = System.out;
+	}
+
+	private final Context context = new Context();
+
+	private final Map<STentry, Callable> functions = new HashMap<>();
+	private final Map<String, Callable[]> dispatchArrays = new HashMap<>();
+	private final Map<String, Layout> layouts = new HashMap<>();
+	private final List<Scope> scopes = new ArrayList<>(); // scopes of the code being compiled, by nesting level
+
+	/*
+	 * Program Interface
+	 * A compiled program, run printing to the given sink
+	 * */
+	public interface Program {
+		void run(PrintStream sink);
+	}
+
+	private static final long STACK_SIZE = 1L << 31; // deep recursions, each call taking a few Java frames
+
+	/*
+	 * Worker Class
+	 * The thread with a large stack running the programs, since FOOL has recursion only: it is started once and
+	 * reused by every run, and it does not keep the JVM alive
+	 * */
+	private static final class Worker implements ThreadFactory {
+		static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new Worker());
+
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(null, task, "fool", STACK_SIZE);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/*
+	 * Compiled Class
+	 * The compiled program: the declarations and the expression of its body
+	 * */
+	private static final class Compiled implements Program, java.util.concurrent.Callable<Void> {
+		final Context context;
+		final Slots slots;
+		final IntCode[] declarations;
+		final Object main;
+
+		Compiled(Context context, Slots slots, IntCode[] declarations, Object main) {
+			this.context = context;
+			this.slots = slots;
+			this.declarations = declarations;
+			this.main = main;
+		}
+
+		@Override
+		public Void call() {
+			Frame globals = context.globals = new Frame(null, slots.ints, slots.refs);
+			for (IntCode declaration : declarations) declaration.eval(globals);
+			if (main instanceof IntCode code) code.eval(globals);
+			else ((RefCode) main).eval(globals);
+			context.out.flush();
+			return null;
+		}
+
+		/*
+		 * The exceptions of the program (like a division by zero) are thrown again as they are
+		 * */
+		@Override
+		public void run(PrintStream sink) {
+			context.out = sink;
+			try {
+				Worker.EXECUTOR.submit(this).get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException r) throw r;
+				if (e.getCause() instanceof Error r) throw r;
+				throw new IllegalStateException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	Program compile(Node ast) {
+		List<DecNode> declist = ast instanceof ProgLetInNode n ? n.declist : List.of();
+		Slots slots = slots(List.of(), declist);
+		scopes.add(new Scope(false, 0, slots));
+		IntCode[] declarations = declarations(declist);
+		Object main = visit(ast instanceof ProgLetInNode n ? n.exp : ((ProgNode) ast).exp);
+		return new Compiled(context, slots, declarations, main);
+	}
+
+	private IntCode intCode(Node n) {
+		return (IntCode) visit(n);
+	}
+
+	private RefCode refCode(Node n) {
+		Object code = visit(n);
+		if (code instanceof IntCode c) return new Discard(c); // a slot reserved with an int
+		return (RefCode) code;
+	}
+
+	/*--------------------------------------------------FRAMES--------------------------------------------------------*/
+
+	/*
+	 * Slots of a frame: the parameters, of the given types, followed by the declarations
+	 * */
+	private static Slots slots(List<TypeNode> parameters, List<DecNode> declist) {
+		int count = parameters.size();
+		for (DecNode dec : declist)
+			if (dec instanceof VarNode v) count = Math.max(count, parameters.size() - v.entry.offset - 1);
+		boolean[] references = new boolean[count];
+		for (int i = 0; i < parameters.size(); i++) references[i] = isReference(parameters.get(i));
+		for (DecNode dec : declist)
+			if (dec instanceof VarNode v) references[parameters.size() - v.entry.offset - 2] = isReference(v.getType());
+		return new Slots(references);
+	}
+
+	/*
+	 * Slots of the parameters of a call, of the given types
+	 * */
+	private static Slots slots(List<TypeNode> parameters) {
+		return slots(parameters, List.of());
+	}
+
+	/*
+	 * Index of a declaration in the array of its kind, in its frame or object
+	 * */
+	private int index(STentry entry) {
+		Scope scope = scopes.get(entry.nl);
+		if (scope.isClass) return scope.slots.index[-entry.offset - 1];
+		return scope.slots.index[entry.offset > 0 ? entry.offset - 1 : scope.parameters - entry.offset - 2];
+	}
+
+	/*
+	 * The code returning the frame (or object) of the scope at the given nesting level, seen from the given one
+	 * */
+	private RefCode frame(int nl, int nestingLevel) {
+		if (nl == 0) return new Globals(context);
+		int depth = nestingLevel - nl;
+		if (depth == 0) return new Current();
+		if (depth == 1) return new Link();
+		return new Links(depth);
+	}
+
+	/*
+	 * The code reading a declaration at the given nesting level
+	 * */
+	private Object load(STentry entry, int nestingLevel) {
+		int index = index(entry);
+		boolean reference = isReference(entry.type);
+		if (entry.nl > 0 && scopes.get(entry.nl).isClass) { // field of the object
+			RefCode object = frame(entry.nl, nestingLevel);
+			return reference ? new LoadRefField(object, index) : new LoadIntField(object, index);
+		}
+		if (entry.nl == 0) return reference ? new LoadRefGlobal(context, index) : new LoadIntGlobal(context, index);
+		int depth = nestingLevel - entry.nl;
+		if (depth == 0) return reference ? new LoadRef(index) : new LoadInt(index);
+		if (depth == 1) return reference ? new LoadRefLink(index) : new LoadIntLink(index);
+		RefCode declaring = frame(entry.nl, nestingLevel);
+		return reference ? new LoadRefFrame(declaring, index) : new LoadIntFrame(declaring, index);
+	}
+
+	/*
+	 * The code evaluating a value and writing it in a slot of the current frame, returning it
+	 * */
+	private Object store(STentry entry, TypeNode type, Node exp) {
+		int index = index(entry);
+		if (isReference(type)) return new StoreRef(index, refCode(exp));
+		return new StoreInt(index, intCode(exp));
+	}
+
+	/*
+	 * The code of the declarations of a body, in order (functions and classes have none)
+	 * */
+	private IntCode[] declarations(List<DecNode> declist) {
+		List<IntCode> codes = new ArrayList<>();
+		for (DecNode dec : declist) {
+			Object code = visit(dec);
+			if (code instanceof IntCode c) codes.add(c);
+			else if (code instanceof RefCode c) codes.add(new DiscardRef(c));
+		}
+		return codes.toArray(new IntCode[0]);
+	}
+
+	/*
+	 * Compile the body of a function or method into its Callable
+	 * */
+	private void body(Callable callable, List<TypeNode> parameters, List<DecNode> declist, Node exp,
+			TypeNode retType) {
+		Slots slots = slots(parameters, declist);
+		scopes.add(new Scope(false, parameters.size(), slots));
+		callable.ints = slots.ints;
+		callable.refs = slots.refs;
+		IntCode[] declarations = declarations(declist);
+		if (isReference(retType)) {
+			RefCode value = refCode(exp);
+			callable.refBody = declarations.length == 0 ? value : new RefBody(declarations, value);
+		} else {
+			IntCode value = intCode(exp);
+			callable.body = declarations.length == 0 ? value : new IntBody(declarations, value);
+		}
+		scopes.remove(scopes.size() - 1);
+	}
+
+	/*
+	 * Target Class
+	 * The function or method a call runs, given the Access Link of its frame (the object, for a method)
+	 * */
+	abstract static class Target {
+		abstract Callable get(Object link);
+	}
+
+	/*
+	 * The code of a call: the arguments are evaluated from the last to the first into the slots of the new frame,
+	 * whose Access Link is given by link, then the body of the target runs
+	 * */
+	private Object call(List<Node> arglist, List<TypeNode> parameters, RefCode link, Target target, TypeNode retType) {
+		Slots slots = slots(parameters);
+		int arguments = arglist.size();
+		IntCode[] ints = new IntCode[arguments];
+		RefCode[] refs = new RefCode[arguments];
+		for (int i = arguments - 1; i >= 0; i--)
+			if (slots.references[i]) refs[i] = refCode(arglist.get(i));
+			else ints[i] = intCode(arglist.get(i));
+		Arguments args = new Arguments(slots, ints, refs);
+		if (isReference(retType)) return new CallRef(link, target, args);
+		return new CallInt(link, target, args);
+	}
+
+	/*
+	 * Arguments Class
+	 * The code of the arguments of a call, creating the frame of the callee
+	 * */
+	private static final class Arguments {
+		final boolean[] references;
+		final int[] index;
+		final IntCode[] ints;
+		final RefCode[] refs;
+
+		Arguments(Slots slots, IntCode[] ints, RefCode[] refs) {
+			references = slots.references;
+			index = slots.index;
+			this.ints = ints;
+			this.refs = refs;
+		}
+
+		Frame activation(Frame frame, Object link, Callable callable) {
+			Frame callee = new Frame(link, callable.ints, callable.refs);
+			for (int i = references.length - 1; i >= 0; i--)
+				if (references[i]) callee.refs[index[i]] = refs[i].eval(frame);
+				else callee.ints[index[i]] = ints[i].eval(frame);
+			return callee;
+		}
+	}
+
+	private static List<TypeNode> types(List<ParNode> parlist) {
+		List<TypeNode> types = new ArrayList<>();
+		for (ParNode par : parlist) types.add(par.getType());
+		return types;
+	}
+
+	/*-------------------------------------------------PROGRAM--------------------------------------------------------*/
+
+	@Override
+	public Object visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		Callable callable = new Callable();
+		functions.put(n.entry, callable);
+		List<TypeNode> parameters = types(n.parlist);
+		for (STentry lifted : n.entry.lifted) parameters.add(lifted.type); // lambda lifting
+		body(callable, parameters, n.declist, n.exp, n.retType);
+		return null;
+	}
+
+	@Override
+	public Object visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		return store(n.entry, n.getType(), n.exp);
+	}
+
+	@Override
+	public Object visitNode(TempNode n) {
+		if (print) printNode(n);
+		return store(n.entry, n.entry.type, n.exp);
+	}
+
+	@Override
+	public Object visitNode(PrintNode n) {
+		if (print) printNode(n);
+		if (isReference(n.exp)) return new PrintRef(context, refCode(n.exp));
+		return new PrintInt(context, intCode(n.exp));
+	}
+
+	/*-----------------------------------------------EXPRESSIONS------------------------------------------------------*/
+
+	@Override
+	public Object visitNode(IfNode n) {
+		if (print) printNode(n);
+		IntCode cond = intCode(n.cond);
+		if (isReference(n)) return new IfRef(cond, refCode(n.th), refCode(n.el));
+		return new IfInt(cond, intCode(n.th), intCode(n.el));
+	}
+
+	@Override
+	public Object visitNode(EqualNode n) {
+		if (print) printNode(n);
+		if (isReference(n.left) || isReference(n.right)) return new EqualRef(refCode(n.left), refCode(n.right));
+		return new Equal(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		return new LessEqual(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		return new GreaterEqual(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(AndNode n) {
+		if (print) printNode(n);
+		return new And(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(OrNode n) {
+		if (print) printNode(n);
+		return new Or(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(NotNode n) {
+		if (print) printNode(n);
+		return new Not(intCode(n.exp));
+	}
+
+	@Override
+	public Object visitNode(PlusNode n) {
+		if (print) printNode(n);
+		return new Plus(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(MinusNode n) {
+		if (print) printNode(n);
+		return new Minus(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(TimesNode n) {
+		if (print) printNode(n);
+		return new Times(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(DivNode n) {
+		if (print) printNode(n);
+		return new Div(intCode(n.left), intCode(n.right));
+	}
+
+	@Override
+	public Object visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		return new ShiftLeft(intCode(n.exp), n.bits);
+	}
+
+	@Override
+	public Object visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return new Constant(n.val);
+	}
+
+	@Override
+	public Object visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return new Constant(n.val ? 1 : 0);
+	}
+
+	@Override
+	public Object visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return new Null();
+	}
+
+	@Override
+	public Object visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return load(n.entry, n.nestingLevel);
+	}
+
+	/*
+	 * A call of a function runs its body in a frame linked to the one of the body declaring it; a call of a
+	 * method of the current object runs the method of its class, linked to the object
+	 * */
+	@Override
+	public Object visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		if (n.entry.type instanceof MethodTypeNode m)
+			return call(n.arglist, m.fun.parlist, frame(n.entry.nl, n.nl), new Dispatch(n.entry.offset, null), m.fun.ret);
+		ArrowTypeNode type = (ArrowTypeNode) n.entry.type;
+		List<TypeNode> parameters = new ArrayList<>(type.parlist);
+		for (STentry lifted : n.entry.lifted) parameters.add(lifted.type); // lambda lifting
+		return call(n.arglist, parameters, frame(n.entry.nl, n.nl), new Function(functions.get(n.entry)), type.ret);
+	}
+
+	/*---------------------------------------------------CLASSES------------------------------------------------------*/
+
+	/*
+	 * A class has its layout, whose dispatch array starts as a copy of the one of its superclass (the fields of the
+	 * superclass come first, so they keep their index in the objects of the subclass)
+	 * */
+	@Override
+	public Object visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		ClassTypeNode type = (ClassTypeNode) n.getType();
+		Callable[] dispatch = new Callable[type.allMethods.size()];
+		if (n.superId != null) {
+			Callable[] inherited = dispatchArrays.get(n.superId);
+			System.arraycopy(inherited, 0, dispatch, 0, inherited.length);
+		}
+		for (MethodNode method : n.methodNodeList) dispatch[method.offset] = new Callable();
+		dispatchArrays.put(n.id, dispatch);
+		Slots fields = slots(type.allFields);
+		layouts.put(n.id, new Layout(fields, dispatch));
+		scopes.add(new Scope(true, 0, fields));
+		for (MethodNode method : n.methodNodeList)
+			body(dispatch[method.offset], types(method.parList), method.decList, method.exp, method.retType);
+		scopes.remove(scopes.size() - 1);
+		return null;
+	}
+
+	@Override
+	public Object visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		MethodTypeNode type = (MethodTypeNode) n.methodEntry.type;
+		RefCode object = (RefCode) load(n.entry, n.nestingLevel);
+		return call(n.arg, type.fun.parlist, object, new Dispatch(n.methodEntry.offset, n.methodId), type.fun.ret);
+	}
+
+	@Override
+	public Object visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		Layout layout = layouts.get(n.id);
+		int fields = n.arg.size();
+		IntCode[] ints = new IntCode[fields];
+		RefCode[] refs = new RefCode[fields];
+		for (int k = 0; k < fields; k++) // in order of appearance, like on the virtual machine
+			if (layout.slots.references[k]) refs[k] = refCode(n.arg.get(k));
+			else ints[k] = intCode(n.arg.get(k));
+		return new New(layout, ints, refs);
+	}
+
+	/*----------------------------------------------------NODES-------------------------------------------------------*/
+
+	private static final class Constant extends IntCode {
+		final int value;
+		Constant(int value) { this.value = value; }
+		@Override int eval(Frame frame) { return value; }
+	}
+
+	private static final class Null extends RefCode {
+		@Override Object eval(Frame frame) { return null; }
+	}
+
+	private static final class Plus extends IntCode {
+		final IntCode left, right;
+		Plus(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) + right.eval(frame); }
+	}
+
+	private static final class Minus extends IntCode {
+		final IntCode left, right;
+		Minus(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) - right.eval(frame); }
+	}
+
+	private static final class Times extends IntCode {
+		final IntCode left, right;
+		Times(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) * right.eval(frame); }
+	}
+
+	private static final class Div extends IntCode {
+		final IntCode left, right;
+		Div(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) / right.eval(frame); } // ArithmeticException on division by zero
+	}
+
+	private static final class Equal extends IntCode {
+		final IntCode left, right;
+		Equal(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) == right.eval(frame) ? 1 : 0; }
+	}
+
+	private static final class LessEqual extends IntCode {
+		final IntCode left, right;
+		LessEqual(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) <= right.eval(frame) ? 1 : 0; }
+	}
+
+	private static final class GreaterEqual extends IntCode {
+		final IntCode left, right;
+		GreaterEqual(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) >= right.eval(frame) ? 1 : 0; }
+	}
+
+	private static final class EqualRef extends IntCode {
+		final RefCode left, right;
+		EqualRef(RefCode left, RefCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) == right.eval(frame) ? 1 : 0; }
+	}
+
+	private static final class And extends IntCode {
+		final IntCode left, right;
+		And(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) != 0 ? right.eval(frame) : 0; }
+	}
+
+	private static final class Or extends IntCode {
+		final IntCode left, right;
+		Or(IntCode left, IntCode right) { this.left = left; this.right = right; }
+		@Override int eval(Frame frame) { return left.eval(frame) != 0 ? 1 : right.eval(frame); }
+	}
+
+	private static final class Not extends IntCode {
+		final IntCode exp;
+		Not(IntCode exp) { this.exp = exp; }
+		@Override int eval(Frame frame) { return exp.eval(frame) ^ 1; }
+	}
+
+	private static final class ShiftLeft extends IntCode {
+		final IntCode exp;
+		final int bits;
+		ShiftLeft(IntCode exp, int bits) { this.exp = exp; this.bits = bits; }
+		@Override int eval(Frame frame) { return exp.eval(frame) << bits; }
+	}
+
+	private static final class IfInt extends IntCode {
+		final IntCode cond, th, el;
+		IfInt(IntCode cond, IntCode th, IntCode el) { this.cond = cond; this.th = th; this.el = el; }
+		@Override int eval(Frame frame) { return cond.eval(frame) != 0 ? th.eval(frame) : el.eval(frame); }
+	}
+
+	private static final class IfRef extends RefCode {
+		final IntCode cond;
+		final RefCode th, el;
+		IfRef(IntCode cond, RefCode th, RefCode el) { this.cond = cond; this.th = th; this.el = el; }
+		@Override Object eval(Frame frame) { return cond.eval(frame) != 0 ? th.eval(frame) : el.eval(frame); }
+	}
+
+	private static final class PrintInt extends IntCode {
+		final Context context;
+		final IntCode exp;
+		PrintInt(Context context, IntCode exp) { this.context = context; this.exp = exp; }
+
+		@Override
+		int eval(Frame frame) {
+			int value = exp.eval(frame);
+			context.out.println(value);
+			return value;
+		}
+	}
+
+	private static final class PrintRef extends RefCode {
+		final Context context;
+		final RefCode exp;
+		PrintRef(Context context, RefCode exp) { this.context = context; this.exp = exp; }
+
+		@Override
+		Object eval(Frame frame) {
+			Object value = exp.eval(frame);
+			context.out.println(value == null ? -1 : System.identityHashCode(value));
+			return value;
+		}
+	}
+
+	/*
+	 * Discard Class
+	 * An int evaluated where a reference is expected (DiscardRef the opposite, for the declarations)
+	 * */
+	private static final class Discard extends RefCode {
+		final IntCode exp;
+		Discard(IntCode exp) { this.exp = exp; }
+		@Override Object eval(Frame frame) { exp.eval(frame); return null; }
+	}
+
+	private static final class DiscardRef extends IntCode {
+		final RefCode exp;
+		DiscardRef(RefCode exp) { this.exp = exp; }
+		@Override int eval(Frame frame) { exp.eval(frame); return 0; }
+	}
+
+	private static final class IntBody extends IntCode {
+		final IntCode[] declarations;
+		final IntCode value;
+		IntBody(IntCode[] declarations, IntCode value) { this.declarations = declarations; this.value = value; }
+
+		@Override
+		int eval(Frame frame) {
+			for (IntCode declaration : declarations) declaration.eval(frame);
+			return value.eval(frame);
+		}
+	}
+
+	private static final class RefBody extends RefCode {
+		final IntCode[] declarations;
+		final RefCode value;
+		RefBody(IntCode[] declarations, RefCode value) { this.declarations = declarations; this.value = value; }
+
+		@Override
+		Object eval(Frame frame) {
+			for (IntCode declaration : declarations) declaration.eval(frame);
+			return value.eval(frame);
+		}
+	}
+
+	/* Frames, seen from the current one */
+
+	private static final class Globals extends RefCode {
+		final Context context;
+		Globals(Context context) { this.context = context; }
+		@Override Object eval(Frame frame) { return context.globals; }
+	}
+
+	private static final class Current extends RefCode {
+		@Override Object eval(Frame frame) { return frame; }
+	}
+
+	private static final class Link extends RefCode {
+		@Override Object eval(Frame frame) { return frame.link; }
+	}
+
+	private static final class Links extends RefCode {
+		final int depth;
+		Links(int depth) { this.depth = depth; }
+
+		@Override
+		Object eval(Frame frame) {
+			Object f = frame;
+			for (int i = 0; i < depth; i++) f = ((Frame) f).link;
+			return f;
+		}
+	}
+
+	/* Loads and stores */
+
+	private static final class LoadInt extends IntCode {
+		final int index;
+		LoadInt(int index) { this.index = index; }
+		@Override int eval(Frame frame) { return frame.ints[index]; }
+	}
+
+	private static final class LoadRef extends RefCode {
+		final int index;
+		LoadRef(int index) { this.index = index; }
+		@Override Object eval(Frame frame) { return frame.refs[index]; }
+	}
+
+	private static final class LoadIntLink extends IntCode {
+		final int index;
+		LoadIntLink(int index) { this.index = index; }
+		@Override int eval(Frame frame) { return ((Frame) frame.link).ints[index]; }
+	}
+
+	private static final class LoadRefLink extends RefCode {
+		final int index;
+		LoadRefLink(int index) { this.index = index; }
+		@Override Object eval(Frame frame) { return ((Frame) frame.link).refs[index]; }
+	}
+
+	private static final class LoadIntFrame extends IntCode {
+		final RefCode declaring;
+		final int index;
+		LoadIntFrame(RefCode declaring, int index) { this.declaring = declaring; this.index = index; }
+		@Override int eval(Frame frame) { return ((Frame) declaring.eval(frame)).ints[index]; }
+	}
+
+	private static final class LoadRefFrame extends RefCode {
+		final RefCode declaring;
+		final int index;
+		LoadRefFrame(RefCode declaring, int index) { this.declaring = declaring; this.index = index; }
+		@Override Object eval(Frame frame) { return ((Frame) declaring.eval(frame)).refs[index]; }
+	}
+
+	private static final class LoadIntGlobal extends IntCode {
+		final Context context;
+		final int index;
+		LoadIntGlobal(Context context, int index) { this.context = context; this.index = index; }
+		@Override int eval(Frame frame) { return context.globals.ints[index]; }
+	}
+
+	private static final class LoadRefGlobal extends RefCode {
+		final Context context;
+		final int index;
+		LoadRefGlobal(Context context, int index) { this.context = context; this.index = index; }
+		@Override Object eval(Frame frame) { return context.globals.refs[index]; }
+	}
+
+	private static final class LoadIntField extends IntCode {
+		final RefCode object;
+		final int index;
+		LoadIntField(RefCode object, int index) { this.object = object; this.index = index; }
+		@Override int eval(Frame frame) { return ((Instance) object.eval(frame)).ints[index]; }
+	}
+
+	private static final class LoadRefField extends RefCode {
+		final RefCode object;
+		final int index;
+		LoadRefField(RefCode object, int index) { this.object = object; this.index = index; }
+		@Override Object eval(Frame frame) { return ((Instance) object.eval(frame)).refs[index]; }
+	}
+
+	private static final class StoreInt extends IntCode {
+		final int index;
+		final IntCode value;
+		StoreInt(int index, IntCode value) { this.index = index; this.value = value; }
+		@Override int eval(Frame frame) { return frame.ints[index] = value.eval(frame); }
+	}
+
+	private static final class StoreRef extends RefCode {
+		final int index;
+		final RefCode value;
+		StoreRef(int index, RefCode value) { this.index = index; this.value = value; }
+		@Override Object eval(Frame frame) { return frame.refs[index] = value.eval(frame); }
+	}
+
+	/* Calls and objects */
+
+	private static final class Function extends Target {
+		final Callable callable;
+		Function(Callable callable) { this.callable = callable; }
+		@Override Callable get(Object link) { return callable; }
+	}
+
+	/*
+	 * Dispatch Class
+	 * The method at an offset of the dispatch array of the object; the call of a method on a variable (methodId not
+	 * null) checks that it is not null
+	 * */
+	private static final class Dispatch extends Target {
+		final int offset;
+		final String methodId;
+		Dispatch(int offset, String methodId) { this.offset = offset; this.methodId = methodId; }
+
+		@Override
+		Callable get(Object object) {
+			if (object == null) throw new NullPointerException("Call of method " + methodId + " on null");
+			return ((Instance) object).type.dispatch[offset];
+		}
+	}
+
+	private static final class CallInt extends IntCode {
+		final RefCode link;
+		final Target target;
+		final Arguments arguments;
+		CallInt(RefCode link, Target target, Arguments arguments) {
+			this.link = link;
+			this.target = target;
+			this.arguments = arguments;
+		}
+
+		@Override
+		int eval(Frame frame) {
+			Object l = link.eval(frame);
+			Callable callable = target.get(l);
+			return callable.body.eval(arguments.activation(frame, l, callable));
+		}
+	}
+
+	private static final class CallRef extends RefCode {
+		final RefCode link;
+		final Target target;
+		final Arguments arguments;
+		CallRef(RefCode link, Target target, Arguments arguments) {
+			this.link = link;
+			this.target = target;
+			this.arguments = arguments;
+		}
+
+		@Override
+		Object eval(Frame frame) {
+			Object l = link.eval(frame);
+			Callable callable = target.get(l);
+			return callable.refBody.eval(arguments.activation(frame, l, callable));
+		}
+	}
+
+	private static final class New extends RefCode {
+		final Layout layout;
+		final IntCode[] ints;
+		final RefCode[] refs;
+		New(Layout layout, IntCode[] ints, RefCode[] refs) { this.layout = layout; this.ints = ints; this.refs = refs; }
+
+		@Override
+		Object eval(Frame frame) {
+			Instance object = new Instance(layout);
+			boolean[] references = layout.slots.references;
+			int[] index = layout.slots.index;
+			for (int k = 0; k < references.length; k++)
+				if (references[k]) object.refs[index[k]] = refs[k].eval(frame);
+				else object.ints[index[k]] = ints[k].eval(frame);
+			return object;
+		}
+	}
+}
@@ -3,216 +3,568 @@ package compiler;
 import compiler.AST.*;
 import compiler.lib.*;
 import compiler.exc.*;
-import svm.ExecuteVM;
+import compiler.ssa.*;
+import svm.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static compiler.lib.FOOLlib.*;
+import static svm.Opcode.*;
 
 /*
 * CodeGenerationASTVisitor Class
 * It implements the visitor pattern to generate code by translating the AST into another language
+* The code is emitted as SVM instructions into a CodeEmitter while visiting
 * */
-public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidException> {
+public class CodeGenerationASTVisitor extends BaseASTVisitor<Void, VoidException> {
 
   // dispatchTablesClasses is a list of Dispatch Tables, one for each class
   // Dispatch Table is a list of labels, one for each method of the class
-  private final List<List<String>> dispatchTablesClasses = new ArrayList<>();
+  private final List<List<Label>> dispatchTablesClasses = new ArrayList<>();
+  // addresses of the dispatch tables in the static data, in the same order
+  private final List<Integer> dispatchTableAddresses = new ArrayList<>();
+  // addresses of the objects built at compile time in the static data
+  private final Map<NewNode, Integer> preallocatedObjects = new HashMap<>();
+
+  // emitter receiving the generated code
+  private final CodeEmitter code;
+
+  // optimizer of the SSA form of function, method and main bodies (null to generate them directly from the AST)
+  private final Optimizer optimizer;
+
+  // expression in tail position of the function (or method) body being generated: its value is the result
+  private Node tail;
+  private int tailParameters; // parameters of the function (or method) body being generated
+
+  // function being generated whose recursive calls in the last field of a new object in tail position are
+  // compiled in destination-passing style, with the label of its variant writing the result at a given address
+  private FunNode consFunction;
+  private Label destinationLabel;
+
+  // whether the code marks its sites for the profiler of the virtual machine
+  final boolean profiling;
+  // profile of a previous execution, choosing the layout of the if-then-else (null if none)
+  private final Profile profile;
+
+  CodeGenerationASTVisitor(CodeEmitter code) { this(code, (Optimizer) null); }
+  CodeGenerationASTVisitor(CodeEmitter code, Optimizer optimizer) { this(code, optimizer, false, null); }
+  CodeGenerationASTVisitor(CodeEmitter code, Optimizer optimizer, boolean profiling, Profile profile) {
+	  this.code = code;
+	  this.optimizer = optimizer;
+	  this.profiling = profiling;
+	  this.profile = profile;
+  }
+  CodeGenerationASTVisitor(CodeEmitter code, boolean debug) { super(false,debug); this.code = code; this.optimizer = null; this.profiling = false; this.profile = null; } // enables print for debugging
 
-  CodeGenerationASTVisitor() {}
-  CodeGenerationASTVisitor(boolean debug) { super(false,debug); } // enables print for debugging
+  /*
+   * emit method to append a sequence of instructions to the emitter
+   * Each opcode with an operand is followed by the operand itself (an Integer or a Label)
+   * */
+  private void emit(Object... instructions) {
+	  for (int i = 0; i < instructions.length; i++) {
+		  Opcode opcode = (Opcode) instructions[i];
+		  if (!opcode.hasOperand) code.emit(opcode);
+		  else if (instructions[++i] instanceof Label label) code.emit(opcode, label);
+		  else code.emit(opcode, (Integer) instructions[i]);
+	  }
+  }
+
+  /*
+   * site method to mark the site of the next instruction, at the line of the node, if the code is profiled
+   * */
+  void site(Site.Kind kind, Node n, String name) {
+	  if (profiling) code.site(new Site(kind, n.getLine(), name));
+  }
 
   /*
    * visitNode method to generate code for a ProgLetInNode
    * */
   @Override
-	public String visitNode(ProgLetInNode n) {
+	public Void visitNode(ProgLetInNode n) {
 		if (print) printNode(n);
-		String declCode = null;
-		for (Node dec : n.declist) declCode = nlJoin(declCode,visit(dec));
-		return nlJoin(
-			"push 0",	
-			declCode, // generate code for declarations (allocation)			
-			visit(n.exp), // generate code for the main expression
-			"halt", // terminate the execution
-			getCode()
-		);
+		emit(PUSH, 0);
+		for (Node dec : n.declist) visit(dec); // generate code for declarations (allocation)
+		if (optimizer != null) lower(new SSAGenerationEASTVisitor(this).buildMain(n.declist, n.exp));
+		else visit(n.exp); // generate code for the main expression
+		emit(HALT); // terminate the execution
+		code.emitFunctions();
+		return null;
 	}
 
 	/*
 	 *  visitNode method to generate code for a ProgNode
 	 * */
 	@Override
-	public String visitNode(ProgNode n) {
+	public Void visitNode(ProgNode n) {
 		if (print) printNode(n);
-		return nlJoin(
-			visit(n.exp), // generate code for the main expression
-			"halt" // terminate the execution
-		);
+		if (optimizer != null) lower(new SSAGenerationEASTVisitor(this).buildMain(List.of(), n.exp));
+		else visit(n.exp); // generate code for the main expression
+		emit(HALT); // terminate the execution
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a FunNode
 	 * */
 	@Override
-	public String visitNode(FunNode n) {
+	public Void visitNode(FunNode n) {
 		if (print) printNode(n,n.id);
-		String declCode = null;
-		String popDecl = null;
-		String popParl = null;
-		for (Node dec : n.declist) {
-			declCode = nlJoin(declCode,visit(dec));
-			popDecl = nlJoin(popDecl,"pop");
+		generateFunction(n); // nothing is pushed: calls jump directly to the label of the function
+		return null;
+	}
+
+	/*
+	 * generateFunction method to generate the code of a function, recording its label in its STentry
+	 * The code goes to the function section, so it can also be called while generating another function
+	 * A function returning new objects whose last field is a recursive call (tail recursion modulo cons) is
+	 * generated from the AST, together with its variant in destination-passing style
+	 * */
+	void generateFunction(FunNode n) {
+		Label funl = functionLabel(n.entry);
+		boolean modCons = consCalls(n, n.exp);
+		if (optimizer != null && !modCons) {
+			lower(new SSAGenerationEASTVisitor(this).build(n, funl));
+			return;
 		}
-		for (int i = 0; i < n.parlist.size(); i++) popParl = nlJoin(popParl,"pop");
-		String funl = freshFunLabel();
-		putCode(
-			nlJoin(
-				funl+":",
-				"cfp", // set $fp to $sp value
-				"lra", // load $ra value
-				declCode, // generate code for local declarations (they use the new $fp)
-				visit(n.exp), // generate code for function body expression
-				"stm", // set $tm to popped value (function result)
-				popDecl, // remove local declarations from stack
-				"sra", // set $ra to popped value
-				"pop", // remove Access Link from stack
-				popParl, // remove parameters from stack
-				"sfp", // set $fp to popped value (Control Link)
-				"ltm", // load $tm value (function result)
-				"lra", // load $ra value
-				"js"  // jump to the popped address
-			)
+		FunNode outerFunction = consFunction;
+		Label outerLabel = destinationLabel;
+		consFunction = modCons ? n : null;
+		destinationLabel = modCons ? freshFunLabel() : null;
+		generateFunction(n, funl, false);
+		if (modCons) generateFunction(n, destinationLabel, true);
+		consFunction = outerFunction;
+		destinationLabel = outerLabel;
+	}
+
+	/*
+	 * generateFunction method to generate the code of a function at the given label
+	 * The variant in destination-passing style has an additional parameter, after the others: the address where
+	 * it writes its result (it also returns it); nested functions are generated only once, with the first variant
+	 * */
+	private void generateFunction(FunNode n, Label funl, boolean destination) {
+		int parameters = n.parlist.size() + n.entry.lifted.size() + (destination ? 1 : 0);
+		code.beginFunction();
+		code.label(funl);
+		site(Site.Kind.ENTRY, n, n.id);
+		emit(
+			COPYFP, // set $fp to $sp value
+			LOADRA // load $ra value
+		);
+		Label memo = n.memoized ? freshLabel() : null;
+		if (memo != null) memoLookup(memo, parameters);
+		for (Node dec : n.declist)
+			if (!destination || !(dec instanceof FunNode)) visit(dec); // generate code for local declarations (they use the new $fp)
+		if (destination) destination(n.exp, parameters); // generate code writing the body expression to the destination
+		else if (memo != null) visit(n.exp); // no tail calls: the result is recorded before returning
+		else body(n.exp, parameters); // generate code for function body expression
+		if (memo != null) emit(MEMOPUT, memo); // record the result in the memo table
+		emit(STORETM); // set $tm to popped value (function result)
+		for (int i = 0; i < frameSlots(n.declist); i++) emit(POP); // remove local declarations from stack
+		emit(
+			STORERA, // set $ra to popped value
+			POP // remove Access Link from stack
+		);
+		for (int i = 0; i < parameters; i++) emit(POP); // remove parameters from stack
+		emit(
+			STOREFP, // set $fp to popped value (Control Link)
+			LOADTM, // load $tm value (function result)
+			LOADRA, // load $ra value
+			JS  // jump to the popped address
+		);
+		code.endFunction();
+	}
+
+	/*
+	 * memoLookup method to generate code returning the result of a memoized function, if the memo table of the
+	 * virtual machine has it for the arguments, before the local declarations are pushed
+	 * */
+	private void memoLookup(Label memo, int parameters) {
+		Label miss = freshLabel();
+		code.label(memo);
+		emit(
+			MEMOGET, parameters, // set $tm to the recorded result and push 1 if found, push 0 otherwise
+			PUSH, 0,
+			BRANCHEQ, miss,
+			STORERA, // set $ra to popped value
+			POP // remove Access Link from stack
+		);
+		for (int i = 0; i < parameters; i++) emit(POP); // remove parameters from stack
+		emit(
+			STOREFP, // set $fp to popped value (Control Link)
+			LOADTM, // load $tm value (recorded result)
+			LOADRA, // load $ra value
+			JS  // jump to the popped address
+		);
+		code.label(miss);
+	}
+
+	/*
+	 * consCalls method to check whether an expression in tail position of a function creates an object whose
+	 * last field is a recursive call of the function
+	 * */
+	static boolean consCalls(FunNode f, Node exp) {
+		if (exp instanceof IfNode n) return consCalls(f, n.th) || consCalls(f, n.el);
+		return exp instanceof NewNode n && isRecursiveCall(f, n.arg.isEmpty() ? null : n.arg.get(n.arg.size() - 1));
+	}
+
+	private static boolean isRecursiveCall(FunNode f, Node exp) {
+		return f != null && exp instanceof CallNode call && call.entry == f.entry;
+	}
+
+	/*
+	 * destination method to generate code writing the value of an expression in tail position to the destination
+	 * (the last parameter) and leaving it on the stack
+	 * A new object with a recursive call as last field is written to the destination with the field still empty,
+	 * then the call, made as a tail call, fills the field: the stack does not grow with the list being built
+	 * */
+	private void destination(Node exp, int parameters) {
+		Node outerTail = tail;
+		int outerParameters = tailParameters;
+		tail = null; // the value is written to the destination before returning
+		tailParameters = parameters;
+		if (exp instanceof IfNode n) {
+			Label l1 = freshLabel();
+			Label l2 = freshLabel();
+			branch(n.cond, l1, false, profiling ? new Site(Site.Kind.BRANCH, n.getLine(), n.getColumn(), "else") : null); // jump to l1 if the condition is false
+			destination(n.th, parameters);
+			emit(BRANCH, l2); // jump to l2
+			code.label(l1);
+			destination(n.el, parameters);
+			code.label(l2);
+		} else if (exp instanceof NewNode n && isRecursiveCall(consFunction, n.arg.get(n.arg.size() - 1))) {
+			allocateCons(n); // generate code for the object, with the last field empty
+			emit(STORETM, LOADTM, LOADTM); // duplicate the object pointer
+			emit(LOADFP, PUSH, parameters, ADD, LOADW); // load the destination
+			emit(STOREW); // write the object to the destination
+			emit(PUSH, n.arg.size(), SUB); // address of the last field: the destination of the recursive call
+			destinationCall((CallNode) n.arg.get(n.arg.size() - 1), true);
+		} else if (isRecursiveCall(consFunction, exp)) {
+			emit(LOADFP, PUSH, parameters, ADD, LOADW); // the recursive call writes to the same destination
+			destinationCall((CallNode) exp, true);
+		} else {
+			visit(exp);
+			emit(STORETM, LOADTM, LOADTM); // duplicate the value
+			emit(LOADFP, PUSH, parameters, ADD, LOADW); // load the destination
+			emit(STOREW); // write the value to the destination
+		}
+		tail = outerTail;
+		tailParameters = outerParameters;
+	}
+
+	/*
+	 * destinationCall method to generate a call of the variant in destination-passing style of the function,
+	 * whose destination is on top of the stack (after the Control Link if not a tail call)
+	 * */
+	private void destinationCall(CallNode n, boolean isTail) {
+		for (int i = n.arglist.size() - 1; i >= 0; i--) visit(n.arglist.get(i)); // generate code for arguments in reversed order
+		frame(n.entry, n.nl); // retrieve address of frame containing the function declaration
+		if (isTail) tailCall(n.arglist.size() + 1); // the destination is the last argument
+		site(Site.Kind.CALL, n, n.id);
+		emit(isTail ? BRANCH : CALL, destinationLabel);
+	}
+
+	/*
+	 * allocateCons method to generate code for a new object whose last field is written later
+	 * */
+	private void allocateCons(NewNode n) {
+		for (Node argument : n.arg.subList(0, n.arg.size() - 1)) visit(argument); // generate code for the other arguments
+		emit(PUSH, 0); // the last field is empty
+		allocate(n);
+	}
+
+	/*
+	 * body method to generate code for the body expression of a function (or method) with the given parameters
+	 * The calls in tail position of the body become tail calls
+	 * */
+	private void body(Node exp, int parameters) {
+		Node outerTail = tail;
+		int outerParameters = tailParameters;
+		tail = exp;
+		tailParameters = parameters;
+		visit(exp);
+		tail = outerTail;
+		tailParameters = outerParameters;
+	}
+
+	/*
+	 * tailCall method to replace the frame of the current function with the one of the called function, whose
+	 * arguments and Access Link are on top of the stack
+	 * The Control Link and the return address are kept, so the called function returns directly to the caller
+	 * of the current one, and the stack does not grow with the tail calls
+	 * */
+	private void tailCall(int arguments) {
+		emit(
+			LOADFP, PUSH, -1, ADD, LOADW, // load return address of the current function
+			STORERA, // set $ra to popped value (it is pushed by the called function)
+			LOADFP, PUSH, tailParameters - arguments, ADD, // address of the new Access Link, below the Control Link
+			MOVE, arguments + 1 // move arguments and Access Link over the frame of the current function
 		);
-		return "push " + funl;
+	}
+
+	/*
+	 * frameSlots method to count the declarations taking a slot in the frame: all of them except functions
+	 * */
+	static int frameSlots(List<DecNode> declist) {
+		int slots = 0;
+		for (DecNode dec : declist) if (!(dec instanceof FunNode)) slots++;
+		return slots;
+	}
+
+	/*
+	 * lower method to optimize a function in SSA form and emit its code
+	 * */
+	private void lower(Function function) {
+		optimizer.optimize(function);
+		new Lowering(function, code).lower();
 	}
 
 	/*
 	 * visitNode method to generate code for a VarNode
 	 * */
 	@Override
-	public String visitNode(VarNode n) {
+	public Void visitNode(VarNode n) {
 		if (print) printNode(n,n.id);
-		return visit(n.exp); // generate code for the expression of the variable declaration
+		visit(n.exp); // generate code for the expression of the variable declaration
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a PrintNode
 	 * */
 	@Override
-	public String visitNode(PrintNode n) {
+	public Void visitNode(PrintNode n) {
 		if (print) printNode(n);
-		return nlJoin(
-			visit(n.exp), // generate code for the expression to print
-			"print"
-		);
+		visit(n.exp); // generate code for the expression to print
+		emit(PRINT);
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a IfNode
 	 * */
 	@Override
-	public String visitNode(IfNode n) {
+	public Void visitNode(IfNode n) {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-	 	String l2 = freshLabel();		
-		return nlJoin(
-			visit(n.cond), // generate code for the condition
-			"push 1",
-			"beq " + l1, // jump to l1 if the condition is true
-			visit(n.el), // generate code for the else branch
-			"b " + l2, // jump to l2
-			l1 + ":",
-			visit(n.th), // generate code for then branch
-			l2 + ":"
+		Label l1 = freshLabel();
+	 	Label l2 = freshLabel();
+		boolean isTail = n == tail;
+		// the branch laid out first is followed by a jump over the other one: the one executed more often goes last
+		long[] profiled = profile != null && isSimple(n.cond) ? profile.branch(n) : null;
+		boolean thenLast = profiled != null && profiled[0] - profiled[1] > profiled[1];
+		Node first = thenLast ? n.el : n.th;
+		Node last = thenLast ? n.th : n.el;
+		// jump to l1 if the condition is false (if true when the then branch is last)
+		branch(n.cond, l1, thenLast, profiling ? new Site(Site.Kind.BRANCH, n.getLine(), n.getColumn(), thenLast ? "then" : "else") : null);
+		if (isTail) tail = first; // the branches of an if in tail position are in tail position
+		visit(first); // generate code for the branch laid out first
+		emit(BRANCH, l2); // jump to l2
+		code.label(l1);
+		if (isTail) tail = last;
+		visit(last); // generate code for the other branch
+		code.label(l2);
+		return null;
+	}
+
+	/*
+	 * isSimple method to check whether a condition is compiled as a single conditional branch
+	 * */
+	private static boolean isSimple(Node cond) {
+		if (cond instanceof NotNode not) return isSimple(not.exp);
+		return !(cond instanceof AndNode || cond instanceof OrNode || cond instanceof BoolNode);
+	}
+
+	/*
+	 * branch method to generate code for a condition in a jump context
+	 * Jump to target if the condition evaluates to jumpIf, otherwise continue with the next instruction
+	 * In both cases no value is left on the stack: comparisons branch directly on their operands,
+	 * while &&, || and ! become control flow
+	 * The site, if any, marks the branch of a simple condition (see isSimple) for the profiler
+	 * */
+	private void branch(Node cond, Label target, boolean jumpIf) {
+		branch(cond, target, jumpIf, null);
+	}
+
+	private void branch(Node cond, Label target, boolean jumpIf, Site site) {
+		if (cond instanceof BoolNode b) {
+			if (b.val == jumpIf) emit(BRANCH, target); // the condition is constant
+		} else if (cond instanceof NotNode not) {
+			branch(not.exp, target, !jumpIf, site);
+		} else if (cond instanceof AndNode and) {
+			if (jumpIf) {
+				Label skip = freshLabel();
+				branch(and.left, skip, false); // left false: the condition is false
+				branch(and.right, target, true);
+				code.label(skip);
+			} else {
+				branch(and.left, target, false);
+				branch(and.right, target, false);
+			}
+		} else if (cond instanceof OrNode or) {
+			if (jumpIf) {
+				branch(or.left, target, true);
+				branch(or.right, target, true);
+			} else {
+				Label skip = freshLabel();
+				branch(or.left, skip, true); // left true: the condition is true
+				branch(or.right, target, false);
+				code.label(skip);
+			}
+		} else if (cond instanceof EqualNode eq) {
+			visit(eq.left);
+			visit(eq.right);
+			if (site != null) code.site(site);
+			emit(jumpIf ? BRANCHEQ : BRANCHNOTEQ, target);
+		} else if (cond instanceof LessEqualNode le) {
+			visit(le.left);
+			visit(le.right);
+			if (site != null) code.site(site);
+			emit(jumpIf ? BRANCHLESSEQ : BRANCHGREATER, target);
+		} else if (cond instanceof GreaterEqualNode ge) {
+			visit(ge.left);
+			visit(ge.right);
+			if (site != null) code.site(site);
+			emit(jumpIf ? BRANCHGREATEREQ : BRANCHLESS, target);
+		} else {
+			visit(cond); // generate code for the value of the condition
+			emit(PUSH, 1);
+			if (site != null) code.site(site);
+			emit(jumpIf ? BRANCHEQ : BRANCHNOTEQ, target);
+		}
+	}
+
+	/*
+	 * condition method to generate code for the value (1 or 0) of a condition, through its jump context code
+	 * */
+	private void condition(Node cond) {
+		Label l1 = freshLabel();
+		Label l2 = freshLabel();
+		branch(cond, l1, true); // jump to l1 if the condition is true
+		emit(
+			PUSH, 0,
+			BRANCH, l2 // jump to l2
 		);
+		code.label(l1);
+		emit(PUSH, 1);
+		code.label(l2);
 	}
 
 	/*
 	 * visitNode method to generate code for an EqualNode
 	 * */
 	@Override
-	public String visitNode(EqualNode n) {
+	public Void visitNode(EqualNode n) {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-	 	String l2 = freshLabel();
-		return nlJoin(
-			visit(n.left), // generate code for the left expression
-			visit(n.right), // generate code for the right expression
-			"beq " + l1, // jump to l1 if the values of the two expressions are equal
-			"push 0",
-			"b " + l2, // jump to l2
-			l1 + ":",
-			"push 1",
-			l2 + ":"
-		);
+		condition(n); // the value is 1 if the jump context code jumps, 0 otherwise
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a TimesNode
 	 * */
 	@Override
-	public String visitNode(TimesNode n) {
+	public Void visitNode(TimesNode n) {
 		if (print) printNode(n);
-		return nlJoin(
-			visit(n.left), // generate code for the left expression
-			visit(n.right), // generate code for the right expression
-			"mult" // replace the two values on top of the stack with their product
-		);	
+		visit(n.left); // generate code for the left expression
+		visit(n.right); // generate code for the right expression
+		emit(MULT); // replace the two values on top of the stack with their product
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a PlusNode
 	 * */
 	@Override
-	public String visitNode(PlusNode n) {
+	public Void visitNode(PlusNode n) {
 		if (print) printNode(n);
-		return nlJoin(
-			visit(n.left), // generate code for the left expression
-			visit(n.right), // generate code for the right expression
-			"add" // replace the two values on top of the stack with their sum
-		);
+		visit(n.left); // generate code for the left expression
+		visit(n.right); // generate code for the right expression
+		emit(ADD); // replace the two values on top of the stack with their sum
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for a CallNode
 	 * */
 	@Override
-	public String visitNode(CallNode n) {
+	public Void visitNode(CallNode n) {
 		if (print) printNode(n,n.id);
-		String argCode = null, getAR = null;
-		for (int i = n.arglist.size() - 1; i >= 0; i--) argCode = nlJoin(argCode,visit(n.arglist.get(i)));
-		for (int i = 0; i < n.nl - n.entry.nl; i++) getAR = nlJoin(getAR,"lw");
-		return nlJoin(
-			"lfp", // load Control Link (pointer to frame of function "id" caller)
-			argCode, // generate code for arguments in reversed order
-			"lfp", getAR, // retrieve address of frame containing "id" declaration
-                          // by following the static chain (of Access Links)
-            "stm", // set $tm to popped value (with the aim of duplicating top of stack)
-            "ltm", // load Access Link (pointer to frame of function "id" declaration)
-            "ltm", // duplicate top of stack
-
-			(n.entry.type instanceof MethodTypeNode) ? "lw" : "", // recover address of method in dispatch table to jump
-            "push " + n.entry.offset, "add", // compute address of "id" declaration
-			"lw", // load address of "id" function
-            "js"  // jump to the popped address (saving address of subsequent instruction in $ra)
+		if (accessor(n.target, n.candidate) != null) { // method of the current object returning a field
+			frame(n.entry, n.nl); // retrieve the current object
+			fieldLoad(n, n.id, n.target, n.candidate, n.entry.offset);
+			return null;
+		}
+		// a function declared in the current one needs its frame as Access Link, so it cannot replace it
+		boolean isTail = n == tail && n.nl > n.entry.nl;
+		if (!isTail) emit(LOADFP); // load Control Link (pointer to frame of function "id" caller)
+		for (int i = n.arglist.size() - 1; i >= 0; i--) visit(n.arglist.get(i)); // generate code for arguments in reversed order
+		frame(n.entry, n.nl); // retrieve address of frame containing "id" declaration
+		if (isTail) tailCall(n.arglist.size()); // reuse the frame of the current function
+		if (n.entry.type instanceof ArrowTypeNode || n.target != null) { // the function is known: jump directly to its label
+			Label label = n.target != null ? methodLabel(n.target) : functionLabel(n.entry);
+			site(Site.Kind.CALL, n, n.id);
+			if (isTail) emit(BRANCH, label); // jump to the label (the called function returns to our caller)
+			else emit(CALL, label); // jump to the label (saving address of subsequent instruction in $ra)
+			return null;
+		}
+		emit(
+			STORETM, // set $tm to popped value (with the aim of duplicating top of stack)
+			LOADTM, // load Access Link (pointer to frame of function "id" declaration)
+			LOADTM // duplicate top of stack
 		);
+		if (n.entry.type instanceof MethodTypeNode) {
+			site(Site.Kind.DISPATCH, n, n.id);
+			emit(LOADW); // recover address of method in dispatch table to jump
+		}
+		emit(
+			PUSH, n.entry.offset, ADD, // compute address of "id" declaration
+			LOADW // load address of "id" function
+		);
+		site(Site.Kind.CALL, n, n.id);
+		emit(isTail ? JUMP : JS); // jump to the popped address (saving address of subsequent instruction in $ra if not a tail call)
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for IdNode
 	 * */
 	@Override
-	public String visitNode(IdNode n) {
+	public Void visitNode(IdNode n) {
 		if (print) printNode(n,n.id);
-		String getAR = null;
-		for (int i = 0; i < n.nestingLevel - n.entry.nl; i++) getAR = nlJoin(getAR,"lw");
-		return nlJoin(
-			"lfp", getAR, // retrieve address of frame containing "id" declaration
-			             		 // by following the static chain (of Access Links)
-			"push " + n.entry.offset, "add", // compute address of "id" declaration
-			"lw" // load value of "id" variable
+		load(n.entry, n.nestingLevel); // load value of "id" variable
+		return null;
+	}
+
+	/*
+	 * frame method to push the address of the frame containing a declaration
+	 * The frame of global declarations is always at the top of the memory, whose address the virtual machine
+	 * provides (the size of the memory is set when it runs), otherwise it is reached by following the static chain
+	 * (of Access Links) from the current frame
+	 * */
+	private void frame(STentry entry, int nestingLevel) {
+		if (entry.nl == 0) {
+			emit(LOADGP);
+			return;
+		}
+		emit(LOADFP);
+		for (int i = 0; i < nestingLevel - entry.nl; i++) emit(LOADW);
+	}
+
+	/*
+	 * load method to push the value of a declaration
+	 * Global declarations are loaded from their offset in the global frame, without walking the static chain
+	 * */
+	private void load(STentry entry, int nestingLevel) {
+		if (entry.nl == 0) {
+			emit(LOADWG, entry.offset);
+			return;
+		}
+		frame(entry, nestingLevel); // retrieve address of frame containing the declaration
+		emit(
+			PUSH, entry.offset, ADD, // compute address of the declaration
+			LOADW // load its value
 		);
 	}
 
@@ -220,18 +572,20 @@ public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidExcepti
 	 * visitNode method to generate code for BoolNode
 	 * */
 	@Override
-	public String visitNode(BoolNode n) {
+	public Void visitNode(BoolNode n) {
 		if (print) printNode(n,n.val.toString());
-		return "push " + (n.val ? 1 : 0);
+		emit(PUSH, (n.val ? 1 : 0));
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for IntNode
 	 * */
 	@Override
-	public String visitNode(IntNode n) {
+	public Void visitNode(IntNode n) {
 		if (print) printNode(n,n.val.toString());
-		return "push " + n.val;
+		emit(PUSH, n.val);
+		return null;
 	}
 
 	/*----------------------------------------------OPERATOR EXTENSION------------------------------------------------*/
@@ -240,134 +594,99 @@ public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidExcepti
 	 * visitNode method to generate code for LessEqualNode
 	 * */
 	@Override
-	public String visitNode(LessEqualNode n) throws VoidException {
+	public Void visitNode(LessEqualNode n) throws VoidException {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-		String l2 = freshLabel();
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				visit(n.right), // generate code for the right expression
-				"bleq " + l1, // jump to l1 if the left value is less than or equal to the right value
-				"push 0",
-				"b " + l2, // jump to l2
-				l1 + ":",
-				"push 1",
-				l2 + ":"
-		);
+		condition(n); // the value is 1 if the jump context code jumps, 0 otherwise
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for GreaterEqualNode
 	 * */
 	@Override
-	public String visitNode(GreaterEqualNode n) throws VoidException {
+	public Void visitNode(GreaterEqualNode n) throws VoidException {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-		String l2 = freshLabel();
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				visit(n.right), // generate code for the right expression
-				"push 1",
-				"sub", // pop the two values 1 and right (respectively) and push right-1
-				"bleq " + l1, // jump to l1 if left is less than or equal to the result of the subtraction
-				"push 1",
-				"b " + l2, // jump to l2
-				l1 + ":",
-				"push 0",
-				l2 + ":"
-		);
+		condition(n); // the value is 1 if the jump context code jumps, 0 otherwise
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for OrNode
 	 * */
 	@Override
-	public String visitNode(OrNode n) throws VoidException {
+	public Void visitNode(OrNode n) throws VoidException {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-		String l2 = freshLabel();
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				"push 1",
-				"beq " + l1, // jump to l1 if left is equal to 1
-				visit(n.right), // generate code for the right expression
-				"push 1",
-				"beq " + l1, // jump to l1 if right is equal to 1
-				"push 0",
-				"b " + l2, // jump to l2
-				l1 + ":",
-				"push 1",
-				l2 + ":"
-		);
+		condition(n); // the value is 1 if the jump context code jumps, 0 otherwise
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for AndNode
 	 * */
 	@Override
-	public String visitNode(AndNode n) throws VoidException {
+	public Void visitNode(AndNode n) throws VoidException {
 		if (print) printNode(n);
-		String l1 = freshLabel();
-		String l2 = freshLabel();
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				"push 0",
-				"beq " + l1, // jump to l1 if left is equal to 0
-				visit(n.right), // generate code for the right expression
-				"push 0",
-				"beq " + l1, // jump to l1 if right is equal to 0
-				"push 1",
-				"b " + l2, // jump to l2
-				l1 + ":",
-				"push 0",
-				l2 + ":"
-		);
+		condition(n); // the value is 1 if the jump context code jumps, 0 otherwise
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for DivNode
 	 * */
 	@Override
-	public String visitNode(DivNode n) throws VoidException {
+	public Void visitNode(DivNode n) throws VoidException {
 		if (print) printNode(n);
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				visit(n.right), // generate code for the right expression
-				"div" // pop the two values right and left (respectively) and push left/right
-		);
+		visit(n.left); // generate code for the left expression
+		visit(n.right); // generate code for the right expression
+		emit(DIV); // pop the two values right and left (respectively) and push left/right
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for MinusNode
 	 * */
 	@Override
-	public String visitNode(MinusNode n) throws VoidException {
+	public Void visitNode(MinusNode n) throws VoidException {
 		if (print) printNode(n);
-		return nlJoin(
-				visit(n.left), // generate code for the left expression
-				visit(n.right), // generate code for the right expression
-				"sub"  // pop the two values right and left (respectively) and push left-right
-		);
+		visit(n.left); // generate code for the left expression
+		visit(n.right); // generate code for the right expression
+		emit(SUB); // pop the two values right and left (respectively) and push left-right
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for NotNode
 	 * */
 	@Override
-	public String visitNode(NotNode n) throws VoidException {
+	public Void visitNode(NotNode n) throws VoidException {
 		if (print) printNode(n);
-		final String l1 = freshLabel();
-		final String l2 = freshLabel();
-		return nlJoin(
-				visit(n.exp), // generate code for the expression
-				"push 0",
-				"beq " + l1, // jump to l1 if the value of the expression is equal to 0
-				"push 0",
-				"b " + l2, // jump to l2
-				l1 + ":",
-				"push 1",
-				l2 + ":"
-		);
+		emit(PUSH, 1);
+		visit(n.exp); // generate code for the expression
+		emit(SUB); // !exp is 1-exp for boolean values
+		return null;
+	}
+
+	/*
+	 * visitNode method to generate code for ShiftLeftNode
+	 * */
+	@Override
+	public Void visitNode(ShiftLeftNode n) throws VoidException {
+		if (print) printNode(n);
+		visit(n.exp); // generate code for the expression
+		emit(SHIFTLEFT, n.bits); // multiply the value on top of the stack by 2^bits
+		return null;
+	}
+
+	/*
+	 * visitNode method to generate code for TempNode
+	 * */
+	@Override
+	public Void visitNode(TempNode n) throws VoidException {
+		if (print) printNode(n);
+		visit(n.exp); // generate code for the expression
+		emit(STORETM, LOADTM, LOADTM); // duplicate the value
+		emit(LOADFP, PUSH, n.entry.offset, ADD, STOREW); // write it in the temporary slot of the current frame
+		return null;
 	}
 
 	/*----------------------------------------------CLASS EXTENSION---------------------------------------------------*/
@@ -376,18 +695,18 @@ public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidExcepti
 	 * visitNode method to generate code for ClassNode
 	 * */
 	@Override
-	public String visitNode(ClassNode n) throws VoidException {
+	public Void visitNode(ClassNode n) throws VoidException {
 		if (print) printNode(n);
 
 		// Create the dispatch table of the current class
-		List<String> dispatchTable = new ArrayList<>();
+		List<Label> dispatchTable = new ArrayList<>();
 		// Add the dispatch table of the current class to dispatchTablesClasses
 		dispatchTablesClasses.add(dispatchTable);
 
 		// Check if the superclass exists
 		if (n.superSTentry != null) {
 			// Get the dispatch table of the superclass from the dispatchTablesClasses
-			List<String> superClassDispatchTable = dispatchTablesClasses.get(-n.superSTentry.offset - 2);
+			List<Label> superClassDispatchTable = dispatchTablesClasses.get(-n.superSTentry.offset - 2);
 			// Add all methods of the superclass to the dispatch table of the current class
 			dispatchTable.addAll(superClassDispatchTable);
 		}
@@ -395,141 +714,256 @@ public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidExcepti
 		// Consider the methods of the current class in order of appearance
 		n.methodNodeList.forEach((method) -> {
 			visit(method);
-			if (method.offset < dispatchTable.size()) { // the method belongs to the superclass
-				// Read label and update dispatchTable
-				dispatchTable.add(method.offset, method.label);
-			} else { // the method belongs to the current class
-				// Read label and update dispatchTable
-				dispatchTable.add(method.label);
-			}
+			// Methods removed by dead code elimination leave their offset empty
+			while (dispatchTable.size() <= method.offset) dispatchTable.add(null);
+			// Read label and update dispatchTable (the method may override one of the superclass)
+			dispatchTable.set(method.offset, method.label);
 		});
 
-		String dispatchCode = "";
-		for (final String label : dispatchTable) {
-			dispatchCode = nlJoin(
-					dispatchCode,
-					"push " + label,
-					"lhp", // load $hp value
-					"sw", // store the label of the method in $hp
-					"lhp", // load $hp value
-					"push 1",
-					"add", // increment $hp
-					"shp" // store $hp
-			);
+		// The dispatch table goes to the static data, which the program copies to the heap when it starts
+		int address = code.dataSize();
+		dispatchTableAddresses.add(address);
+		emit(PUSH, address); // push dispatch pointer
+		if (!n.instantiated) return null; // no object points to the dispatch table: it is not written
+		if (profiling) code.dataSite(new Site(Site.Kind.CLASS, n.getLine(), n.id));
+		for (final Label label : dispatchTable) {
+			if (label != null) code.data(label);
+			else code.data(0); // unreachable methods are never dispatched
 		}
-
-		return nlJoin(
-				"lhp",
-				dispatchCode
-		);
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for MethodNode
 	 * */
 	@Override
-	public String visitNode(MethodNode n) throws VoidException {
+	public Void visitNode(MethodNode n) throws VoidException {
 		if (print) printNode(n);
 
-		// Generate a new label for the method address
-        n.label = freshLabel();
+		// Generate a new label for the method address (unless already called directly)
+		methodLabel(n);
 
-		String declCode = null;
-		String popDecl = null;
-		String popParl = null;
-		for (Node dec : n.decList) {
-			declCode = nlJoin(declCode,visit(dec));
-			popDecl = nlJoin(popDecl,"pop");
+		if (optimizer != null) {
+			lower(new SSAGenerationEASTVisitor(this).build(n));
+			return null;
 		}
-		for (int i = 0; i < n.parList.size(); i++) popParl = nlJoin(popParl,"pop");
-		putCode(
-				nlJoin(
-						n.label + ":",
-						"cfp", // set $fp to $sp value
-						"lra", // load $ra value
-						declCode, // generate code for local declarations (they use the new $fp!!!)
-						visit(n.exp), // generate code for function body expression
-						"stm", // set $tm to popped value (function result)
-						popDecl, // remove local declarations from stack
-						"sra", // set $ra to popped value
-						"pop", // remove Access Link from stack
-						popParl, // remove parameters from stack
-						"sfp", // set $fp to popped value (Control Link)
-						"ltm", // load $tm value (function result)
-						"lra", // load $ra value
-						"js"  // jump to the popped address
-				)
+
+		code.beginFunction();
+		code.label(n.label);
+		site(Site.Kind.ENTRY, n, n.id);
+		emit(
+				COPYFP, // set $fp to $sp value
+				LOADRA // load $ra value
+		);
+		for (Node dec : n.decList) visit(dec); // generate code for local declarations (they use the new $fp!!!)
+		body(n.exp, n.parList.size()); // generate code for function body expression
+		emit(STORETM); // set $tm to popped value (function result)
+		for (int i = 0; i < frameSlots(n.decList); i++) emit(POP); // remove local declarations from stack
+		emit(
+				STORERA, // set $ra to popped value
+				POP // remove Access Link from stack
 		);
+		for (int i = 0; i < n.parList.size(); i++) emit(POP); // remove parameters from stack
+		emit(
+				STOREFP, // set $fp to popped value (Control Link)
+				LOADTM, // load $tm value (function result)
+				LOADRA, // load $ra value
+				JS  // jump to the popped address
+		);
+		code.endFunction();
 		return null;
 	}
 
+	/*
+	 * methodLabel method to get the label of a method, generating it at the first request: a method can be called
+	 * directly before its code is generated
+	 * */
+	Label methodLabel(MethodNode n) {
+		if (n.label == null) n.label = freshLabel();
+		return n.label;
+	}
+
+	/*
+	 * functionLabel method to get the label of a function, generating it at the first request: a specialization
+	 * of a function is declared before it and can call it
+	 * */
+	Label functionLabel(STentry entry) {
+		if (entry.label == null) entry.label = freshFunLabel();
+		return entry.label;
+	}
+
+	/*
+	 * accessor method to get the field returned by the method a call reaches, or by its candidate, if it is an
+	 * accessor (null otherwise)
+	 * */
+	private static STentry accessor(MethodNode target, MethodNode candidate) {
+		return DevirtualizationEASTVisitor.accessedField(target != null ? target : candidate);
+	}
+
+	/*
+	 * fieldLoad method to generate code for a call of an accessor (without arguments) on the object on top of the
+	 * stack, loading the field directly from the object
+	 * Without a target, the field is loaded only if the dispatch table of the object holds the candidate at the
+	 * offset of the method, otherwise the method is called
+	 * */
+	private void fieldLoad(Node n, String method, MethodNode target, MethodNode candidate, int methodOffset) {
+		STentry field = accessor(target, candidate);
+		if (target != null) {
+			emit(PUSH, field.offset, ADD, LOADW); // load the field from the object
+			return;
+		}
+		Label call = freshLabel();
+		Label end = freshLabel();
+		emit(STORETM, LOADTM, LOADTM); // duplicate the object pointer
+		site(Site.Kind.DISPATCH, n, method);
+		emit(
+				LOADW, // load dispatch table address
+				PUSH, methodOffset, ADD, // compute address of the method
+				LOADW, // load address of the method
+				PUSH, methodLabel(candidate),
+				BRANCHNOTEQ, call, // the object overrides the candidate
+				PUSH, field.offset, ADD, LOADW, // load the field from the object
+				BRANCH, end
+		);
+		code.label(call);
+		emit(
+				STORETM, // set $tm to popped value (object pointer)
+				LOADFP, // load Control Link
+				LOADTM, // load Access Link (object pointer)
+				LOADTM, // duplicate top of stack
+				LOADW, // load dispatch table address
+				PUSH, methodOffset, ADD, // compute address of the method
+				LOADW // load address of the method
+		);
+		site(Site.Kind.CALL, n, method);
+		emit(JS); // jump to the popped address (saving address of subsequent instruction in $ra)
+		code.label(end);
+	}
+
 	/*
 	 * visitNode method to generate code for ClassCallNode
 	 * */
 	@Override
-	public String visitNode(ClassCallNode n) throws VoidException {
+	public Void visitNode(ClassCallNode n) throws VoidException {
 		if (print) printNode(n,n.id);
-		String argCode = null;
-		String getAR = null;
-		for (int i = n.arg.size() -1 ; i >= 0; i--) argCode = nlJoin(argCode, visit(n.arg.get(i)));
-		for (int i = 0; i < n.nestingLevel - n.entry.nl; i++) getAR = nlJoin(getAR,"lw");
-		return nlJoin(
-				"lfp", // load Control Link (pointer to frame of function "id" caller)
-				argCode, // generate code for arguments in reversed order
-				"lfp", getAR, // retrieve address of frame containing "id" declaration
-							  // by following the static chain (of Access Links)
-				"push " + n.entry.offset, "add", // compute address of "id" class declaration
-				"lw", // load address of "id" class
-				"stm", // set $tm to popped value (with the aim of duplicating top of stack)
-				"ltm", // load Access Link (pointer to frame of function "id" declaration)
-				"ltm", // duplicate top of stack
-				"lw", // load dispatch table address
-				"push " + n.methodEntry.offset, "add", // compute address of "id" method declaration
-				"lw", // load address of "id" method
-				"js"  // jump to the popped address (saving address of subsequent instruction in $ra)
+		if (accessor(n.target, n.candidate) != null) { // method returning a field
+			load(n.entry, n.nestingLevel); // load address of "id" object
+			fieldLoad(n, n.methodId, n.target, n.candidate, n.methodEntry.offset);
+			return null;
+		}
+		boolean isTail = n == tail;
+		if (!isTail) emit(LOADFP); // load Control Link (pointer to frame of function "id" caller)
+		for (int i = n.arg.size() -1 ; i >= 0; i--) visit(n.arg.get(i)); // generate code for arguments in reversed order
+		load(n.entry, n.nestingLevel); // load address of "id" object
+		if (isTail) tailCall(n.arg.size()); // reuse the frame of the current function
+		if (n.target != null) { // the method is known: jump directly to its label
+			site(Site.Kind.CALL, n, n.methodId);
+			emit(isTail ? BRANCH : CALL, methodLabel(n.target));
+			return null;
+		}
+		emit(
+				STORETM, // set $tm to popped value (with the aim of duplicating top of stack)
+				LOADTM, // load Access Link (pointer to frame of function "id" declaration)
+				LOADTM // duplicate top of stack
+		);
+		site(Site.Kind.DISPATCH, n, n.methodId);
+		emit(
+				LOADW, // load dispatch table address
+				PUSH, n.methodEntry.offset, ADD, // compute address of "id" method declaration
+				LOADW // load address of "id" method
 		);
+		site(Site.Kind.CALL, n, n.methodId);
+		emit(isTail ? JUMP : JS); // jump to the popped address (saving address of subsequent instruction in $ra if not a tail call)
+		return null;
 	}
 
 	/*
 	 * visitNode method to generate code for NewNode
 	 * */
 	@Override
-	public String visitNode(NewNode n) throws VoidException {
+	public Void visitNode(NewNode n) throws VoidException {
 		if (print) printNode(n);
-		String argumentsCode = "";
-		for (Node argument : n.arg) { // consider the arguments in order of appearance
-			argumentsCode = nlJoin(argumentsCode,visit(argument));
+		if (n == tail && isRecursiveCall(consFunction, n.arg.isEmpty() ? null : n.arg.get(n.arg.size() - 1))) {
+			allocateCons(n); // generate code for the object, with the last field empty
+			emit(
+					STORETM, // set $tm to popped value (object pointer, left on the stack as result)
+					LOADTM,
+					LOADFP, // load Control Link
+					LOADTM, PUSH, n.arg.size(), SUB // address of the last field: the destination of the recursive call
+			);
+			destinationCall((CallNode) n.arg.get(n.arg.size() - 1), false);
+			emit(POP); // remove the value written to the destination
+			return null;
 		}
-		String heapCode = "";
-		for (Node argument : n.arg) {
-			heapCode = nlJoin(
-					heapCode,
-					// Load argument on the heap
-					"lhp", // load $hp
-					"sw", // store argument in the heap
-					"lhp", // load $hp
-					"push 1",
-					"add", // increment $hp
-					"shp" // store $hp
+		if (n.preallocated) { // the object is in the static data
+			emit(PUSH, preallocate(n));
+			return null;
+		}
+		for (Node argument : n.arg) visit(argument); // generate code for arguments, in order of appearance
+		if (n.frame != null) { // the object does not escape: it is written in its slots of the frame
+			for (int i = n.arg.size() - 1; i >= 0; i--)
+				emit(LOADFP, PUSH, n.frame.offset - 1 - i, ADD, STOREW); // store the argument in the field slot
+			emit(
+					LOADWG, n.entry.offset, // load dispatch pointer
+					LOADFP, PUSH, n.frame.offset, ADD,
+					STOREW, // store dispatch pointer in its slot
+					LOADFP, PUSH, n.frame.offset, ADD // push object pointer
 			);
+			return null;
 		}
+		allocate(n);
+		return null;
+	}
 
-		return nlJoin(
-				argumentsCode, // generate code for arguments
-				heapCode, // move arguments on the heap
+	/*
+	 * preallocate method to write an object with constant fields to the static data, with the same layout as on
+	 * the heap (the fields in reversed order, then the dispatch pointer), returning its address
+	 * An object is written once, even when it is the field of several objects
+	 * */
+	int preallocate(NewNode n) {
+		Integer address = preallocatedObjects.get(n);
+		if (address != null) return address;
+		int[] fields = new int[n.arg.size()];
+		for (int i = 0; i < fields.length; i++) {
+			Node argument = n.arg.get(i);
+			if (argument instanceof IntNode c) fields[i] = c.val;
+			else if (argument instanceof BoolNode c) fields[i] = c.val ? 1 : 0;
+			else if (argument instanceof EmptyNode) fields[i] = -1;
+			else fields[i] = preallocate((NewNode) argument); // the fields are written before the object
+		}
+		for (int i = fields.length - 1; i >= 0; i--) code.data(fields[i]);
+		address = code.data(dispatchTableAddresses.get(-n.entry.offset - 2)); // dispatch pointer
+		preallocatedObjects.put(n, address);
+		return address;
+	}
 
-				"push " + (ExecuteVM.MEMSIZE + n.entry.offset), // push dispatch pointer on the stack
-				"lw", // load dispatch pointer
-				"lhp", // load $hp
-				"sw", // store dispatch pointer in the heap
+	/*
+	 * allocate method to move the arguments on top of the stack to a new object on the heap, pushing its address
+	 * */
+	private void allocate(NewNode n) {
+		for (int i = 0; i < n.arg.size(); i++) { // move arguments on the heap
+			emit(
+					// Load argument on the heap
+					LOADHP, // load $hp
+					STOREW, // store argument in the heap
+					LOADHP, // load $hp
+					PUSH, 1,
+					ADD, // increment $hp
+					STOREHP // store $hp
+			);
+		}
+		emit(
+				LOADWG, n.entry.offset, // load dispatch pointer
+				LOADHP, // load $hp
+				STOREW, // store dispatch pointer in the heap
 
-				"lhp", // push dispatch pointer on the stack
+				LOADHP, // push dispatch pointer on the stack
 
 				// Update $hp = $hp + 1
-				"lhp", // duplicate top of stack
-				"push 1",
-				"add", // add 1 to $hp
-				"shp" // store $hp
+				LOADHP, // duplicate top of stack
+				PUSH, 1,
+				ADD, // add 1 to $hp
+				STOREHP // store $hp
 		);
 	}
 
@@ -537,8 +971,9 @@ public class CodeGenerationASTVisitor extends BaseASTVisitor<String, VoidExcepti
 	 * visitNode method to generate code for EmptyNode
 	 * */
 	@Override
-	public String visitNode(EmptyNode n) throws VoidException {
+	public Void visitNode(EmptyNode n) throws VoidException {
 		if (print) printNode(n);
-		return "push -1";
+		emit(PUSH, -1);
+		return null;
 	}
-}
\ No newline at end of file
+}
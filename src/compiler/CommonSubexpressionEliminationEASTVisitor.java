@@ -0,0 +1,386 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* CommonSubexpressionEliminationEASTVisitor Class
+* It implements the visitor pattern to evaluate only once the pure calls (of functions and methods, see
+* PurityEASTVisitor) which are repeated with the same arguments in the body of a function or method
+* The first evaluation writes its value in a temporary slot of the frame (a new declaration after the local ones)
+* and the repeated ones, which are evaluated after it on every path, load the value from the slot
+* The body is visited twice in the order of evaluation of the generated code (arguments of calls in reversed order):
+* the first visit counts the repeated evaluations of each call, the second one replaces them
+* Each visitNode method returns the node replacing the visited one (the node itself if nothing changes), which its
+* parent stores in place of it
+* The main program is left unchanged, and so are the calls of accessors already replaced by field loads
+* */
+public class CommonSubexpressionEliminationEASTVisitor extends BaseEASTVisitor<Node, VoidException> {
+
+	int eliminatedExpressions = 0; // number of evaluations replaced by a load of a temporary
+	int temporaries = 0; // number of temporary slots added to the frames
+
+	private final PurityEASTVisitor purity;
+
+	/*
+	 * A call evaluated in the body, which may be reused where its evaluation region encloses the current one
+	 * */
+	private static class Definition {
+		final List<Integer> regions;
+		int uses = 0;
+		VarNode temporary; // declaration of the slot holding the value (second visit, if it has uses)
+
+		Definition(List<Integer> regions) {
+			this.regions = regions;
+		}
+	}
+
+	private boolean rewrite; // false during the first visit of a body, true during the second one
+	private final List<Integer> regions = new ArrayList<>(); // conditionally evaluated regions enclosing the node
+	private int lastRegion;
+	private final Map<String, List<Definition>> available = new HashMap<>();
+	private List<Definition> definitions; // definitions of the body, in the order of the first visit
+	private int nextDefinition; // index in definitions of the next definition found by the second visit
+	private List<VarNode> declarations; // temporary declarations of the body
+	private int frameSlots; // frame slots of the local declarations of the body
+
+	private final Map<STentry, Integer> functionIds = new HashMap<>(); // numbers identifying the functions in keys
+
+	CommonSubexpressionEliminationEASTVisitor(PurityEASTVisitor purity) { this.purity = purity; }
+	CommonSubexpressionEliminationEASTVisitor(PurityEASTVisitor purity, boolean debug) { // enables print for debugging
+		super(false, debug);
+		this.purity = purity;
+	}
+
+	/*
+	 * Eliminate the repeated calls of a body expression, adding the temporaries to the given declarations
+	 * */
+	private Node body(List<DecNode> declist, Node exp, List<DecNode> extended) {
+		definitions = new ArrayList<>();
+		declarations = new ArrayList<>();
+		frameSlots = CodeGenerationASTVisitor.frameSlots(declist);
+		for (boolean second : new boolean[] {false, true}) {
+			rewrite = second;
+			regions.clear();
+			lastRegion = 0; // both visits number the regions in the same way
+			available.clear();
+			nextDefinition = 0;
+			exp = visit(exp);
+		}
+		extended.addAll(declist);
+		extended.addAll(declarations);
+		return exp;
+	}
+
+	/*
+	 * Key identifying the value of a pure expression (null if it cannot be compared): variables are identified by
+	 * their frame and offset, which FOOL never updates
+	 * */
+	private String key(Node n) {
+		if (n instanceof IntNode i) return i.val.toString();
+		if (n instanceof BoolNode b) return b.val.toString();
+		if (n instanceof EmptyNode) return "null";
+		if (n instanceof IdNode id) return "$" + id.entry.nl + ":" + id.entry.offset;
+		StringBuilder key = new StringBuilder();
+		List<Node> operands;
+		if (n instanceof CallNode call) {
+			key.append(call.entry.type instanceof MethodTypeNode ? "." + call.entry.offset
+					: "f" + functionIds.computeIfAbsent(call.entry, e -> functionIds.size()));
+			operands = call.arglist;
+		} else if (n instanceof ClassCallNode call) {
+			key.append("$").append(call.entry.nl).append(":").append(call.entry.offset)
+					.append(".").append(call.methodEntry.offset);
+			operands = call.arg;
+		} else {
+			key.append(n.getClass().getSimpleName());
+			if (n instanceof ShiftLeftNode shift) key.append(shift.bits);
+			operands = AlgebraicSimplificationEASTVisitor.operands(n);
+			if (operands == null) return null;
+		}
+		key.append("(");
+		for (Node operand : operands) {
+			String operandKey = key(operand);
+			if (operandKey == null) return null;
+			key.append(operandKey).append(",");
+		}
+		return key.append(")").toString();
+	}
+
+	/*
+	 * Key of a call which is worth evaluating once (null for the other ones)
+	 * */
+	private String candidate(Node call, MethodNode target, TypeNode type) {
+		if (type instanceof ArrowTypeNode) return null; // functional values take two slots
+		if (DevirtualizationEASTVisitor.accessedField(target) != null) return null; // already a field load
+		return purity.isPure(call) ? key(call) : null;
+	}
+
+	/*
+	 * Earlier evaluation of a call reaching the current node on every path (null if there is none)
+	 * */
+	private Definition available(String key) {
+		for (Definition definition : available.getOrDefault(key, List.of()))
+			if (definition.regions.size() <= regions.size()
+					&& definition.regions.equals(regions.subList(0, definition.regions.size()))) return definition;
+		return null;
+	}
+
+	private Node use(Definition definition, Node n, int nestingLevel) {
+		if (!rewrite) {
+			definition.uses++;
+			return n;
+		}
+		eliminatedExpressions++;
+		IdNode id = new IdNode(definition.temporary.id);
+		id.entry = definition.temporary.entry;
+		id.nestingLevel = nestingLevel;
+		id.setLine(n.getLine());
+		return id;
+	}
+
+	private Node define(String key, Node n, TypeNode type, int nestingLevel) {
+		Definition definition = rewrite ? definitions.get(nextDefinition++) : new Definition(new ArrayList<>(regions));
+		if (!rewrite) definitions.add(definition);
+		available.computeIfAbsent(key, k -> new ArrayList<>()).add(definition);
+		if (!rewrite || definition.uses == 0) return n;
+		VarNode declaration = new VarNode("$t" + declarations.size(), type, new IntNode(0)); // slot reserved at entry
+		declaration.entry = new STentry(nestingLevel, type, -2 - frameSlots - declarations.size());
+		declaration.setLine(n.getLine());
+		declarations.add(declaration);
+		definition.temporary = declaration;
+		temporaries++;
+		TempNode temp = new TempNode(n, declaration.entry);
+		temp.setLine(n.getLine());
+		return temp;
+	}
+
+	/*
+	 * Visit a subexpression which is evaluated only under a condition
+	 * */
+	private Node region(Node n) {
+		regions.add(++lastRegion);
+		Node visited = visit(n);
+		regions.remove(regions.size() - 1);
+		return visited;
+	}
+
+	/*
+	 * Visit the arguments of a call in reversed order, as they are evaluated
+	 * */
+	private List<Node> visitArguments(List<Node> arguments) {
+		Node[] visited = new Node[arguments.size()];
+		for (int i = arguments.size() - 1; i >= 0; i--) visited[i] = visit(arguments.get(i));
+		return List.of(visited);
+	}
+
+	private static TypeNode returnType(TypeNode type) {
+		return type instanceof MethodTypeNode m ? m.fun.ret : ((ArrowTypeNode) type).ret;
+	}
+
+	@Override
+	public Node visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		return n; // the main expression uses the global frame, without temporaries
+	}
+
+	@Override
+	public Node visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return n; // no functions
+	}
+
+	@Override
+	public Node visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.declist) if (dec instanceof FunNode) visit(dec);
+		List<DecNode> declist = new ArrayList<>();
+		n.exp = body(n.declist, n.exp, declist);
+		n.declist = Collections.unmodifiableList(declist);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PrintNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IfNode n) {
+		if (print) printNode(n);
+		n.cond = visit(n.cond);
+		n.th = region(n.th);
+		n.el = region(n.el);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(TimesNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PlusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		String key = candidate(n, n.target, returnType(n.entry.type));
+		Definition definition = key != null ? available(key) : null;
+		if (definition != null) return use(definition, n, n.nl);
+		n.arglist = visitArguments(n.arglist);
+		return key != null ? define(key, n, returnType(n.entry.type), n.nl) : n;
+	}
+
+	@Override
+	public Node visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	/*
+	 * The right operand of || and && is evaluated only under a condition
+	 * */
+	@Override
+	public Node visitNode(OrNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = region(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(AndNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = region(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(DivNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MinusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NotNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		for (MethodNode method : n.methodNodeList) visit(method);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.decList) if (dec instanceof FunNode) visit(dec);
+		List<DecNode> decList = new ArrayList<>();
+		n.exp = body(n.decList, n.exp, decList);
+		n.decList = Collections.unmodifiableList(decList);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		String key = candidate(n, n.target, returnType(n.methodEntry.type));
+		Definition definition = key != null ? available(key) : null;
+		if (definition != null) return use(definition, n, n.nestingLevel);
+		n.arg = visitArguments(n.arg);
+		return key != null ? define(key, n, returnType(n.methodEntry.type), n.nestingLevel) : n;
+	}
+
+	@Override
+	public Node visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		List<Node> arguments = new ArrayList<>();
+		for (Node argument : n.arg) arguments.add(visit(argument));
+		n.arg = Collections.unmodifiableList(arguments);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return n;
+	}
+}
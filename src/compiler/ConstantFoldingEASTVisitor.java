@@ -0,0 +1,288 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* ConstantFoldingEASTVisitor Class
+* It implements the visitor pattern to evaluate at compile time the expressions of the enriched AST whose operands
+* are constants, after type checking
+* Each visitNode method returns the node replacing the visited one (the node itself if nothing changes), which its
+* parent stores in place of it
+* Variables initialized with a constant are replaced by the constant at each use: FOOL never updates them, and the
+* declaration is kept so that the offsets of the other declarations do not change
+* A division by zero is not folded, so it is still an error at runtime
+* Booleans are treated as the integers 0 and 1, like in the generated code (bool is a subtype of int)
+* */
+public class ConstantFoldingEASTVisitor extends BaseEASTVisitor<Node, VoidException> {
+
+	int foldedExpressions = 0; // number of expressions (and uses of variables) replaced by a constant
+	int prunedBranches = 0; // number of if-then-else with a constant condition
+
+	private final Map<STentry, Node> constants = new HashMap<>(); // variables initialized with a constant
+
+	ConstantFoldingEASTVisitor() {}
+	ConstantFoldingEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	private static boolean isConstant(Node n) {
+		return n instanceof IntNode || n instanceof BoolNode || n instanceof EmptyNode;
+	}
+
+	private static boolean isNumber(Node n) {
+		return n instanceof IntNode || n instanceof BoolNode;
+	}
+
+	private static int value(Node n) {
+		return n instanceof IntNode i ? i.val : ((BoolNode) n).val ? 1 : 0;
+	}
+
+	/*
+	 * Copy of a constant, with the line of the node it replaces
+	 * */
+	private Node constant(Node c, Node replaced) {
+		Node constant = c instanceof IntNode i ? new IntNode(i.val) : c instanceof BoolNode b ? new BoolNode(b.val) : new EmptyNode();
+		constant.setLine(replaced.getLine());
+		foldedExpressions++;
+		return constant;
+	}
+
+	private Node integer(int value, Node replaced) {
+		return constant(new IntNode(value), replaced);
+	}
+
+	private Node bool(boolean value, Node replaced) {
+		return constant(new BoolNode(value), replaced);
+	}
+
+	private List<Node> visitList(List<Node> nodes) {
+		List<Node> visited = new ArrayList<>();
+		for (Node node : nodes) visited.add(visit(node));
+		return Collections.unmodifiableList(visited);
+	}
+
+	@Override
+	public Node visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ProgNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	/*
+	 * A variable whose value is a constant is recorded, to replace its uses
+	 * */
+	@Override
+	public Node visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		n.exp = visit(n.exp);
+		if (isConstant(n.exp)) constants.put(n.entry, n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PrintNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	/*
+	 * An if-then-else with a constant condition is replaced by the branch it takes
+	 * */
+	@Override
+	public Node visitNode(IfNode n) {
+		if (print) printNode(n);
+		n.cond = visit(n.cond);
+		n.th = visit(n.th);
+		n.el = visit(n.el);
+		if (!(n.cond instanceof BoolNode b)) return n;
+		prunedBranches++;
+		return b.val ? n.th : n.el;
+	}
+
+	@Override
+	public Node visitNode(EqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return bool(value(n.left) == value(n.right), n);
+		if (n.left instanceof EmptyNode && n.right instanceof EmptyNode) return bool(true, n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(TimesNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return integer(value(n.left) * value(n.right), n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PlusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return integer(value(n.left) + value(n.right), n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		n.arglist = visitList(n.arglist);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		Node constant = constants.get(n.entry);
+		return constant != null ? constant(constant, n) : n;
+	}
+
+	@Override
+	public Node visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return bool(value(n.left) <= value(n.right), n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return bool(value(n.left) >= value(n.right), n);
+		return n;
+	}
+
+	/*
+	 * || evaluates its right operand only if the left one is false
+	 * */
+	@Override
+	public Node visitNode(OrNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (!(n.left instanceof BoolNode b)) return n;
+		foldedExpressions++;
+		return b.val ? n.left : n.right;
+	}
+
+	/*
+	 * && evaluates its right operand only if the left one is true
+	 * */
+	@Override
+	public Node visitNode(AndNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (!(n.left instanceof BoolNode b)) return n;
+		foldedExpressions++;
+		return b.val ? n.right : n.left;
+	}
+
+	@Override
+	public Node visitNode(DivNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right) && value(n.right) != 0)
+			return integer(value(n.left) / value(n.right), n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MinusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		if (isNumber(n.left) && isNumber(n.right)) return integer(value(n.left) - value(n.right), n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NotNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		if (n.exp instanceof BoolNode b) return bool(!b.val, n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		if (isNumber(n.exp)) return integer(value(n.exp) << n.bits, n);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		for (MethodNode method : n.methodNodeList) visit(method);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.decList) visit(dec);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return n;
+	}
+}
@@ -0,0 +1,409 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* DeadCodeEliminationEASTVisitor Class
+* It implements the visitor pattern to remove from the enriched AST, before code generation, the declarations the
+* execution of the program cannot reach, starting from the main expression
+* Each visitNode method marks what the code of an expression reaches: the functions it calls, the classes it
+* instantiates, the variables it reads and, for each method call, the offset of the method in the dispatch tables
+* of the static class of the object and of its subclasses; the bodies of the functions and methods marked are
+* visited until nothing new is marked
+* A method call reaches the method at its offset in each instantiated class it can dispatch to; a call which is
+* inlined reaches what the body of the callee reaches instead of the callee, and a call of an accessor compiled as
+* a field load reaches nothing
+* Then the unreachable functions and methods are removed, the dispatch tables of the classes never instantiated are
+* not built and the initializers of the unused variables are dropped, if they cannot print, call or fail (variables
+* keep their slot, so that the offsets of the other declarations do not change)
+* */
+public class DeadCodeEliminationEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	final List<String> removed = new ArrayList<>(); // description of each removed declaration
+	int removedFunctions = 0;
+	int removedMethods = 0;
+	int removedDispatchTables = 0;
+	int removedInitializers = 0;
+
+	// all the declarations of the program, found before the visit
+	private final Map<STentry, FunNode> functions = new HashMap<>();
+	private final Map<STentry, VarNode> variables = new HashMap<>();
+	private final Map<String, ClassNode> classes = new LinkedHashMap<>();
+	private final Map<DecNode, ClassNode> owners = new HashMap<>(); // class of the methods and of the functions in them
+
+	// what the program reaches
+	private final Set<FunNode> reachedFunctions = new LinkedHashSet<>();
+	private final Set<MethodNode> reachedMethods = new LinkedHashSet<>();
+	private final Set<VarNode> usedVariables = new HashSet<>();
+	private final Set<ClassNode> instantiatedClasses = new HashSet<>();
+	private final Map<ClassNode, Set<Integer>> dispatchedOffsets = new HashMap<>(); // static class of method calls
+
+	private ClassNode currentClass; // class of the body being visited (null outside classes)
+	private boolean inlining; // whether the calls chosen for inlining are inlined in the body being visited
+
+	DeadCodeEliminationEASTVisitor() {}
+	DeadCodeEliminationEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	private void collect(List<? extends DecNode> declist, ClassNode owner) {
+		for (DecNode dec : declist) {
+			if (dec instanceof FunNode f) {
+				functions.put(f.entry, f);
+				owners.put(f, owner);
+				collect(f.declist, owner);
+			} else if (dec instanceof VarNode v) {
+				variables.put(v.entry, v);
+			} else if (dec instanceof ClassNode c) {
+				classes.put(c.id, c);
+				for (MethodNode method : c.methodNodeList) {
+					owners.put(method, c);
+					collect(method.decList, c);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Whether evaluating the initializer of a variable can be skipped when the variable is never read: it
+	 * neither prints nor calls, and its divisions are by constants different from zero (allocating an object
+	 * which is never read has no visible effect)
+	 * */
+	static boolean isRemovable(Node exp) {
+		if (exp instanceof IdNode || exp instanceof IntNode || exp instanceof BoolNode || exp instanceof EmptyNode)
+			return true;
+		if (exp instanceof NewNode n) return n.arg.stream().allMatch(DeadCodeEliminationEASTVisitor::isRemovable);
+		if (exp instanceof DivNode d && (!(d.right instanceof IntNode i) || i.val == 0)) return false;
+		List<Node> operands = AlgebraicSimplificationEASTVisitor.operands(exp);
+		return operands != null && operands.stream().allMatch(DeadCodeEliminationEASTVisitor::isRemovable);
+	}
+
+	private static boolean isConstant(Node exp) {
+		return exp instanceof IntNode || exp instanceof BoolNode || exp instanceof EmptyNode;
+	}
+
+	private boolean isSubclass(ClassNode c, ClassNode superclass) {
+		for (; c != null; c = c.superId == null ? null : classes.get(c.superId))
+			if (c == superclass) return true;
+		return false;
+	}
+
+	/*
+	 * Method at the given offset of the dispatch table of a class: declared in the class or inherited
+	 * */
+	private MethodNode implementation(ClassNode c, int offset) {
+		for (; c != null; c = c.superId == null ? null : classes.get(c.superId))
+			for (MethodNode method : c.methodNodeList)
+				if (method.offset == offset) return method;
+		return null;
+	}
+
+	/*
+	 * Visit the declarations whose initializer is evaluated and the expression of a body
+	 * */
+	private void visitBody(List<? extends DecNode> declist, Node exp, ClassNode owner, boolean inlined) {
+		currentClass = owner;
+		inlining = inlined;
+		for (DecNode dec : declist)
+			if (dec instanceof VarNode v && (usedVariables.contains(v) || !isRemovable(v.exp))) visit(v.exp);
+		if (exp != null) visit(exp);
+	}
+
+	/*
+	 * Mark the method calls through the dispatch table: objects of every instantiated subclass of the static
+	 * class can receive them
+	 * */
+	private void resolveDispatch() {
+		dispatchedOffsets.forEach((c, offsets) -> {
+			for (ClassNode instantiated : instantiatedClasses) {
+				if (!isSubclass(instantiated, c)) continue;
+				for (int offset : offsets) {
+					MethodNode method = implementation(instantiated, offset);
+					if (method != null) reachedMethods.add(method);
+				}
+			}
+		});
+	}
+
+	private int marks() {
+		return reachedFunctions.size() + reachedMethods.size() + usedVariables.size() + instantiatedClasses.size()
+				+ dispatchedOffsets.values().stream().mapToInt(Set::size).sum();
+	}
+
+	/*
+	 * Mark a method call: the method is called directly, or its field is loaded (possibly after a check of the
+	 * dispatch table against the candidate), or the call goes through the dispatch table
+	 * */
+	private void methodCall(ClassNode c, int offset, MethodNode target, MethodNode candidate, DecNode inline) {
+		if (inline != null && inlining) {
+			inlined(inline);
+			return;
+		}
+		if (target != null) {
+			if (DevirtualizationEASTVisitor.accessedField(target) == null) reachedMethods.add(target);
+			return;
+		}
+		if (DevirtualizationEASTVisitor.accessedField(candidate) != null) reachedMethods.add(candidate); // its label is compared
+		if (c != null) dispatchedOffsets.computeIfAbsent(c, k -> new HashSet<>()).add(offset);
+	}
+
+	/*
+	 * Visit the body of a function or method inlined at a call: the calls in it are not inlined again
+	 * */
+	private void inlined(DecNode callee) {
+		ClassNode outerClass = currentClass;
+		if (callee instanceof FunNode f) visitBody(f.declist, f.exp, owners.get(f), false);
+		else visitBody(((MethodNode) callee).decList, ((MethodNode) callee).exp, owners.get(callee), false);
+		currentClass = outerClass;
+		inlining = true;
+	}
+
+	/*
+	 * Remove the unreachable functions from a list of declarations and drop the initializers of the unused
+	 * variables
+	 * */
+	private List<DecNode> prune(List<DecNode> declist, String scope) {
+		List<DecNode> kept = new ArrayList<>();
+		for (DecNode dec : declist) {
+			if (dec instanceof FunNode f) {
+				if (!reachedFunctions.contains(f)) {
+					removed.add("function " + scope + f.id);
+					removedFunctions++;
+					continue;
+				}
+				f.declist = prune(f.declist, scope + f.id + ".");
+			} else if (dec instanceof VarNode v && !usedVariables.contains(v) && !isConstant(v.exp) && isRemovable(v.exp)
+					&& !(v.getType() instanceof ArrowTypeNode)) {
+				removed.add("initializer of var " + scope + v.id);
+				removedInitializers++;
+				IntNode empty = new IntNode(0); // the slot is kept
+				empty.setLine(v.exp.getLine());
+				v.exp = empty;
+			} else if (dec instanceof ClassNode c) {
+				pruneClass(c);
+			}
+			kept.add(dec);
+		}
+		return Collections.unmodifiableList(kept);
+	}
+
+	private void pruneClass(ClassNode c) {
+		List<MethodNode> kept = new ArrayList<>();
+		for (MethodNode method : c.methodNodeList) {
+			if (!reachedMethods.contains(method)) {
+				removed.add("method " + c.id + "." + method.id);
+				removedMethods++;
+				continue;
+			}
+			method.decList = prune(method.decList, c.id + "." + method.id + ".");
+			kept.add(method);
+		}
+		c.methodNodeList = Collections.unmodifiableList(kept);
+		if (!instantiatedClasses.contains(c)) {
+			c.instantiated = false;
+			removed.add("dispatch table of class " + c.id);
+			removedDispatchTables++;
+		}
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		collect(n.declist, null);
+		int marked;
+		do {
+			marked = marks();
+			visitBody(n.declist, null, null, false); // global declarations are generated from the AST
+			visitBody(List.of(), n.exp, null, true);
+			for (FunNode f : new ArrayList<>(reachedFunctions)) // functions in destination-passing style are not inlined into
+				visitBody(f.declist, f.exp, owners.get(f), !CodeGenerationASTVisitor.consCalls(f, f.exp));
+			for (MethodNode method : new ArrayList<>(reachedMethods))
+				visitBody(method.decList, method.exp, owners.get(method), true);
+			resolveDispatch();
+		} while (marks() != marked);
+		n.declist = prune(n.declist, "");
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return null; // no declarations
+	}
+
+	@Override
+	public Void visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IfNode n) {
+		if (print) printNode(n);
+		visit(n.cond);
+		visit(n.th);
+		visit(n.el);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TimesNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PlusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	/*
+	 * A method called by its id, in the body of another method, is called on the object of the current method,
+	 * whose static class is the current class
+	 * */
+	@Override
+	public Void visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arglist) visit(arg);
+		if (n.entry.type instanceof MethodTypeNode) {
+			methodCall(currentClass, n.entry.offset, n.target, n.candidate, n.inline);
+		} else if (n.inline != null && inlining) {
+			inlined(n.inline);
+		} else if (functions.containsKey(n.entry)) {
+			reachedFunctions.add(functions.get(n.entry));
+		}
+		return null;
+	}
+
+	/*
+	 * A variable is used when it is read, a function when it is passed as a value
+	 * */
+	@Override
+	public Void visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		if (variables.containsKey(n.entry)) usedVariables.add(variables.get(n.entry));
+		if (functions.containsKey(n.entry)) reachedFunctions.add(functions.get(n.entry));
+		return null;
+	}
+
+	@Override
+	public Void visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(OrNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(AndNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(DivNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MinusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NotNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TempNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		if (variables.containsKey(n.entry)) usedVariables.add(variables.get(n.entry));
+		ClassNode c = classes.get(((RefTypeNode) n.entry.type).id);
+		methodCall(c, n.methodEntry.offset, n.target, n.candidate, n.inline);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		instantiatedClasses.add(classes.get(n.id));
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return null;
+	}
+}
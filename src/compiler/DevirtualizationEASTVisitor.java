@@ -0,0 +1,322 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* DevirtualizationEASTVisitor Class
+* It implements the visitor pattern to find, with a class hierarchy analysis of the whole program, the method calls
+* whose target does not depend on the dynamic class of the object: all the classes are declared at the beginning
+* of the program, so a method which is not overridden in any subclass of the static class of the object is the
+* only one the call can reach
+* Those calls (on an object or on the object of the current method) get the called method as target, and are
+* compiled as direct calls to its label instead of going through the dispatch table; the other ones get the method
+* of the static class as candidate
+* The calls of accessors (methods just returning a field) with a target or a candidate are compiled as loads of the
+* field from the object, guarded by a check of the dispatch table in the case of a candidate
+* With a profile, the candidate is the method of the class of (almost) all the objects the call was made on, which
+* may differ from the static class
+* */
+public class DevirtualizationEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	int methodCalls = 0; // number of method call sites
+	int devirtualizedCalls = 0; // number of method call sites calling their target directly
+	int accessorCalls = 0; // number of method call sites loading a field instead of calling an accessor
+	int profiledCandidates = 0; // number of candidates chosen from the classes found by the profile
+
+	private static final double RECEIVER_SHARE = 0.9; // calls on objects of the profiled class, at least
+
+	private final Profile profile; // null if none
+
+	private final Map<String, ClassNode> classes = new HashMap<>();
+	private final Map<String, List<ClassNode>> subclasses = new HashMap<>(); // direct subclasses of each class
+
+	private ClassNode currentClass; // class whose methods are being visited (null outside classes)
+
+	DevirtualizationEASTVisitor() { this((Profile) null); }
+	DevirtualizationEASTVisitor(Profile profile) { this.profile = profile; }
+	DevirtualizationEASTVisitor(boolean debug) { super(false, debug); this.profile = null; } // enables print for debugging
+
+	/*
+	 * Method at the given offset of the dispatch table of a class: declared in the class or inherited
+	 * */
+	private MethodNode implementation(ClassNode c, int offset) {
+		for (; c != null; c = c.superId == null ? null : classes.get(c.superId))
+			for (MethodNode method : c.methodNodeList)
+				if (method.offset == offset) return method;
+		return null;
+	}
+
+	/*
+	 * Whether a subclass (direct or not) of a class declares a method at the given offset of the dispatch table
+	 * */
+	private boolean overridden(ClassNode c, int offset) {
+		for (ClassNode subclass : subclasses.getOrDefault(c.id, List.of())) {
+			for (MethodNode method : subclass.methodNodeList)
+				if (method.offset == offset) return true;
+			if (overridden(subclass, offset)) return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Target of a call of the method at the given offset on an object of the given static class, if it is unique
+	 * */
+	private MethodNode target(ClassNode c, int offset) {
+		methodCalls++;
+		if (c == null || overridden(c, offset)) return null;
+		MethodNode method = implementation(c, offset);
+		if (method != null) devirtualizedCalls++;
+		return method;
+	}
+
+	/*
+	 * Method of the static class of the object, or of the class the profile found at the call, for a call whose
+	 * target is not unique
+	 * */
+	private MethodNode candidate(ClassNode c, int offset, MethodNode target, Node call, String method) {
+		if (target != null || c == null) return null;
+		String receiver = profile != null ? profile.receiver(call, method, RECEIVER_SHARE) : null;
+		MethodNode profiled = isSubclass(receiver, c) ? implementation(classes.get(receiver), offset) : null;
+		if (profiled == null) return implementation(c, offset);
+		profiledCandidates++;
+		return profiled;
+	}
+
+	/*
+	 * Whether a class (given by its id) is a subclass, direct or not, of a class or the class itself
+	 * */
+	private boolean isSubclass(String id, ClassNode c) {
+		for (ClassNode sub = id == null ? null : classes.get(id); sub != null; sub = sub.superId == null ? null : classes.get(sub.superId))
+			if (sub == c) return true;
+		return false;
+	}
+
+	private void countAccessor(MethodNode target, MethodNode candidate) {
+		if (accessedField(target != null ? target : candidate) != null) accessorCalls++;
+	}
+
+	/*
+	 * Entry of the field returned by an accessor: a method without parameters and local declarations whose body
+	 * is a field of its class (null if the method is not an accessor)
+	 * */
+	static STentry accessedField(MethodNode method) {
+		if (method == null || !method.parList.isEmpty() || !method.decList.isEmpty()) return null;
+		if (!(method.exp instanceof IdNode id) || id.entry.type instanceof MethodTypeNode) return null;
+		return id.entry.nl == id.nestingLevel - 1 && id.entry.offset < 0 ? id.entry : null; // fields precede the object
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) {
+			if (!(dec instanceof ClassNode c)) continue;
+			classes.put(c.id, c);
+			if (c.superId != null) subclasses.computeIfAbsent(c.superId, k -> new ArrayList<>()).add(c);
+		}
+		for (Node dec : n.declist) visit(dec);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return null; // no classes
+	}
+
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.declist) visit(dec);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IfNode n) {
+		if (print) printNode(n);
+		visit(n.cond);
+		visit(n.th);
+		visit(n.el);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TimesNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PlusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	/*
+	 * A method called by its id, in the body of another method, is called on the object of the current method,
+	 * whose static class is the current class
+	 * */
+	@Override
+	public Void visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arglist) visit(arg);
+		if (n.entry.type instanceof MethodTypeNode) {
+			n.target = target(currentClass, n.entry.offset);
+			n.candidate = candidate(currentClass, n.entry.offset, n.target, n, n.id);
+			countAccessor(n.target, n.candidate);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(OrNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(AndNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(DivNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MinusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NotNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		currentClass = n;
+		for (MethodNode method : n.methodNodeList) visit(method);
+		currentClass = null;
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.decList) visit(dec);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		ClassNode c = classes.get(((RefTypeNode) n.entry.type).id);
+		n.target = target(c, n.methodEntry.offset);
+		n.candidate = candidate(c, n.methodEntry.offset, n.target, n, n.methodId);
+		countAccessor(n.target, n.candidate);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return null;
+	}
+}
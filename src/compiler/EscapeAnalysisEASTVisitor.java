@@ -0,0 +1,454 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* EscapeAnalysisEASTVisitor Class
+* It implements the visitor pattern to find, with an interprocedural escape analysis of the enriched AST, the
+* objects created by a function or method which cannot be reached after its activation ends: FOOL never updates
+* memory, so an object escapes only if it is returned, stored in another object (passed to new) or passed to a
+* parameter which escapes
+* Each visitNode method visits an expression given the sinks its value flows to: the result of the body, the
+* variables and parameters it initializes, a tail call (whose frame replaces the one of the current function); the
+* variables and parameters flowing to an escaping sink escape too, and the bodies are visited until no more of
+* them are found escaping
+* The object of a method call does not escape, since a method cannot refer to it but through its fields
+* The objects which do not escape get slots in the frame of the function creating them, added before its local
+* declarations, instead of being allocated on the heap (which is never reclaimed); those bound to a variable which
+* is never read are not created at all, and the calls of methods on the others are directed to the method of their
+* class, which is known
+* The main program and the bodies chosen for inlining (which have no frame of their own) are left unchanged
+* */
+public class EscapeAnalysisEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	int frameObjects = 0; // number of objects allocated in frames
+	int frameSlots = 0; // number of slots added to the frames for them
+	int removedObjects = 0; // number of objects never read, which are not created
+	int resolvedCalls = 0; // number of method calls on objects in frames directed to their target
+
+	private static final Object RESULT = new Object(); // sink: the result of the body
+	private static final Object TAIL = new Object(); // sink: an argument of a call which may reuse the frame
+	private static final int METHOD_LEVEL = 2; // nesting level of the declarations of methods (classes are at level 1)
+
+	/*
+	 * Parameter of a function or method, as a sink of the arguments of its calls
+	 * */
+	private record Parameter(DecNode callee, int index) {}
+
+	private final Set<Object> escaping = new HashSet<>(); // variables and parameters whose value escapes
+	private final Set<Object> results = new HashSet<>(); // variables whose value flows to the result of their body
+
+	private final Map<STentry, FunNode> functions = new HashMap<>();
+	private final Map<String, ClassNode> classes = new HashMap<>();
+	private final Map<String, List<ClassNode>> subclasses = new HashMap<>(); // direct subclasses of each class
+
+	// found by each visit of the program
+	private final Set<NewNode> escapingObjects = new HashSet<>();
+	private final Map<DecNode, List<NewNode>> objects = new LinkedHashMap<>(); // objects created by each body
+	private final Map<STentry, List<ClassCallNode>> receivers = new HashMap<>(); // method calls on each variable
+	private final Set<STentry> read = new HashSet<>(); // variables read
+	private final Set<DecNode> inlined = new HashSet<>(); // bodies chosen for inlining
+
+	private List<Object> sinks = List.of(); // sinks of the value of the visited expression
+	private DecNode current; // function or method whose body is being visited (null in the main program)
+	private int currentLevel; // nesting level of the local declarations of the current body
+	private final Map<Integer, DecNode> enclosing = new HashMap<>(); // function or method of each nesting level
+	private ClassNode currentClass; // class whose methods are being visited (null outside classes)
+
+	EscapeAnalysisEASTVisitor() {}
+	EscapeAnalysisEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	private void visit(Node n, List<Object> s) {
+		List<Object> outer = sinks;
+		sinks = s;
+		visit(n);
+		sinks = outer;
+	}
+
+	private static List<Object> sink(Object s) {
+		return Collections.singletonList(s); // null: the value escapes
+	}
+
+	/*
+	 * Whether a value flowing to the current sinks escapes: a tail call matters only for the values of the
+	 * current activation, whose frame it replaces
+	 * */
+	private boolean escapes(boolean local) {
+		for (Object s : sinks)
+			if (s == null || s == RESULT || escaping.contains(s) || (local && s == TAIL)) return true;
+		return false;
+	}
+
+	/*
+	 * Whether the value of the visited expression may be the result of the body (the calls giving it can be
+	 * made as tail calls)
+	 * */
+	private boolean isResult() {
+		for (Object s : sinks) if (s == RESULT || results.contains(s)) return true;
+		return false;
+	}
+
+	private boolean isLocal(STentry entry) {
+		return current != null && entry.nl == currentLevel && entry.offset < 0;
+	}
+
+	/*
+	 * Sink represented by an entry: a parameter of the function or method declaring it, or a variable
+	 * */
+	private Object key(STentry entry) {
+		if (entry.offset > 0 && enclosing.containsKey(entry.nl))
+			return new Parameter(enclosing.get(entry.nl), entry.offset - 1);
+		return entry;
+	}
+
+	/*
+	 * Methods at the given offset of the dispatch tables of a class and of its subclasses (direct or not):
+	 * declared in the class or inherited
+	 * */
+	private void implementations(ClassNode c, int offset, List<DecNode> methods) {
+		MethodNode method = implementation(c, offset);
+		if (method != null && !methods.contains(method)) methods.add(method);
+		for (ClassNode subclass : subclasses.getOrDefault(c.id, List.of())) implementations(subclass, offset, methods);
+	}
+
+	/*
+	 * Method at the given offset of the dispatch table of a class: declared in the class or inherited
+	 * */
+	private MethodNode implementation(ClassNode c, int offset) {
+		for (; c != null; c = c.superId == null ? null : classes.get(c.superId))
+			for (MethodNode method : c.methodNodeList)
+				if (method.offset == offset) return method;
+		return null;
+	}
+
+	/*
+	 * Visit the arguments of a call, whose parameters are sinks of the given callees (null if they are unknown)
+	 * */
+	private void arguments(List<Node> arguments, List<DecNode> callees) {
+		boolean tail = isResult();
+		for (int i = 0; i < arguments.size(); i++) {
+			List<Object> parameters = new ArrayList<>();
+			if (callees == null) parameters.add(null);
+			else for (DecNode callee : callees) parameters.add(new Parameter(callee, i));
+			if (tail) parameters.add(TAIL);
+			visit(arguments.get(i), parameters);
+		}
+	}
+
+	private void collect(List<DecNode> declist) {
+		for (DecNode dec : declist) {
+			if (dec instanceof FunNode f) {
+				functions.put(f.entry, f);
+				collect(f.declist);
+			} else if (dec instanceof ClassNode c) {
+				classes.put(c.id, c);
+				if (c.superId != null) subclasses.computeIfAbsent(c.superId, k -> new ArrayList<>()).add(c);
+				for (MethodNode method : c.methodNodeList) collect(method.decList);
+			}
+		}
+	}
+
+	private void visitBody(DecNode dec, int level, List<DecNode> declist, Node exp) {
+		DecNode outer = current;
+		int outerLevel = currentLevel;
+		current = dec;
+		currentLevel = level;
+		enclosing.put(level, dec);
+		for (DecNode d : declist) visit(d);
+		visit(exp, sink(RESULT));
+		current = outer;
+		currentLevel = outerLevel;
+	}
+
+	/*
+	 * Allocate in the frame of a body the objects it creates which do not escape, adding their slots before the
+	 * local declarations: return the extended declarations
+	 * */
+	private List<DecNode> allocate(List<DecNode> declist, List<NewNode> created, int level) {
+		List<NewNode> allocated = new ArrayList<>();
+		for (NewNode n : created) if (!escapingObjects.contains(n)) allocated.add(n);
+		for (DecNode dec : declist) // objects bound to variables never read are not created
+			if (dec instanceof VarNode v && v.exp instanceof NewNode n && allocated.contains(n) && !read.contains(v.entry)
+					&& DeadCodeEliminationEASTVisitor.isRemovable(n)) {
+				IntNode empty = new IntNode(0);
+				empty.setLine(n.getLine());
+				v.exp = empty;
+				allocated.remove(n);
+				removedObjects++;
+			}
+		if (allocated.isEmpty()) return declist;
+		List<DecNode> extended = new ArrayList<>();
+		for (NewNode n : allocated) {
+			for (int i = 0; i <= n.arg.size(); i++) { // dispatch pointer, then the fields
+				IntNode empty = new IntNode(0);
+				VarNode slot = new VarNode("$o" + extended.size(), new IntTypeNode(), empty);
+				slot.entry = new STentry(level, slot.getType(), -2 - extended.size());
+				slot.setLine(n.getLine());
+				empty.setLine(n.getLine());
+				if (i == 0) n.frame = slot.entry;
+				extended.add(slot);
+			}
+			frameObjects++;
+		}
+		frameSlots += extended.size();
+		for (DecNode dec : declist) if (dec instanceof VarNode v) v.entry.offset -= extended.size();
+		for (DecNode dec : declist) // the class of the objects bound to variables is known
+			if (dec instanceof VarNode v && v.exp instanceof NewNode n && n.frame != null)
+				for (ClassCallNode call : receivers.getOrDefault(v.entry, List.of()))
+					if (call.target == null) {
+						call.target = implementation(classes.get(n.id), call.methodEntry.offset);
+						call.candidate = null;
+						resolvedCalls++;
+					}
+		extended.addAll(declist);
+		return Collections.unmodifiableList(extended);
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		collect(n.declist);
+		int found;
+		do {
+			found = escaping.size() + results.size();
+			escapingObjects.clear();
+			objects.clear();
+			receivers.clear();
+			read.clear();
+			inlined.clear();
+			for (Node dec : n.declist) visit(dec);
+			visit(n.exp, sink(null));
+		} while (escaping.size() + results.size() != found);
+		objects.forEach((dec, created) -> {
+			if (dec == null || inlined.contains(dec)) return; // no frame of its own
+			if (dec instanceof FunNode f) f.declist = allocate(f.declist, created, f.entry.nl + 1);
+			else ((MethodNode) dec).decList = allocate(((MethodNode) dec).decList, created, METHOD_LEVEL);
+		});
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return null; // no functions
+	}
+
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		visitBody(n, n.entry.nl + 1, n.declist, n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		visit(n.exp, sink(n.entry));
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp, sinks); // the value is printed and returned
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IfNode n) {
+		if (print) printNode(n);
+		visit(n.cond, List.of());
+		visit(n.th, sinks);
+		visit(n.el, sinks);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EqualNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TimesNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PlusNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	/*
+	 * A method called by its id, in the body of another method, is called on the object of the current method,
+	 * whose static class is the current class
+	 * */
+	@Override
+	public Void visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		if (n.inline != null) inlined.add(n.inline);
+		List<DecNode> callees = null;
+		if (n.entry.type instanceof MethodTypeNode) {
+			if (currentClass != null) implementations(currentClass, n.entry.offset, callees = new ArrayList<>());
+		} else if (functions.containsKey(n.entry)) {
+			callees = List.of(functions.get(n.entry));
+		}
+		arguments(n.arglist, callees);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		read.add(n.entry);
+		Object key = key(n.entry);
+		if (escapes(isLocal(n.entry))) escaping.add(key);
+		if (isResult()) results.add(key);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(OrNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(AndNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(DivNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MinusNode n) {
+		if (print) printNode(n);
+		visit(n.left, List.of());
+		visit(n.right, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NotNode n) {
+		if (print) printNode(n);
+		visit(n.exp, List.of());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		visit(n.exp, List.of());
+		return null;
+	}
+
+	/*
+	 * The value is also written in the slot of a temporary
+	 * */
+	@Override
+	public Void visitNode(TempNode n) {
+		if (print) printNode(n);
+		List<Object> extended = new ArrayList<>(sinks);
+		extended.add(n.entry);
+		visit(n.exp, extended);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		currentClass = n;
+		for (MethodNode method : n.methodNodeList) visit(method);
+		currentClass = null;
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		visitBody(n, METHOD_LEVEL, n.decList, n.exp);
+		return null;
+	}
+
+	/*
+	 * The object is not reachable from the method, unless the call reuses the frame holding it
+	 * */
+	@Override
+	public Void visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		if (n.inline != null) inlined.add(n.inline);
+		read.add(n.entry);
+		receivers.computeIfAbsent(n.entry, k -> new ArrayList<>()).add(n);
+		if (isResult() && isLocal(n.entry)) escaping.add(n.entry);
+		List<DecNode> callees = new ArrayList<>();
+		implementations(classes.get(((RefTypeNode) n.entry.type).id), n.methodEntry.offset, callees);
+		arguments(n.arg, callees);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		if (escapes(true)) escapingObjects.add(n);
+		objects.computeIfAbsent(current, k -> new ArrayList<>()).add(n);
+		for (Node argument : n.arg) visit(argument, sink(null)); // stored in the object
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return null;
+	}
+}
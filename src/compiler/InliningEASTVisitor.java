@@ -0,0 +1,270 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* InliningEASTVisitor Class
+* It implements the visitor pattern to choose the calls whose callee body is substituted at the call site, when
+* the function and method bodies are translated into SSA form
+* Each visitNode method returns the size of the code of the node, as the number of nodes of its subtree
+* The callees are functions and methods called directly (methods need the devirtualization) without nested
+* functions, which would need the frame of the callee; a body is inlined only at the calls made from code which is
+* not inlined itself, so recursion needs no special care
+* Calls are chosen by increasing size of the callee, as long as the code growth stays within the budget
+* With a profile, calls are chosen by decreasing number of executions instead, and the hot ones (executed at least
+* HOT_SHARE times as often as the hottest call) can inline larger bodies
+* */
+public class InliningEASTVisitor extends BaseEASTVisitor<Integer, VoidException> {
+
+	private static final int MAX_SIZE = 24; // largest body (in nodes) of an inlined function or method
+	private static final int MAX_HOT_SIZE = 2 * MAX_SIZE; // largest body inlined at a hot call
+	private static final double HOT_SHARE = 0.1;
+
+	int inlinedCalls = 0; // number of call sites replaced by the body of the callee
+	int growth = 0; // nodes added to the program by the inlined bodies
+	int programSize = 0; // nodes of the program before inlining
+
+	private final int budget; // maximum code growth (in nodes)
+	private final Profile profile; // null if none
+
+	private final Map<STentry, FunNode> functions = new HashMap<>();
+	private final Map<DecNode, Integer> sizes = new HashMap<>(); // body sizes of functions and methods
+
+	// call sites with their callee, in the order of visit
+	private final Map<Node, DecNode> calls = new LinkedHashMap<>();
+	private final Map<Node, Long> executions = new HashMap<>(); // profiled executions of the call sites
+
+	private DecNode current; // function or method whose body is being visited (null in the main program)
+
+	InliningEASTVisitor(int budget) { this(budget, (Profile) null); }
+	InliningEASTVisitor(int budget, Profile profile) { this.budget = budget; this.profile = profile; }
+	InliningEASTVisitor(int budget, boolean debug) { super(false, debug); this.budget = budget; this.profile = null; } // enables print for debugging
+
+	/*
+	 * Record a call site whose callee can be inlined there
+	 * */
+	private void call(Node n, DecNode callee, String name) {
+		if (callee == null || callee == current) return; // recursive calls are left to tail calls
+		if (callee instanceof MethodNode method && DevirtualizationEASTVisitor.accessedField(method) != null)
+			return; // already a field load
+		List<DecNode> declist = callee instanceof FunNode f ? f.declist : ((MethodNode) callee).decList;
+		if (declist.stream().anyMatch(dec -> dec instanceof FunNode)) return;
+		// functions in destination-passing style are generated from the AST, without inlining
+		if (current instanceof FunNode f && CodeGenerationASTVisitor.consCalls(f, f.exp)) return;
+		calls.put(n, callee);
+		if (profile != null) executions.put(n, profile.calls(n, name));
+	}
+
+	/*
+	 * Choose the calls to inline, smallest callees (or most executed calls) first, within the budget
+	 * */
+	private void decide() {
+		List<Map.Entry<Node, DecNode>> candidates = new ArrayList<>(calls.entrySet());
+		candidates.sort(Comparator.comparingInt(call -> sizes.get(call.getValue())));
+		if (profile != null) candidates.sort(Comparator.comparingLong(call -> -executions.get(call.getKey())));
+		long hottest = executions.values().stream().mapToLong(Long::longValue).max().orElse(0);
+		for (Map.Entry<Node, DecNode> call : candidates) {
+			int calleeSize = sizes.get(call.getValue());
+			boolean hot = profile != null && executions.get(call.getKey()) > 0
+					&& executions.get(call.getKey()) >= HOT_SHARE * hottest;
+			if (calleeSize > (hot ? MAX_HOT_SIZE : MAX_SIZE) || growth + calleeSize > budget) continue;
+			if (call.getKey() instanceof CallNode c) c.inline = call.getValue();
+			else ((ClassCallNode) call.getKey()).inline = call.getValue();
+			growth += calleeSize;
+			inlinedCalls++;
+		}
+	}
+
+	private int visitBody(DecNode dec, List<? extends Node> decs, Node exp) {
+		DecNode outer = current;
+		current = dec;
+		int size = 1;
+		for (Node d : decs) size += visit(d);
+		size += visit(exp);
+		current = outer;
+		sizes.put(dec, size);
+		return size;
+	}
+
+	@Override
+	public Integer visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		programSize = 1;
+		for (Node dec : n.declist) programSize += visit(dec);
+		programSize += visit(n.exp);
+		decide();
+		return programSize;
+	}
+
+	@Override
+	public Integer visitNode(ProgNode n) {
+		if (print) printNode(n);
+		programSize = 1 + visit(n.exp);
+		return programSize; // no functions
+	}
+
+	@Override
+	public Integer visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		functions.put(n.entry, n);
+		return visitBody(n, n.declist, n.exp);
+	}
+
+	@Override
+	public Integer visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		return 1 + visit(n.exp);
+	}
+
+	@Override
+	public Integer visitNode(PrintNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.exp);
+	}
+
+	@Override
+	public Integer visitNode(IfNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.cond) + visit(n.th) + visit(n.el);
+	}
+
+	@Override
+	public Integer visitNode(EqualNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(TimesNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(PlusNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		int size = 1;
+		for (Node arg : n.arglist) size += visit(arg);
+		call(n, n.entry.type instanceof ArrowTypeNode ? functions.get(n.entry) : n.target, n.id);
+		return size;
+	}
+
+	@Override
+	public Integer visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return 1;
+	}
+
+	@Override
+	public Integer visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return 1;
+	}
+
+	@Override
+	public Integer visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return 1;
+	}
+
+	@Override
+	public Integer visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(OrNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(AndNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(DivNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(MinusNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.left) + visit(n.right);
+	}
+
+	@Override
+	public Integer visitNode(NotNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.exp);
+	}
+
+	@Override
+	public Integer visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.exp);
+	}
+
+	@Override
+	public Integer visitNode(TempNode n) {
+		if (print) printNode(n);
+		return 1 + visit(n.exp);
+	}
+
+	@Override
+	public Integer visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		int size = 1;
+		for (MethodNode method : n.methodNodeList) size += visit(method);
+		return size;
+	}
+
+	@Override
+	public Integer visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		return visitBody(n, n.decList, n.exp);
+	}
+
+	@Override
+	public Integer visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		int size = 1;
+		for (Node arg : n.arg) size += visit(arg);
+		call(n, n.target, n.methodId);
+		return size;
+	}
+
+	@Override
+	public Integer visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		int size = 1;
+		for (Node arg : n.arg) size += visit(arg);
+		return size;
+	}
+
+	@Override
+	public Integer visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return 1;
+	}
+}
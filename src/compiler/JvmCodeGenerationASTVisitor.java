@@ -0,0 +1,636 @@
+package compiler;
+
+import compiler.AST.*;
+import compiler.lib.*;
+import compiler.exc.*;
+import jvm.*;
+
+import java.util.*;
+
+import static jvm.Code.*;
+
+/*
+* JvmCodeGenerationASTVisitor Class
+* It implements the visitor pattern to generate JVM classes from the enriched AST, as an alternative to the code of
+* the stack virtual machine:
+* - the main class has the global variables as static fields, the functions as static methods and the main
+*   expression as the static method run(PrintStream), whose print go to the given sink
+* - each FOOL class is a JVM class extending the one of its superclass, with the fields it adds and its methods as
+*   virtual methods (m$name), so that the JVM dispatches them
+* - parameters and declarations are locals of the method, except the ones read by nested functions: a body declaring
+*   functions creates an environment object, with their values and the link (up) to the environment of the
+*   enclosing body (or to the object, for a method), and passes it to the functions declared in it as their first
+*   parameter; the static chain of the virtual machine becomes the chain of the environments
+* int and bool values are ints (booleans are 0 and 1, like in the virtual machine), and objects are references of
+* type Object, cast to their static class to read a field or call a method
+* print of an object prints -1 for null and an identity hash code otherwise, where the virtual machine prints the
+* address of the object
+* The annotations of the optimizations (inlining, devirtualization, preallocation, frame objects) are ignored: the
+* JVM makes its own choices, and the program computes the same values without them
+* */
+public class JvmCodeGenerationASTVisitor extends BaseASTVisitor<Void, VoidException> {
+
+	private static final String OBJECT = "java/lang/Object", OBJECT_TYPE = "Ljava/lang/Object;";
+	private static final String SINK = "java/io/PrintStream", SINK_TYPE = "Ljava/io/PrintStream;";
+
+	/*
+	 * Scope Class
+	 * A nesting level of the code being generated: the global one, a class or the body of a function or method
+	 * */
+	private static class Scope {
+		String owner; // class of the object, for a class
+		String env; // class of the environment, for a body declaring functions (null otherwise)
+		int envSlot;
+		final Set<Integer> captured = new HashSet<>(); // offsets of the declarations read by nested functions
+		final Map<Integer, TypeNode> types = new HashMap<>(); // types of the captured declarations
+		final Map<Integer, Integer> slots = new HashMap<>(); // locals of the other declarations, by offset
+	}
+
+	private final String mainClass;
+	private final JvmProgram program;
+	private final ClassFile main;
+	private final Set<String> globals = new HashSet<>(); // static fields of the global declarations
+
+	private final Map<String, ClassNode> classes = new HashMap<>();
+	private final Map<STentry, String> functionNames = new HashMap<>();
+	private final Map<STentry, String> functionDescriptors = new HashMap<>();
+	private int environments = 0;
+
+	private Code code; // method being generated
+	private final List<Scope> scopes = new ArrayList<>(); // scopes of the code being generated, by nesting level
+
+	JvmCodeGenerationASTVisitor(String mainClass) {
+		this.mainClass = mainClass;
+		program = new JvmProgram(mainClass);
+		main = new ClassFile(mainClass, OBJECT);
+	}
+
+	/*
+	 * Generate the classes of a program
+	 * */
+	JvmProgram generate(Node ast) {
+		main.field(ClassFile.PUBLIC | ClassFile.STATIC, "out", SINK_TYPE);
+		code = main.method(ClassFile.PUBLIC | ClassFile.STATIC, "run", "(" + SINK_TYPE + ")V");
+		code.local(ALOAD, 0);
+		code.field(PUTSTATIC, mainClass, "out", SINK_TYPE);
+		scopes.add(new Scope());
+		visit(ast);
+		code.op(POP, -1); // the value of the main expression
+		code.op(RETURN, 0);
+
+		Code mainMethod = main.method(ClassFile.PUBLIC | ClassFile.STATIC, "main", "([Ljava/lang/String;)V");
+		mainMethod.field(GETSTATIC, "java/lang/System", "out", SINK_TYPE);
+		mainMethod.invoke(INVOKESTATIC, mainClass, "run", "(" + SINK_TYPE + ")V");
+		mainMethod.op(RETURN, 0);
+
+		Code address = main.method(ClassFile.PUBLIC | ClassFile.STATIC, "address", "(" + OBJECT_TYPE + ")I");
+		Code.Label object = address.label();
+		address.local(ALOAD, 0);
+		address.jump(IFNONNULL, object);
+		address.iconst(-1); // null
+		address.op(IRETURN, -1);
+		address.mark(object);
+		address.local(ALOAD, 0);
+		address.invoke(INVOKESTATIC, "java/lang/System", "identityHashCode", "(" + OBJECT_TYPE + ")I");
+		address.op(IRETURN, -1);
+
+		program.add(main);
+		return program;
+	}
+
+	/*--------------------------------------------------TYPES---------------------------------------------------------*/
+
+	static boolean isReference(TypeNode type) {
+		return type instanceof RefTypeNode || type instanceof EmptyTypeNode || type instanceof ClassTypeNode;
+	}
+
+	private static String descriptor(TypeNode type) {
+		return isReference(type) ? OBJECT_TYPE : "I";
+	}
+
+	private static String descriptor(List<TypeNode> parameters, TypeNode result) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (TypeNode parameter : parameters) descriptor.append(descriptor(parameter));
+		return descriptor.append(")").append(descriptor(result)).toString();
+	}
+
+	static TypeNode result(TypeNode type) {
+		return type instanceof MethodTypeNode m ? m.fun.ret : ((ArrowTypeNode) type).ret;
+	}
+
+	/*
+	 * Whether the value of an expression is a reference (an int otherwise)
+	 * */
+	static boolean isReference(Node exp) {
+		if (exp instanceof EmptyNode || exp instanceof NewNode) return true;
+		if (exp instanceof IdNode n) return isReference(n.entry.type);
+		if (exp instanceof CallNode n) return isReference(result(n.entry.type));
+		if (exp instanceof ClassCallNode n) return isReference(result(n.methodEntry.type));
+		if (exp instanceof IfNode n) return isReference(n.th) || isReference(n.el);
+		if (exp instanceof PrintNode n) return isReference(n.exp);
+		if (exp instanceof TempNode n) return isReference(n.exp);
+		return false;
+	}
+
+	private String className(String id) {
+		return mainClass + "$" + id;
+	}
+
+	private static String envField(int offset) {
+		return offset > 0 ? "p" + offset : "d" + -offset;
+	}
+
+	/*
+	 * Push the arguments of a call, evaluated from the last to the first like on the virtual machine: when more
+	 * than one of them may print or fail, they are evaluated into locals first
+	 * */
+	private void arguments(List<Node> args) {
+		if (args.stream().filter(arg -> !(arg instanceof IdNode || arg instanceof IntNode || arg instanceof BoolNode
+				|| arg instanceof EmptyNode)).count() < 2) {
+			for (Node arg : args) visit(arg);
+			return;
+		}
+		int[] slots = new int[args.size()];
+		for (int i = args.size() - 1; i >= 0; i--) {
+			visit(args.get(i));
+			slots[i] = code.local();
+			code.local(isReference(args.get(i)) ? ASTORE : ISTORE, slots[i]);
+		}
+		for (int i = 0; i < args.size(); i++) code.local(isReference(args.get(i)) ? ALOAD : ILOAD, slots[i]);
+	}
+
+	/*--------------------------------------------------SCOPES--------------------------------------------------------*/
+
+	/*
+	 * Offsets of the declarations at the given nesting level read in an expression (and in the functions
+	 * declared in it)
+	 * */
+	static void references(Node n, int nl, Set<Integer> offsets) {
+		if (n instanceof IdNode id && id.entry.nl == nl) offsets.add(id.entry.offset);
+		if (n instanceof ClassCallNode c && c.entry.nl == nl) offsets.add(c.entry.offset);
+		if (n instanceof FunNode f) {
+			for (DecNode dec : f.declist) references(dec, nl, offsets);
+			references(f.exp, nl, offsets);
+		} else if (n instanceof VarNode v) references(v.exp, nl, offsets);
+		else if (n instanceof CallNode c) c.arglist.forEach(arg -> references(arg, nl, offsets));
+		else if (n instanceof ClassCallNode c) c.arg.forEach(arg -> references(arg, nl, offsets));
+		else if (n instanceof NewNode c) c.arg.forEach(arg -> references(arg, nl, offsets));
+		else if (n instanceof PrintNode p) references(p.exp, nl, offsets);
+		else if (n instanceof TempNode t) references(t.exp, nl, offsets);
+		else {
+			List<Node> operands = AlgebraicSimplificationEASTVisitor.operands(n);
+			if (operands != null) operands.forEach(operand -> references(operand, nl, offsets));
+		}
+	}
+
+	/*
+	 * Push the object representing a scope, seen from the code at the given nesting level: the environment of a
+	 * body, or the object of a class
+	 * The code of a body finds its own environment in a local, and the one of the enclosing scope (or the object
+	 * of its method) in local 0
+	 * */
+	private void frame(int nl, int current) {
+		if (nl == current) {
+			code.local(ALOAD, scopes.get(nl).envSlot);
+			return;
+		}
+		if (nl == current - 1) {
+			code.local(ALOAD, 0);
+			return;
+		}
+		frame(nl + 1, current);
+		code.field(GETFIELD, scopes.get(nl + 1).env, "up", OBJECT_TYPE);
+		code.type(CHECKCAST, scopes.get(nl).owner != null ? scopes.get(nl).owner : scopes.get(nl).env);
+	}
+
+	/*
+	 * Push the value of a declaration read at the given nesting level
+	 * */
+	private void load(STentry entry, int nestingLevel) {
+		if (entry.nl == 0) {
+			code.field(GETSTATIC, mainClass, global(entry), descriptor(entry.type));
+			return;
+		}
+		Scope scope = scopes.get(entry.nl);
+		if (scope.owner != null) { // field of the object
+			frame(entry.nl, nestingLevel);
+			code.field(GETFIELD, scope.owner, "f" + (-entry.offset - 1), descriptor(entry.type));
+		} else if (scope.captured.contains(entry.offset)) {
+			frame(entry.nl, nestingLevel);
+			code.field(GETFIELD, scope.env, envField(entry.offset), descriptor(entry.type));
+		} else {
+			code.local(isReference(entry.type) ? ALOAD : ILOAD, scope.slots.get(entry.offset));
+		}
+	}
+
+	/*
+	 * Pop a value into a declaration of the current scope
+	 * */
+	private void store(STentry entry, TypeNode type) {
+		if (entry.nl == 0) {
+			code.field(PUTSTATIC, mainClass, global(entry), descriptor(type));
+			return;
+		}
+		Scope scope = scopes.get(entry.nl);
+		if (scope.captured.contains(entry.offset)) {
+			code.local(ALOAD, scope.envSlot);
+			code.op(SWAP, 0);
+			code.field(PUTFIELD, scope.env, envField(entry.offset), descriptor(type));
+			return;
+		}
+		scope.slots.computeIfAbsent(entry.offset, k -> code.local());
+		code.local(isReference(type) ? ASTORE : ISTORE, scope.slots.get(entry.offset));
+	}
+
+	/*
+	 * Name of the static field of a global declaration, declared at the first request
+	 * */
+	private String global(STentry entry) {
+		String name = "g" + (-entry.offset);
+		if (globals.add(name)) main.field(ClassFile.PUBLIC | ClassFile.STATIC, name, descriptor(entry.type));
+		return name;
+	}
+
+	/*
+	 * Generate the body of a function or method at the given nesting level, whose parameters start from the given
+	 * local, and return its value
+	 * */
+	private void body(int nl, List<TypeNode> parameters, int firstSlot, List<DecNode> declist, Node exp, TypeNode retType) {
+		Scope scope = new Scope();
+		scopes.add(scope);
+		if (declist.stream().anyMatch(dec -> dec instanceof FunNode)) {
+			for (DecNode dec : declist)
+				if (dec instanceof FunNode f) references(f, nl, scope.captured);
+			for (int i = 0; i < parameters.size(); i++) scope.types.put(i + 1, parameters.get(i));
+			for (DecNode dec : declist) if (dec instanceof VarNode v) scope.types.put(v.entry.offset, v.getType());
+			scope.captured.retainAll(scope.types.keySet());
+			environment(scope, nl);
+		}
+		for (int i = 0; i < parameters.size(); i++) {
+			if (!scope.captured.contains(i + 1)) {
+				scope.slots.put(i + 1, firstSlot + i);
+				continue;
+			}
+			code.local(isReference(parameters.get(i)) ? ALOAD : ILOAD, firstSlot + i);
+			store(new STentry(nl, parameters.get(i), i + 1), parameters.get(i));
+		}
+		for (DecNode dec : declist) visit(dec);
+		visit(exp);
+		code.op(isReference(retType) ? ARETURN : IRETURN, -1);
+		scopes.remove(scopes.size() - 1);
+	}
+
+	/*
+	 * Create the environment of a body, linked to the one of the enclosing body (or to the object, for a method)
+	 * */
+	private void environment(Scope scope, int nl) {
+		scope.env = mainClass + "$Env" + environments++;
+		ClassFile env = new ClassFile(scope.env, OBJECT);
+		env.field(ClassFile.PUBLIC, "up", OBJECT_TYPE);
+		for (int offset : scope.captured) env.field(ClassFile.PUBLIC, envField(offset), descriptor(scope.types.get(offset)));
+		Code init = env.method(ClassFile.PUBLIC, "<init>", "()V");
+		init.local(ALOAD, 0);
+		init.invoke(INVOKESPECIAL, OBJECT, "<init>", "()V");
+		init.op(RETURN, 0);
+		program.add(env);
+
+		scope.envSlot = code.local();
+		code.type(NEW, scope.env);
+		code.op(DUP, 1);
+		code.invoke(INVOKESPECIAL, scope.env, "<init>", "()V");
+		code.local(ASTORE, scope.envSlot);
+		if (nl > 1) { // the enclosing scope is not the global one
+			code.local(ALOAD, scope.envSlot);
+			code.local(ALOAD, 0);
+			code.field(PUTFIELD, scope.env, "up", OBJECT_TYPE);
+		}
+	}
+
+	/*-------------------------------------------------PROGRAM--------------------------------------------------------*/
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	/*
+	 * A function is a static method of the main class: functions not declared in the global scope take the
+	 * environment of the body declaring them as first parameter
+	 * */
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		List<TypeNode> parameters = new ArrayList<>();
+		for (ParNode par : n.parlist) parameters.add(par.getType());
+		for (STentry lifted : n.entry.lifted) parameters.add(lifted.type); // lambda lifting
+		String link = n.entry.nl > 0 ? "L" + scopes.get(n.entry.nl).env + ";" : "";
+		String name = "f$" + n.id + "$" + functionNames.size();
+		String descriptor = "(" + link + descriptor(parameters, n.retType).substring(1);
+		functionNames.put(n.entry, name);
+		functionDescriptors.put(n.entry, descriptor);
+		Code outer = code;
+		code = main.method(ClassFile.PUBLIC | ClassFile.STATIC, name, descriptor);
+		body(n.entry.nl + 1, parameters, link.isEmpty() ? 0 : 1, n.declist, n.exp, n.retType);
+		code = outer;
+		return null;
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		visit(n.exp);
+		if (isReference(n.getType()) && !isReference(n.exp)) { // slot reserved with an int (temporaries)
+			code.op(POP, -1);
+			code.op(ACONST_NULL, 1);
+		}
+		store(n.entry, n.getType());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TempNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		code.op(DUP, 1);
+		store(n.entry, n.entry.type);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		code.op(DUP, 1);
+		if (isReference(n.exp)) code.invoke(INVOKESTATIC, mainClass, "address", "(" + OBJECT_TYPE + ")I");
+		code.field(GETSTATIC, mainClass, "out", SINK_TYPE);
+		code.op(SWAP, 0);
+		code.invoke(INVOKEVIRTUAL, SINK, "println", "(I)V");
+		return null;
+	}
+
+	/*-----------------------------------------------EXPRESSIONS------------------------------------------------------*/
+
+	@Override
+	public Void visitNode(IfNode n) {
+		if (print) printNode(n);
+		Code.Label otherwise = code.label(), end = code.label();
+		visit(n.cond);
+		code.jump(IFEQ, otherwise);
+		int depth = code.depth();
+		visit(n.th);
+		code.jump(GOTO, end);
+		code.depth(depth);
+		code.mark(otherwise);
+		visit(n.el);
+		code.mark(end);
+		return null;
+	}
+
+	/*
+	 * Push 1 if the values on the stack satisfy the comparison, 0 otherwise
+	 * */
+	private void compare(int jumpIfFalse) {
+		Code.Label no = code.label(), end = code.label();
+		code.jump(jumpIfFalse, no);
+		int depth = code.depth();
+		code.iconst(1);
+		code.jump(GOTO, end);
+		code.depth(depth);
+		code.mark(no);
+		code.iconst(0);
+		code.mark(end);
+	}
+
+	@Override
+	public Void visitNode(EqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		compare(isReference(n.left) || isReference(n.right) ? IF_ACMPNE : IF_ICMPNE);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		compare(IF_ICMPGT);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		compare(IF_ICMPLT);
+		return null;
+	}
+
+	/*
+	 * The right operand of && and || is evaluated only if the left one does not decide the result
+	 * */
+	private void shortCircuit(Node left, Node right, int jumpIfDecided, int decided) {
+		Code.Label done = code.label(), end = code.label();
+		visit(left);
+		code.jump(jumpIfDecided, done);
+		int depth = code.depth();
+		visit(right);
+		code.jump(GOTO, end);
+		code.depth(depth);
+		code.mark(done);
+		code.iconst(decided);
+		code.mark(end);
+	}
+
+	@Override
+	public Void visitNode(AndNode n) {
+		if (print) printNode(n);
+		shortCircuit(n.left, n.right, IFEQ, 0);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(OrNode n) {
+		if (print) printNode(n);
+		shortCircuit(n.left, n.right, IFNE, 1);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NotNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		code.iconst(1);
+		code.op(IXOR, -1);
+		return null;
+	}
+
+	private void arithmetic(Node left, Node right, int opcode) {
+		visit(left);
+		visit(right);
+		code.op(opcode, -1);
+	}
+
+	@Override
+	public Void visitNode(PlusNode n) {
+		if (print) printNode(n);
+		arithmetic(n.left, n.right, IADD);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MinusNode n) {
+		if (print) printNode(n);
+		arithmetic(n.left, n.right, ISUB);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TimesNode n) {
+		if (print) printNode(n);
+		arithmetic(n.left, n.right, IMUL);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(DivNode n) {
+		if (print) printNode(n);
+		arithmetic(n.left, n.right, IDIV); // throws ArithmeticException on division by zero, like the virtual machine
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		code.iconst(n.bits);
+		code.op(ISHL, -1);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		code.iconst(n.val);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		code.iconst(n.val ? 1 : 0);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		code.op(ACONST_NULL, 1);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		load(n.entry, n.nestingLevel);
+		return null;
+	}
+
+	/*
+	 * A call of a function invokes its static method; a call of a method of the current object (from the body of
+	 * a method, or of a function declared in it) invokes it on the object
+	 * */
+	@Override
+	public Void visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		if (n.entry.type instanceof MethodTypeNode m) {
+			String owner = scopes.get(n.entry.nl).owner;
+			frame(n.entry.nl, n.nl);
+			arguments(n.arglist);
+			code.invoke(INVOKEVIRTUAL, owner, "m$" + n.id, descriptor(m.fun.parlist, m.fun.ret));
+			return null;
+		}
+		if (n.entry.nl > 0) frame(n.entry.nl, n.nl); // environment of the body declaring the function
+		arguments(n.arglist);
+		code.invoke(INVOKESTATIC, mainClass, functionNames.get(n.entry), functionDescriptors.get(n.entry));
+		return null;
+	}
+
+	/*---------------------------------------------------CLASSES------------------------------------------------------*/
+
+	/*
+	 * A class has a constructor taking all the fields, in order, and passing the ones of the superclass to its
+	 * constructor
+	 * */
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		classes.put(n.id, n);
+		String superName = n.superId != null ? className(n.superId) : OBJECT;
+		ClassFile c = new ClassFile(className(n.id), superName);
+		List<TypeNode> fields = ((ClassTypeNode) n.getType()).allFields;
+		List<TypeNode> superFields = n.superId != null ? ((ClassTypeNode) classes.get(n.superId).getType()).allFields : List.of();
+		for (int k = superFields.size(); k < fields.size(); k++) c.field(ClassFile.PUBLIC, "f" + k, descriptor(fields.get(k)));
+
+		Code init = c.method(ClassFile.PUBLIC, "<init>", descriptor(fields, new IntTypeNode()).replace(")I", ")V"));
+		init.local(ALOAD, 0);
+		for (int k = 0; k < superFields.size(); k++) init.local(isReference(fields.get(k)) ? ALOAD : ILOAD, k + 1);
+		init.invoke(INVOKESPECIAL, superName, "<init>", descriptor(superFields, new IntTypeNode()).replace(")I", ")V"));
+		for (int k = superFields.size(); k < fields.size(); k++) {
+			init.local(ALOAD, 0);
+			init.local(isReference(fields.get(k)) ? ALOAD : ILOAD, k + 1);
+			init.field(PUTFIELD, c.name, "f" + k, descriptor(fields.get(k)));
+		}
+		init.op(RETURN, 0);
+
+		Scope scope = new Scope();
+		scope.owner = c.name;
+		scopes.add(scope);
+		Code outer = code;
+		for (MethodNode method : n.methodNodeList) {
+			List<TypeNode> parameters = method.parList.stream().map(ParNode::getType).toList();
+			code = c.method(ClassFile.PUBLIC, "m$" + method.id, descriptor(parameters, method.retType));
+			body(2, parameters, 1, method.decList, method.exp, method.retType);
+		}
+		code = outer;
+		scopes.remove(scopes.size() - 1);
+		program.add(c);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		String owner = className(((RefTypeNode) n.entry.type).id);
+		load(n.entry, n.nestingLevel);
+		code.type(CHECKCAST, owner);
+		arguments(n.arg);
+		MethodTypeNode m = (MethodTypeNode) n.methodEntry.type;
+		code.invoke(INVOKEVIRTUAL, owner, "m$" + n.methodId, descriptor(m.fun.parlist, m.fun.ret));
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		String c = className(n.id);
+		code.type(NEW, c);
+		code.op(DUP, 1);
+		for (Node arg : n.arg) visit(arg);
+		code.invoke(INVOKESPECIAL, c, "<init>",
+				descriptor(((ClassTypeNode) n.entry.type).allFields, new IntTypeNode()).replace(")I", ")V"));
+		return null;
+	}
+}
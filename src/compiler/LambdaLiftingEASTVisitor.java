@@ -0,0 +1,320 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* LambdaLiftingEASTVisitor Class
+* It implements the visitor pattern to choose, for each function, how it reaches the variables of the enclosing
+* functions: through the static chain (one lw per nesting level at every access) or as extra parameters
+* (lambda lifting: the callers pass their values, which FOOL never updates, and every access is local)
+* The first visit collects, for each function, the depth of its accesses to outer variables and the nesting level
+* of its call sites; a function is lifted if the static chain hops it saves outweigh the cost of passing the values
+* The second visit rewrites the enriched AST: the callers of lifted functions get an IdNode argument for each free
+* variable, and the accesses are redirected to the nearest frame (on the static chain) holding the value
+* */
+public class LambdaLiftingEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	// instructions needed to push a lifted value at a call site and to pop it on return, besides static chain hops
+	private static final int PASS_COST = 5;
+
+	private static final int RECURSIVE = -1; // nesting level recorded for the calls of a function in its own body
+
+	int liftedFunctions = 0; // number of functions turned into lambda lifted ones
+
+	private boolean rewrite = false; // false during the first visit, true during the second one
+
+	// scopes.get(l) is the declaration (FunNode, MethodNode or ClassNode) whose body is at nesting level l
+	private final List<DecNode> scopes = new ArrayList<>();
+
+	// for each function, the outer variables it accesses with the sum of the depths of the accesses
+	private final Map<FunNode, Map<STentry, Integer>> freeVariables = new LinkedHashMap<>();
+
+	// for each function entry, the nesting levels of its call sites (RECURSIVE for the calls in its own body)
+	private final Map<STentry, List<Integer>> callLevels = new HashMap<>();
+
+	private final Map<STentry, String> names = new HashMap<>(); // ids of the free variables
+
+	LambdaLiftingEASTVisitor() {}
+	LambdaLiftingEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	/*
+	 * Whether the variable, accessed at the given nesting level, belongs to the frame of an enclosing function
+	 * (or method): globals are addressed absolutely and fields through the object
+	 * */
+	private boolean isFree(STentry entry, int nestingLevel) {
+		return entry.nl > 0 && entry.nl < nestingLevel
+				&& (scopes.get(entry.nl) instanceof FunNode || scopes.get(entry.nl) instanceof MethodNode);
+	}
+
+	/*
+	 * Record (first visit) or redirect (second visit) an access to a variable, returning the entry to use
+	 * */
+	private STentry access(String id, STentry entry, int nestingLevel) {
+		if (!isFree(entry, nestingLevel)) return entry;
+		if (rewrite) return resolve(entry, nestingLevel);
+		if (scopes.get(nestingLevel) instanceof FunNode f)
+			freeVariables.get(f).merge(entry, nestingLevel - entry.nl, Integer::sum);
+		names.put(entry, id);
+		return entry;
+	}
+
+	/*
+	 * Entry of the nearest copy of a variable along the static chain: a lifted function holds it as a parameter
+	 * */
+	private STentry resolve(STentry entry, int nestingLevel) {
+		for (int level = nestingLevel; level > entry.nl; level--) {
+			if (scopes.get(level) instanceof FunNode f && f.entry.lifted.contains(entry))
+				return new STentry(level, entry.type, f.parlist.size() + 1 + f.entry.lifted.indexOf(entry));
+		}
+		return entry;
+	}
+
+	/*
+	 * Decide which functions to lift, comparing the static chain hops saved at each execution of the body
+	 * with the cost of passing the free variables at each call (assuming the call sites are equally frequent)
+	 * A recursive call passes the values from the parameters of the function itself, without hops
+	 * */
+	private void decide() {
+		freeVariables.forEach((f, variables) -> {
+			List<Integer> levels = callLevels.get(f.entry);
+			if (variables.isEmpty() || levels == null) return;
+			int saved = 0;
+			double cost = 0;
+			for (Map.Entry<STentry, Integer> variable : variables.entrySet()) {
+				saved += variable.getValue();
+				for (int level : levels) {
+					int hops = level == RECURSIVE ? 0 : level - variable.getKey().nl;
+					cost += (double) (PASS_COST + hops) / levels.size();
+				}
+			}
+			if (saved > cost) {
+				f.entry.lifted = new ArrayList<>(variables.keySet());
+				liftedFunctions++;
+			}
+		});
+	}
+
+	private void visitScope(DecNode scope, List<? extends Node> decs, Node exp) {
+		scopes.add(scope);
+		for (Node dec : decs) visit(dec);
+		if (exp != null) visit(exp);
+		scopes.remove(scopes.size() - 1);
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		scopes.add(null); // global scope
+		for (Node dec : n.declist) visit(dec);
+		decide();
+		rewrite = true;
+		for (Node dec : n.declist) visit(dec);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return null; // no functions
+	}
+
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		if (!rewrite) freeVariables.put(n, new LinkedHashMap<>());
+		visitScope(n, n.declist, n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IfNode n) {
+		if (print) printNode(n);
+		visit(n.cond);
+		visit(n.th);
+		visit(n.el);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TimesNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(PlusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	/*
+	 * The call of a lifted function passes the free variables after the arguments, as seen from the call site
+	 * */
+	@Override
+	public Void visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arglist) visit(arg);
+		if (!(n.entry.type instanceof ArrowTypeNode)) return null;
+		if (!rewrite) {
+			boolean recursive = scopes.get(n.nl) instanceof FunNode f && f.entry == n.entry;
+			callLevels.computeIfAbsent(n.entry, e -> new ArrayList<>()).add(recursive ? RECURSIVE : n.nl);
+		} else if (!n.entry.lifted.isEmpty()) {
+			List<Node> arglist = new ArrayList<>(n.arglist);
+			for (STentry variable : n.entry.lifted) {
+				IdNode id = new IdNode(names.get(variable));
+				id.setLine(n.getLine());
+				id.entry = resolve(variable, n.nl);
+				id.nestingLevel = n.nl;
+				arglist.add(id);
+			}
+			n.arglist = Collections.unmodifiableList(arglist);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		n.entry = access(n.id, n.entry, n.nestingLevel);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return null;
+	}
+
+	@Override
+	public Void visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(OrNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(AndNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(DivNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MinusNode n) {
+		if (print) printNode(n);
+		visit(n.left);
+		visit(n.right);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NotNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		visitScope(n, n.methodNodeList, null);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		visitScope(n, n.decList, n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		n.entry = access(n.id, n.entry, n.nestingLevel);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		for (Node arg : n.arg) visit(arg);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return null;
+	}
+}
@@ -0,0 +1,94 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+import svm.ExecuteVM;
+
+/*
+* MemoizationEASTVisitor Class
+* It implements the visitor pattern to choose the functions whose results are kept in the memo table of the
+* virtual machine: a memoized function looks up its arguments in the table on entry, returning the recorded result
+* if it is there, and records its result before returning
+* The result of a call must depend only on the arguments, which are the key: the function is pure (see
+* PurityEASTVisitor), it is declared in the global scope (so it reads no variables of other frames, the global ones
+* never changing after their initialization) and its parameters are int and bool values, at most MEMO_ARGS
+* Only the functions making calls which are not tail calls are memoized: the others are cheaper to evaluate again
+* than to look up, or recurse in constant stack space, which a memoized function would lose
+* */
+public class MemoizationEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	final List<String> memoized = new ArrayList<>(); // names of the memoized functions
+
+	private final PurityEASTVisitor purity;
+
+	MemoizationEASTVisitor(PurityEASTVisitor purity) { this.purity = purity; }
+	MemoizationEASTVisitor(PurityEASTVisitor purity, boolean debug) { // enables print for debugging
+		super(false, debug);
+		this.purity = purity;
+	}
+
+	/*
+	 * Whether the evaluation of an expression may make calls which are not in tail position (a tail call returns
+	 * directly to the caller of the function, which would have to keep its frame to record the result)
+	 * */
+	private static boolean makesCalls(Node exp, boolean tail) {
+		if (exp instanceof CallNode n) return !tail || n.arglist.stream().anyMatch(arg -> makesCalls(arg, false));
+		if (exp instanceof ClassCallNode n) return !tail || n.arg.stream().anyMatch(arg -> makesCalls(arg, false));
+		if (exp instanceof IfNode n) return makesCalls(n.cond, false) || makesCalls(n.th, tail) || makesCalls(n.el, tail);
+		if (exp instanceof PrintNode n) return makesCalls(n.exp, false);
+		if (exp instanceof TempNode n) return makesCalls(n.exp, false);
+		if (exp instanceof NewNode n) return n.arg.stream().anyMatch(arg -> makesCalls(arg, false));
+		List<Node> operands = AlgebraicSimplificationEASTVisitor.operands(exp);
+		return operands != null && operands.stream().anyMatch(operand -> makesCalls(operand, false));
+	}
+
+	private static boolean makesCalls(List<DecNode> declist, Node exp) {
+		for (DecNode dec : declist)
+			if (dec instanceof VarNode v && makesCalls(v.exp, false)) return true;
+		return makesCalls(exp, true);
+	}
+
+	private boolean isMemoizable(FunNode f) {
+		if (f.parlist.size() > ExecuteVM.MEMO_ARGS || !f.entry.lifted.isEmpty()) return false;
+		for (ParNode par : f.parlist)
+			if (!(par.getType() instanceof IntTypeNode || par.getType() instanceof BoolTypeNode)) return false;
+		return purity.isPure(f) && makesCalls(f.declist, f.exp);
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		return null; // no functions
+	}
+
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		if (!isMemoizable(n)) return null;
+		n.memoized = true;
+		memoized.add(n.id);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		return null; // methods depend on the fields of their object
+	}
+}
@@ -0,0 +1,252 @@
+package compiler;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import compiler.lib.*;
+import compiler.ssa.Optimizer;
+import compiler.ssa.Pass;
+import svm.*;
+
+/*
+* PassManager Class
+* Registers the optimization passes of the compiler, in the order they run, at three levels:
+* - AST passes, transforming the enriched AST before code generation
+* - IR passes, transforming the SSA form of each body during code generation (see compiler.ssa.Optimizer)
+* - assembly passes, transforming the list of instructions before it is assembled
+* Each pass runs from an optimization level on (-O0 runs none, -O3 all of them), or when its own option is given
+* (-fold, -inline=budget, ...); -ssa enables the IR passes, which have no options of their own
+* -dump prints the result of every pass which runs, -dump=name,... only of the named ones (the AST is printed after
+* an AST pass, the SSA form of a body after an IR pass which changes it, the instructions after an assembly pass)
+* -time-passes reports the wall time and the bytes allocated by each pass, code generation and assembly included
+* */
+public class PassManager {
+
+	static final int MAX_LEVEL = 3;
+
+	/*
+	 * A pass, with the first optimization level running it
+	 * */
+	private static class Registered<P> {
+		final String name;
+		final int level;
+		final P pass;
+
+		Registered(String name, int level, P pass) {
+			this.name = name;
+			this.level = level;
+			this.pass = pass;
+		}
+	}
+
+	final int level;
+	final PassStatistics statistics = new PassStatistics();
+	private final boolean timePasses;
+
+	private final String[] args;
+	private final Profile profile; // null if none
+	private final Set<String> dumps; // names of the passes whose result is printed (null for all, empty for none)
+
+	private final List<Registered<Consumer<Node>>> astPasses = new ArrayList<>();
+	private final List<Registered<Supplier<Pass>>> irPasses = new ArrayList<>();
+	private final List<Registered<UnaryOperator<List<Instruction>>>> assemblyPasses = new ArrayList<>();
+
+	PassManager(String[] args, Profile profile) {
+		this.args = args;
+		this.profile = profile;
+		int level = 0;
+		for (String arg : args)
+			if (arg.matches("-O[0-" + MAX_LEVEL + "]")) level = arg.charAt(2) - '0';
+		this.level = level;
+		timePasses = Arrays.asList(args).contains("-time-passes");
+		String dump = option(args, "-dump=");
+		dumps = dump != null ? Set.of(dump.split(",")) : Arrays.asList(args).contains("-dump") ? null : Set.of();
+		registerAstPasses();
+		irPasses.add(new Registered<>("constprop", 2, compiler.ssa.ConstantPropagation::new));
+		irPasses.add(new Registered<>("gvn", 2, compiler.ssa.GlobalValueNumbering::new));
+		irPasses.add(new Registered<>("dce", 2, compiler.ssa.DeadCodeElimination::new));
+		if (profile != null) // replace the sequences of instructions executed most often with superinstructions
+			assemblyPasses.add(new Registered<>("superinstructions", 0, code -> {
+				List<Opcode> superinstructions = profile.superinstructions();
+				System.out.println("Superinstructions selected by the profile: "
+						+superinstructions.stream().map(superinstruction -> superinstruction.mnemonic).toList()+".");
+				return Superinstructions.fuse(code, superinstructions);
+			}));
+	}
+
+	/*
+	 * Value of the option with the given prefix (null if it is not given)
+	 * */
+	static String option(String[] args, String prefix) {
+		return Arrays.stream(args).filter(arg -> arg.startsWith(prefix)).map(arg -> arg.substring(prefix.length()))
+				.findFirst().orElse(null);
+	}
+
+	/*
+	 * Budget of a pass taking one, given as -name=budget (the default one otherwise)
+	 * */
+	private int budget(String name, int defaultBudget) {
+		String budget = option(args, "-" + name + "=");
+		return budget != null ? Integer.parseInt(budget) : defaultBudget;
+	}
+
+	private boolean enabled(Registered<?> pass) {
+		return level >= pass.level || Arrays.stream(args).anyMatch(arg -> arg.equals("-" + pass.name)
+				|| arg.startsWith("-" + pass.name + "="));
+	}
+
+	/*
+	 * Whether the result of a pass is printed: its name can be qualified by its level (ast:dce or ir:dce)
+	 * */
+	private boolean dumped(String name) {
+		return dumps == null || dumps.contains(name) || dumps.contains(name.substring(name.indexOf(':') + 1));
+	}
+
+	private void registerAstPasses() {
+		astPasses.add(new Registered<>("fold", 1, ast -> { // evaluate constant expressions at compile time
+			ConstantFoldingEASTVisitor foldingVisitor = new ConstantFoldingEASTVisitor();
+			foldingVisitor.visit(ast);
+			System.out.println("Folded "+foldingVisitor.foldedExpressions+" expressions and "
+					+foldingVisitor.prunedBranches+" if-then-else with constant condition.\n");
+		}));
+		astPasses.add(new Registered<>("simplify", 1, ast -> { // rewrite with algebraic identities and strength reduction
+			AlgebraicSimplificationEASTVisitor simplificationVisitor = new AlgebraicSimplificationEASTVisitor();
+			simplificationVisitor.visit(ast);
+			System.out.println("Simplified "+simplificationVisitor.simplifiedExpressions+" expressions.");
+			simplificationVisitor.appliedRules.forEach((rule, count) -> System.out.println("  "+rule+": "+count));
+			System.out.println("");
+		}));
+		astPasses.add(new Registered<>("specialize", 3, ast -> { // copy functions for the constant arguments of their calls
+			int budget = budget("specialize", 200);
+			SpecializationEASTVisitor specializationVisitor = new SpecializationEASTVisitor(budget);
+			specializationVisitor.visit(ast);
+			System.out.println("Specialized "+specializationVisitor.specializedCalls+" call sites with "
+					+specializationVisitor.specializations+" function copies: code growth "+specializationVisitor.growth
+					+" nodes (budget "+budget+"), pruned "+specializationVisitor.prunedBranches+" if-then-else.\n");
+		}));
+		astPasses.add(new Registered<>("lift", 2, ast -> { // pass free variables as parameters where it pays off
+			LambdaLiftingEASTVisitor liftingVisitor = new LambdaLiftingEASTVisitor();
+			liftingVisitor.visit(ast);
+			System.out.println("Lambda lifted "+liftingVisitor.liftedFunctions+" functions.\n");
+		}));
+		astPasses.add(new Registered<>("devirt", 1, ast -> { // call directly the methods which are never overridden
+			DevirtualizationEASTVisitor devirtualizationVisitor = new DevirtualizationEASTVisitor(profile);
+			devirtualizationVisitor.visit(ast);
+			System.out.println("Devirtualized "+devirtualizationVisitor.devirtualizedCalls+" of "
+					+devirtualizationVisitor.methodCalls+" method call sites, "
+					+devirtualizationVisitor.accessorCalls+" accessor calls replaced by field loads"
+					+(profile != null ? ", "+devirtualizationVisitor.profiledCandidates+" candidates from the profile" : "")+".\n");
+		}));
+		astPasses.add(new Registered<>("cse", 2, ast -> { // evaluate once the repeated calls of pure functions and methods
+			PurityEASTVisitor purityVisitor = new PurityEASTVisitor();
+			purityVisitor.visit(ast);
+			CommonSubexpressionEliminationEASTVisitor cseVisitor = new CommonSubexpressionEliminationEASTVisitor(purityVisitor);
+			cseVisitor.visit(ast);
+			System.out.println("Eliminated "+cseVisitor.eliminatedExpressions+" repeated pure calls with "
+					+cseVisitor.temporaries+" temporaries.\n");
+		}));
+		astPasses.add(new Registered<>("inline", 2, ast -> { // substitute small function and method bodies at their calls
+			int budget = budget("inline", 200);
+			InliningEASTVisitor inliningVisitor = new InliningEASTVisitor(budget, profile);
+			inliningVisitor.visit(ast);
+			System.out.println("Inlined "+inliningVisitor.inlinedCalls+" call sites: code growth "+inliningVisitor.growth
+					+" nodes over "+inliningVisitor.programSize+" (budget "+budget+").\n");
+		}));
+		astPasses.add(new Registered<>("escape", 2, ast -> { // allocate in frames the objects which do not escape them
+			EscapeAnalysisEASTVisitor escapeVisitor = new EscapeAnalysisEASTVisitor();
+			escapeVisitor.visit(ast);
+			System.out.println("Allocated "+escapeVisitor.frameObjects+" objects in frames ("+escapeVisitor.frameSlots
+					+" slots), removed "+escapeVisitor.removedObjects+" objects never read, resolved "
+					+escapeVisitor.resolvedCalls+" method calls.\n");
+		}));
+		astPasses.add(new Registered<>("dce", 1, ast -> { // remove what the main expression cannot reach (after inlining)
+			DeadCodeEliminationEASTVisitor dceVisitor = new DeadCodeEliminationEASTVisitor();
+			dceVisitor.visit(ast);
+			System.out.println("Removed "+dceVisitor.removedFunctions+" functions, "+dceVisitor.removedMethods
+					+" methods, "+dceVisitor.removedDispatchTables+" dispatch tables and "
+					+dceVisitor.removedInitializers+" variable initializers.");
+			dceVisitor.removed.forEach(dec -> System.out.println("  "+dec));
+			System.out.println("");
+		}));
+		astPasses.add(new Registered<>("prealloc", 2, ast -> { // build at compile time the top-level objects with constant fields
+			PreallocationEASTVisitor preallocationVisitor = new PreallocationEASTVisitor();
+			preallocationVisitor.visit(ast);
+			System.out.println("Preallocated "+preallocationVisitor.preallocatedObjects+" objects in "
+					+preallocationVisitor.dataWords+" words of static data.\n");
+		}));
+		astPasses.add(new Registered<>("memo", 3, ast -> { // keep the results of pure functions of int and bool values in the memo table of the VM
+			PurityEASTVisitor purityVisitor = new PurityEASTVisitor();
+			purityVisitor.visit(ast);
+			MemoizationEASTVisitor memoizationVisitor = new MemoizationEASTVisitor(purityVisitor);
+			memoizationVisitor.visit(ast);
+			System.out.println("Memoized "+memoizationVisitor.memoized.size()+" functions: "+memoizationVisitor.memoized+".\n");
+		}));
+	}
+
+	/*
+	 * Whether the memoization pass runs, so that the memo table of the virtual machine is used
+	 * */
+	boolean memoizes() {
+		return astPasses.stream().anyMatch(pass -> pass.name.equals("memo") && enabled(pass));
+	}
+
+	/*
+	 * Run the enabled AST passes on the enriched AST
+	 * */
+	void run(Node ast) {
+		for (Registered<Consumer<Node>> pass : astPasses) {
+			if (!enabled(pass)) continue;
+			statistics.measure("ast:" + pass.name, () -> pass.pass.accept(ast));
+			if (dumped("ast:" + pass.name)) {
+				System.out.println("Enriched AST after " + pass.name + ":");
+				new PrintEASTVisitor().visit(ast);
+				System.out.println("");
+			}
+		}
+	}
+
+	/*
+	 * The optimizer running the enabled IR passes (null if none is enabled and the code is generated directly from
+	 * the AST, unless the inlining needs the SSA form)
+	 * */
+	Optimizer optimizer() {
+		boolean ssa = Arrays.asList(args).contains("-ssa");
+		List<Pass> passes = new ArrayList<>();
+		for (Registered<Supplier<Pass>> pass : irPasses) // they have no options of their own
+			if (ssa || level >= pass.level) passes.add(pass.pass.get());
+		boolean inline = astPasses.stream().anyMatch(pass -> pass.name.equals("inline") && enabled(pass));
+		if (passes.isEmpty() && !inline) return null;
+		return new Optimizer(passes, timePasses ? statistics : null, name -> dumped("ir:" + name));
+	}
+
+	/*
+	 * Run the enabled assembly passes on the generated code
+	 * */
+	List<Instruction> run(List<Instruction> code) throws IOException {
+		if (dumped("codegen")) dump("codegen", code);
+		for (Registered<UnaryOperator<List<Instruction>>> pass : assemblyPasses) {
+			if (!enabled(pass)) continue;
+			List<Instruction> input = code;
+			code = statistics.measure("asm:" + pass.name, () -> pass.pass.apply(input));
+			if (dumped("asm:" + pass.name)) dump(pass.name, code);
+		}
+		return code;
+	}
+
+	private static void dump(String pass, List<Instruction> code) throws IOException {
+		System.out.println("Code after " + pass + ":");
+		Assembler.write(code, System.out);
+		System.out.println("");
+	}
+
+	/*
+	 * Report the statistics of the passes, if asked for
+	 * */
+	void report() throws IOException {
+		if (!timePasses) return;
+		System.out.println("Passes at -O" + level + " (wall time and allocated bytes):");
+		statistics.write(System.out);
+		System.out.println("");
+	}
+}
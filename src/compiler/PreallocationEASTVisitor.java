@@ -0,0 +1,109 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* PreallocationEASTVisitor Class
+* It implements the visitor pattern to choose the objects which are built at compile time: their fields are
+* constants (int and bool values, null or other preallocated objects), so code generation writes them in the static
+* data of the program, with their dispatch pointer already resolved, and an allocation becomes the push of an address
+* Only the objects created by the initializers of the global variables and by the main expression are preallocated:
+* these expressions are evaluated once, while a new in the body of a function or method must give a different object
+* at each evaluation (objects are compared by address)
+* A global variable initialized with a constant, read as the argument of a new, is replaced by the constant: an
+* object is shared, not copied, so that the variable and the field are still the same object
+* */
+public class PreallocationEASTVisitor extends BaseEASTVisitor<Void, VoidException> {
+
+	int preallocatedObjects = 0;
+	int dataWords = 0; // words of the static data taken by the preallocated objects
+
+	// constant initializers of the global variables visited so far
+	private final Map<STentry, Node> constants = new HashMap<>();
+
+	PreallocationEASTVisitor() {}
+	PreallocationEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	private static boolean isConstant(Node exp) {
+		return exp instanceof IntNode || exp instanceof BoolNode || exp instanceof EmptyNode
+				|| exp instanceof NewNode n && n.preallocated;
+	}
+
+	/*
+	 * The constant an argument of a new can be replaced by (null if it is not constant)
+	 * */
+	private Node constant(Node arg) {
+		if (isConstant(arg)) return arg;
+		if (!(arg instanceof IdNode id)) return null;
+		Node value = constants.get(id.entry);
+		if (value instanceof IntNode i) return new IntNode(i.val);
+		if (value instanceof BoolNode b) return new BoolNode(b.val);
+		return value; // the same object, or null
+	}
+
+	/*
+	 * Marks the objects with constant fields created by an expression, innermost first
+	 * */
+	private void preallocate(Node exp) {
+		if (exp instanceof NewNode n) {
+			n.arg.forEach(this::preallocate);
+			List<Node> fields = new ArrayList<>();
+			for (Node arg : n.arg) fields.add(constant(arg));
+			if (fields.contains(null)) return;
+			n.arg = fields;
+			n.preallocated = true;
+			preallocatedObjects++;
+			dataWords += n.arg.size() + 1; // fields and dispatch pointer
+		} else if (exp instanceof CallNode n) n.arglist.forEach(this::preallocate);
+		else if (exp instanceof ClassCallNode n) n.arg.forEach(this::preallocate);
+		else if (exp instanceof IfNode n) {
+			preallocate(n.cond);
+			preallocate(n.th);
+			preallocate(n.el);
+		} else if (exp instanceof PrintNode n) preallocate(n.exp);
+		else if (exp instanceof TempNode n) preallocate(n.exp);
+		else {
+			List<Node> operands = AlgebraicSimplificationEASTVisitor.operands(exp);
+			if (operands != null) operands.forEach(this::preallocate);
+		}
+	}
+
+	@Override
+	public Void visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		preallocate(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ProgNode n) {
+		if (print) printNode(n);
+		preallocate(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		return null; // its body may be evaluated many times
+	}
+
+	@Override
+	public Void visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		preallocate(n.exp);
+		if (isConstant(n.exp)) constants.put(n.entry, n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		return null; // methods are evaluated many times
+	}
+}
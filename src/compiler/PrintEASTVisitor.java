@@ -206,6 +206,21 @@ public class PrintEASTVisitor extends BaseEASTVisitor<Void,VoidException> {
 		return null;
 	}
 
+	@Override
+	public Void visitNode(ShiftLeftNode n) throws VoidException {
+		printNode(n, Integer.toString(n.bits));
+		visit(n.exp);
+		return null;
+	}
+
+	@Override
+	public Void visitNode(TempNode n) throws VoidException {
+		printNode(n);
+		visit(n.exp);
+		visit(n.entry);
+		return null;
+	}
+
 	/*----------------------------------------------CLASS EXTENSION---------------------------------------------------*/
 
 	@Override
@@ -244,8 +259,10 @@ public class PrintEASTVisitor extends BaseEASTVisitor<Void,VoidException> {
 
 	@Override
 	public Void visitNode(NewNode n) throws VoidException {
-		printNode(n,n.id + " at nesting level: " + n.nestingLevel);
+		printNode(n,n.id + " at nesting level: " + n.nestingLevel + (n.frame != null ? " in frame" : "")
+				+ (n.preallocated ? " preallocated" : ""));
 		visit(n.entry);
+		if (n.frame != null) visit(n.frame);
 		n.arg.forEach(this::visit);
 		return null;
 	}
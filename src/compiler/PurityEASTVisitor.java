@@ -0,0 +1,280 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* PurityEASTVisitor Class
+* It implements the visitor pattern to find the functions and methods whose calls are pure: FOOL never updates
+* memory, so a call is pure when no print and no new (whose result is a different object at each evaluation) can
+* be reached from it, and evaluating it again with the same arguments gives the same value
+* Each visitNode method returns whether the evaluation of the node is pure, given the functions and methods found
+* impure so far; the declarations are visited until no more of them are found impure (recursive functions are
+* assumed pure until proved otherwise)
+* A method call is pure if all the methods it can reach (in the static class of the object and in its subclasses)
+* are pure; a call of a functional parameter is never pure
+* After the visit of the program, isPure tells whether any of its expressions is pure
+* */
+public class PurityEASTVisitor extends BaseEASTVisitor<Boolean, VoidException> {
+
+	private final Set<DecNode> impure = new HashSet<>(); // functions and methods whose body is not pure
+	private final Set<Node> pureCalls = new HashSet<>(); // call sites whose callees are all pure
+	private boolean analyzed = false; // true once a visit of the declarations finds no more impure ones
+
+	private final Map<STentry, FunNode> functions = new HashMap<>();
+	private final Map<String, ClassNode> classes = new HashMap<>();
+	private final Map<String, List<ClassNode>> subclasses = new HashMap<>(); // direct subclasses of each class
+
+	private ClassNode currentClass; // class whose methods are being visited (null outside classes)
+
+	PurityEASTVisitor() {}
+	PurityEASTVisitor(boolean debug) { super(false, debug); } // enables print for debugging
+
+	/*
+	 * Whether the evaluation of an expression of the visited program is pure
+	 * */
+	boolean isPure(Node exp) {
+		return visit(exp);
+	}
+
+	/*
+	 * Whether a function or method of the visited program is pure
+	 * */
+	boolean isPure(DecNode dec) {
+		return !impure.contains(dec);
+	}
+
+	/*
+	 * Methods at the given offset of the dispatch tables of a class and of its subclasses (direct or not):
+	 * declared in the class or inherited
+	 * */
+	private void implementations(ClassNode c, int offset, List<MethodNode> methods) {
+		search:
+		for (ClassNode s = c; s != null; s = s.superId == null ? null : classes.get(s.superId))
+			for (MethodNode method : s.methodNodeList)
+				if (method.offset == offset) {
+					methods.add(method);
+					break search;
+				}
+		for (ClassNode subclass : subclasses.getOrDefault(c.id, List.of())) implementations(subclass, offset, methods);
+	}
+
+	private boolean isPureMethod(ClassNode c, int offset) {
+		if (c == null) return false;
+		List<MethodNode> methods = new ArrayList<>();
+		implementations(c, offset, methods);
+		return methods.stream().noneMatch(impure::contains);
+	}
+
+	/*
+	 * Whether a call with the given arguments is pure: the purity of its callees is recorded during the analysis
+	 * */
+	private boolean call(Node n, List<Node> arguments, boolean pureCallees) {
+		boolean pure = true;
+		for (Node argument : arguments) pure &= visit(argument);
+		if (!analyzed && pureCallees) pureCalls.add(n);
+		return pure && pureCalls.contains(n);
+	}
+
+	private boolean visitBody(DecNode dec, List<DecNode> decs, Node exp) {
+		boolean pure = true;
+		for (DecNode d : decs) if (!(d instanceof FunNode)) pure &= visit(d);
+		pure &= visit(exp);
+		for (DecNode d : decs) if (d instanceof FunNode) visit(d); // nested functions only matter if called
+		if (!pure) impure.add(dec);
+		return true; // declarations have no effects
+	}
+
+	@Override
+	public Boolean visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) {
+			if (!(dec instanceof ClassNode c)) continue;
+			classes.put(c.id, c);
+			if (c.superId != null) subclasses.computeIfAbsent(c.superId, k -> new ArrayList<>()).add(c);
+		}
+		int found;
+		do {
+			found = impure.size();
+			pureCalls.clear();
+			for (Node dec : n.declist) visit(dec);
+			visit(n.exp);
+		} while (impure.size() != found);
+		analyzed = true;
+		return isPure(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(ProgNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		analyzed = true;
+		return isPure(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		functions.put(n.entry, n);
+		return visitBody(n, n.declist, n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		return visit(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(PrintNode n) {
+		if (print) printNode(n);
+		visit(n.exp);
+		return false;
+	}
+
+	@Override
+	public Boolean visitNode(IfNode n) {
+		if (print) printNode(n);
+		return visit(n.cond) & visit(n.th) & visit(n.el);
+	}
+
+	@Override
+	public Boolean visitNode(EqualNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(TimesNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(PlusNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	/*
+	 * A method called by its id, in the body of another method, is called on the object of the current method
+	 * */
+	@Override
+	public Boolean visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		boolean pureCallees;
+		if (n.entry.type instanceof MethodTypeNode) pureCallees = isPureMethod(currentClass, n.entry.offset);
+		else pureCallees = functions.containsKey(n.entry) && !impure.contains(functions.get(n.entry));
+		return call(n, n.arglist, pureCallees);
+	}
+
+	@Override
+	public Boolean visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return true;
+	}
+
+	@Override
+	public Boolean visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return true;
+	}
+
+	@Override
+	public Boolean visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return true;
+	}
+
+	@Override
+	public Boolean visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(OrNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(AndNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(DivNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(MinusNode n) {
+		if (print) printNode(n);
+		return visit(n.left) & visit(n.right);
+	}
+
+	@Override
+	public Boolean visitNode(NotNode n) {
+		if (print) printNode(n);
+		return visit(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		return visit(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(TempNode n) {
+		if (print) printNode(n);
+		return visit(n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		currentClass = n;
+		for (MethodNode method : n.methodNodeList) visit(method);
+		currentClass = null;
+		return true;
+	}
+
+	@Override
+	public Boolean visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		return visitBody(n, n.decList, n.exp);
+	}
+
+	@Override
+	public Boolean visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		ClassNode c = classes.get(((RefTypeNode) n.entry.type).id);
+		return call(n, n.arg, isPureMethod(c, n.methodEntry.offset));
+	}
+
+	@Override
+	public Boolean visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		for (Node argument : n.arg) visit(argument);
+		return false;
+	}
+
+	@Override
+	public Boolean visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return true;
+	}
+}
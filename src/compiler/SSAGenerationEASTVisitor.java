@@ -0,0 +1,336 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+import compiler.ssa.*;
+import compiler.ssa.Instr.Op;
+import svm.Label;
+import svm.Site;
+
+/*
+* SSAGenerationEASTVisitor Class
+* It implements the visitor pattern to translate the body of a function, of a method or of the main program into
+* the SSA intermediate representation, visiting the enriched AST
+* Each visitNode method appends the instructions computing the expression to the current block and returns the
+* instruction holding its value; if-then-else, && and || split the current block and join with a phi instruction
+* Local declarations are kept as SSA values: they are also written in the frame only when a nested function may read
+* them through its static link
+* Nested functions are generated by the code generation visitor, before the function containing them
+* The body of a function (or method) chosen for inlining replaces its call: its parameters are the values of the
+* arguments, its local declarations are SSA values and the frames it reaches through its static link are found
+* from the Access Link of the call
+* */
+public class SSAGenerationEASTVisitor extends BaseEASTVisitor<Instr, VoidException> {
+
+	private final CodeGenerationASTVisitor codeGenerator; // generates the code of nested functions
+	private Function function;
+	private Block current; // block the instructions are appended to
+	private final List<Instr> declarations = new ArrayList<>(); // values of the local declarations (FUN and METHOD)
+	private Inlined inlined; // body being inlined (null while translating the body of the function itself)
+
+	/*
+	 * Body of a function (or method) inlined at a call: its nodes are at the given nesting level
+	 * */
+	private static class Inlined {
+		final int nestingLevel;
+		final Instr accessLink;
+		final List<Instr> parameters;
+		final List<Instr> declarations = new ArrayList<>();
+
+		Inlined(int nestingLevel, Instr accessLink, List<Instr> parameters) {
+			this.nestingLevel = nestingLevel;
+			this.accessLink = accessLink;
+			this.parameters = parameters;
+		}
+	}
+
+	SSAGenerationEASTVisitor(CodeGenerationASTVisitor codeGenerator) {
+		this.codeGenerator = codeGenerator;
+	}
+
+	/*
+	 * Translate a function whose code starts at the given label
+	 * */
+	Function build(FunNode n, Label label) {
+		function = new Function(n.id, Function.Kind.FUN, label, n.parlist.size() + n.entry.lifted.size(),
+				CodeGenerationASTVisitor.frameSlots(n.declist));
+		function.memoized = n.memoized;
+		function.site = site(Site.Kind.ENTRY, n, n.id);
+		return body(n.declist, n.exp);
+	}
+
+	/*
+	 * Translate a method whose code starts at its label
+	 * */
+	Function build(MethodNode n) {
+		function = new Function(n.id, Function.Kind.METHOD, n.label, n.parList.size(),
+				CodeGenerationASTVisitor.frameSlots(n.decList));
+		function.site = site(Site.Kind.ENTRY, n, n.id);
+		return body(n.decList, n.exp);
+	}
+
+	/*
+	 * Translate the main expression: the global declarations are generated from the AST, before it
+	 * */
+	Function buildMain(List<DecNode> declist, Node exp) {
+		function = new Function("main", Function.Kind.MAIN, null, 0,
+				CodeGenerationASTVisitor.frameSlots(declist));
+		current = function.entry;
+		Instr value = visit(exp);
+		function.ret(current, value); // current is the block where the evaluation ends
+		return function;
+	}
+
+	private Function body(List<DecNode> declist, Node exp) {
+		current = function.entry;
+		// declarations are written in the frame only if a nested function may read them
+		boolean captured = declist.stream().anyMatch(dec -> dec instanceof FunNode);
+		for (DecNode dec : declist) {
+			if (dec instanceof FunNode fun) { // functions take no slot in the frame
+				codeGenerator.generateFunction(fun);
+				continue;
+			}
+			Instr value = visit(dec);
+			if (captured) instr(Op.STORE, -2 - declarations.size(), value);
+			declarations.add(value);
+		}
+		Instr value = visit(exp);
+		function.ret(current, value); // current is the block where the evaluation ends
+		return function;
+	}
+
+	/*
+	 * Site at the line of a node, if the code is profiled (null otherwise)
+	 * */
+	private Site site(Site.Kind kind, Node n, String name) {
+		return codeGenerator.profiling ? new Site(kind, n.getLine(), name) : null;
+	}
+
+	private Instr instr(Op op, int value, Instr... operands) {
+		return function.append(current, op, value, operands);
+	}
+
+	/*
+	 * Address of the frame containing a declaration: the global frame is at the top of the memory,
+	 * the others are reached following the static chain
+	 * */
+	private Instr frame(STentry entry, int nestingLevel) {
+		if (entry.nl == 0) return instr(Op.GP, 0);
+		if (inlined != null) { // the frame of the inlined body does not exist: start from its Access Link
+			Instr frame = inlined.accessLink;
+			for (int i = 1; i < nestingLevel - entry.nl; i++) frame = instr(Op.LOAD, 0, frame);
+			return frame;
+		}
+		Instr frame = instr(Op.FP, 0);
+		for (int i = 0; i < nestingLevel - entry.nl; i++) frame = instr(Op.LOAD, 0, frame);
+		return frame;
+	}
+
+	/*
+	 * Value of an identifier: local declarations of the current function are taken from their SSA value,
+	 * everything else is loaded from the frame containing it
+	 * */
+	private Instr id(STentry entry, int nestingLevel) {
+		int depth = nestingLevel - entry.nl;
+		if (depth == 0 && inlined != null)
+			return entry.offset > 0 ? inlined.parameters.get(entry.offset - 1) : inlined.declarations.get(-2 - entry.offset);
+		if (depth == 0 && function.kind != Function.Kind.MAIN && entry.offset <= -2)
+			return declarations.get(-2 - entry.offset);
+		return instr(Op.LOAD, entry.offset, frame(entry, nestingLevel));
+	}
+
+	/*
+	 * Translate if-then-else: both branches jump to a new block, whose phi instruction is the value
+	 * */
+	private Instr conditional(Instr cond, Node th, Node el) {
+		Block thenBlock = function.newBlock(), elseBlock = function.newBlock(), join = function.newBlock();
+		function.branch(current, cond, thenBlock, elseBlock);
+		current = thenBlock;
+		Instr thenValue = visit(th);
+		function.jump(current, join);
+		current = elseBlock;
+		Instr elseValue = visit(el);
+		function.jump(current, join);
+		current = join;
+		return instr(Op.PHI, 0, thenValue, elseValue);
+	}
+
+	/*
+	 * Translate the body of a function (or method) in place of a call, given the arguments in reversed order
+	 * followed by the Access Link
+	 * The calls in the inlined body are not inlined again
+	 * */
+	private Instr inline(DecNode callee, List<Instr> operands, int nestingLevel) {
+		List<Instr> parameters = new ArrayList<>(operands.subList(0, operands.size() - 1));
+		Collections.reverse(parameters);
+		inlined = new Inlined(nestingLevel, operands.get(operands.size() - 1), parameters);
+		List<DecNode> declist = callee instanceof FunNode f ? f.declist : ((MethodNode) callee).decList;
+		for (DecNode dec : declist) inlined.declarations.add(visit(dec));
+		Instr value = visit(callee instanceof FunNode f ? f.exp : ((MethodNode) callee).exp);
+		inlined = null;
+		return value;
+	}
+
+	@Override
+	public Instr visitNode(VarNode n) {
+		return visit(n.exp);
+	}
+
+	@Override
+	public Instr visitNode(PrintNode n) {
+		return instr(Op.PRINT, 0, visit(n.exp));
+	}
+
+	@Override
+	public Instr visitNode(IfNode n) {
+		return conditional(visit(n.cond), n.th, n.el);
+	}
+
+	@Override
+	public Instr visitNode(EqualNode n) {
+		return instr(Op.EQ, 0, visit(n.left), visit(n.right));
+	}
+
+	@Override
+	public Instr visitNode(TimesNode n) {
+		return instr(Op.MUL, 0, visit(n.left), visit(n.right));
+	}
+
+	@Override
+	public Instr visitNode(PlusNode n) {
+		return instr(Op.ADD, 0, visit(n.left), visit(n.right));
+	}
+
+	/*
+	 * A call whose target is an accessor becomes a load of the field from the object (accessors reached only
+	 * through the dispatch table are called)
+	 * */
+	@Override
+	public Instr visitNode(CallNode n) {
+		STentry field = DevirtualizationEASTVisitor.accessedField(n.target);
+		if (field != null) return instr(Op.LOAD, field.offset, frame(n.entry, n.nl));
+		List<Instr> operands = new ArrayList<>();
+		for (int i = n.arglist.size() - 1; i >= 0; i--) operands.add(visit(n.arglist.get(i))); // arguments in reversed order
+		operands.add(frame(n.entry, n.nl)); // Access Link
+		if (n.inline != null && inlined == null) return inline(n.inline, operands, n.entry.nl + 1);
+		Instr call = instr(Op.CALL, n.entry.offset, operands.toArray(new Instr[0]));
+		call.dispatch = n.entry.type instanceof MethodTypeNode;
+		call.label = n.target != null ? codeGenerator.methodLabel(n.target)
+				: call.dispatch ? null : codeGenerator.functionLabel(n.entry); // functions are called directly
+		call.site = site(Site.Kind.CALL, n, n.id);
+		return call;
+	}
+
+	@Override
+	public Instr visitNode(IdNode n) {
+		return id(n.entry, n.nestingLevel);
+	}
+
+	@Override
+	public Instr visitNode(BoolNode n) {
+		return instr(Op.CONST, n.val ? 1 : 0);
+	}
+
+	@Override
+	public Instr visitNode(IntNode n) {
+		return instr(Op.CONST, n.val);
+	}
+
+	@Override
+	public Instr visitNode(LessEqualNode n) {
+		return instr(Op.LE, 0, visit(n.left), visit(n.right));
+	}
+
+	@Override
+	public Instr visitNode(GreaterEqualNode n) {
+		return instr(Op.GE, 0, visit(n.left), visit(n.right));
+	}
+
+	/*
+	 * left || right is translated as if (left) then {true} else {right}
+	 * */
+	@Override
+	public Instr visitNode(OrNode n) {
+		return conditional(visit(n.left), new BoolNode(true), n.right);
+	}
+
+	/*
+	 * left && right is translated as if (left) then {right} else {false}
+	 * */
+	@Override
+	public Instr visitNode(AndNode n) {
+		return conditional(visit(n.left), n.right, new BoolNode(false));
+	}
+
+	@Override
+	public Instr visitNode(DivNode n) {
+		return instr(Op.DIV, 0, visit(n.left), visit(n.right));
+	}
+
+	@Override
+	public Instr visitNode(MinusNode n) {
+		return instr(Op.SUB, 0, visit(n.left), visit(n.right));
+	}
+
+	/*
+	 * !exp is translated as 1 - exp
+	 * */
+	@Override
+	public Instr visitNode(NotNode n) {
+		Instr value = visit(n.exp);
+		return instr(Op.SUB, 0, instr(Op.CONST, 1), value);
+	}
+
+	@Override
+	public Instr visitNode(ShiftLeftNode n) {
+		return instr(Op.SHL, n.bits, visit(n.exp));
+	}
+
+	/*
+	 * The temporary is a local declaration, kept as an SSA value: the value replaces the one reserved at entry
+	 * */
+	@Override
+	public Instr visitNode(TempNode n) {
+		Instr value = visit(n.exp);
+		(inlined != null ? inlined.declarations : declarations).set(-2 - n.entry.offset, value);
+		return value;
+	}
+
+	@Override
+	public Instr visitNode(ClassCallNode n) {
+		STentry field = DevirtualizationEASTVisitor.accessedField(n.target);
+		if (field != null) return instr(Op.LOAD, field.offset, id(n.entry, n.nestingLevel));
+		List<Instr> operands = new ArrayList<>();
+		for (int i = n.arg.size() - 1; i >= 0; i--) operands.add(visit(n.arg.get(i))); // arguments in reversed order
+		operands.add(id(n.entry, n.nestingLevel)); // object pointer as Access Link
+		if (n.inline != null && inlined == null) return inline(n.inline, operands, n.methodEntry.nl + 1);
+		Instr call = instr(Op.CALL, n.methodEntry.offset, operands.toArray(new Instr[0]));
+		if (n.target != null) call.label = codeGenerator.methodLabel(n.target); // devirtualized call
+		call.dispatch = true;
+		call.site = site(Site.Kind.CALL, n, n.methodId);
+		return call;
+	}
+
+	@Override
+	public Instr visitNode(NewNode n) {
+		if (n.preallocated) return instr(Op.CONST, codeGenerator.preallocate(n)); // the object is in the static data
+		List<Instr> fields = new ArrayList<>();
+		for (Node argument : n.arg) fields.add(visit(argument));
+		if (n.frame != null) { // the object does not escape: it is written in its slots of the frame
+			for (int i = 0; i < fields.size(); i++) instr(Op.STORE, n.frame.offset - 1 - i, fields.get(i));
+			instr(Op.STORE, n.frame.offset, instr(Op.LOAD, n.entry.offset, instr(Op.GP, 0)));
+			return instr(Op.ADD, 0, instr(Op.FP, 0), instr(Op.CONST, n.frame.offset));
+		}
+		return instr(Op.NEW, n.entry.offset, fields.toArray(new Instr[0]));
+	}
+
+	@Override
+	public Instr visitNode(EmptyNode n) {
+		return instr(Op.CONST, -1);
+	}
+}
@@ -1,6 +1,9 @@
 package compiler;
 
 import compiler.lib.*;
+import svm.Label;
+
+import java.util.List;
 
 /*
 * Class STentry
@@ -9,11 +12,15 @@ import compiler.lib.*;
 * The nesting level
 * The type
 * The offset
+* The label of the code, for functions (set by code generation)
+* The free variables passed as extra parameters, for lambda lifted functions
 * */
 public class STentry implements Visitable {
 	final int nl;
 	final TypeNode type;
-	final int offset;
+	int offset; // local declarations are moved when slots are added before them (escape analysis)
+	Label label;
+	List<STentry> lifted = List.of();
 	public STentry(int n, TypeNode t, int o) { nl = n; type = t; offset=o; }
 
 	@Override
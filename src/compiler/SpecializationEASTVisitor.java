@@ -0,0 +1,446 @@
+package compiler;
+
+import java.util.*;
+
+import compiler.AST.*;
+import compiler.exc.*;
+import compiler.lib.*;
+
+/*
+* SpecializationEASTVisitor Class
+* It implements the visitor pattern to specialize functions on the constant arguments of their calls: a call
+* passing int or bool constants is redirected to a copy of the function without those parameters, whose body reads
+* the constants in place of them and is then folded (see ConstantFoldingEASTVisitor), so that the conditions on
+* them are decided at compile time
+* Each visitNode method returns the node replacing the visited one (the node itself if nothing changes), which its
+* parent stores in place of it
+* Calls of the same function with the same constants share one specialization, recursive calls included, while a
+* recursive call with different constants keeps calling the function, so that recursion is not unrolled; the copy
+* is declared just before the function, at the same nesting level, so that it reaches the same frames, and its
+* declarations get new entries, as the later passes tell them apart by entry
+* Specializations are made in the order of visit, as long as the code growth stays within the budget
+* */
+public class SpecializationEASTVisitor extends BaseEASTVisitor<Node, VoidException> {
+
+	int specializedCalls = 0; // number of call sites redirected to a specialization
+	int specializations = 0; // number of functions copied
+	int growth = 0; // nodes added to the program by the specializations
+	int prunedBranches = 0; // if-then-else removed from the specializations by constant folding
+
+	private final int budget; // maximum code growth (in nodes)
+
+	private final Map<STentry, FunNode> functions = new HashMap<>();
+	// specializations of each function, by the constant arguments (null for the parameters which are kept)
+	private final Map<FunNode, Map<List<Object>, FunNode>> specialized = new HashMap<>();
+	private final Map<FunNode, List<FunNode>> copies = new HashMap<>(); // specializations to declare before each function
+
+	// function being copied, its constant arguments and the new entries of its declarations
+	private FunNode original;
+	private List<Object> constants;
+	private final Map<STentry, STentry> entries = new HashMap<>();
+	private int copiedNodes;
+
+	private final Map<FunNode, FunNode> origins = new HashMap<>(); // function each specialization is a copy of
+	private final Set<FunNode> visiting = new HashSet<>(); // functions whose specializations are being visited
+
+	SpecializationEASTVisitor(int budget) { this.budget = budget; }
+	SpecializationEASTVisitor(int budget, boolean debug) { super(false, debug); this.budget = budget; } // enables print for debugging
+
+	private List<Node> visitList(List<Node> nodes) {
+		List<Node> visited = new ArrayList<>();
+		for (Node node : nodes) visited.add(visit(node));
+		return Collections.unmodifiableList(visited);
+	}
+
+	/*
+	 * Declarations with the specializations of each function just before it
+	 * */
+	private List<DecNode> declare(List<DecNode> declist) {
+		List<DecNode> declared = new ArrayList<>();
+		for (DecNode dec : declist) declare(dec, declared);
+		return Collections.unmodifiableList(declared);
+	}
+
+	private void declare(DecNode dec, List<DecNode> declared) {
+		if (declared.contains(dec)) return; // already declared before a function
+		for (FunNode copy : copies.getOrDefault(dec, List.of())) declare(copy, declared);
+		declared.add(dec);
+	}
+
+	/*
+	 * The specialization of the function for the constant arguments of a call, made at the first request (null if
+	 * it does not fit in the budget)
+	 * */
+	private FunNode specialize(FunNode f, List<Object> key) {
+		Map<List<Object>, FunNode> byConstants = specialized.computeIfAbsent(f, k -> new HashMap<>());
+		if (byConstants.containsKey(key)) return byConstants.get(key);
+		FunNode origin = origins.getOrDefault(f, f);
+		if (visiting.contains(origin)) return null; // a recursive call with other constants would unroll the recursion
+		FunNode copy = copy(f, key);
+		if (growth + copiedNodes > budget) {
+			byConstants.put(key, null); // not tried again
+			return null;
+		}
+		growth += copiedNodes;
+		specializations++;
+		byConstants.put(key, copy);
+		origins.put(copy, origin);
+		copies.computeIfAbsent(f, k -> new ArrayList<>()).add(copy);
+		ConstantFoldingEASTVisitor foldingVisitor = new ConstantFoldingEASTVisitor();
+		foldingVisitor.visit(copy);
+		prunedBranches += foldingVisitor.prunedBranches;
+		visiting.add(origin);
+		visit(copy); // its calls can be specialized in turn
+		visiting.remove(origin);
+		return copy;
+	}
+
+	/*
+	 * Copy of the function without the parameters with a constant argument (the non-null elements of the key)
+	 * */
+	private FunNode copy(FunNode f, List<Object> key) {
+		original = f;
+		constants = key;
+		entries.clear();
+		copiedNodes = 0;
+		List<ParNode> parlist = new ArrayList<>();
+		List<TypeNode> parTypes = new ArrayList<>();
+		for (int i = 0; i < f.parlist.size(); i++) {
+			if (key.get(i) != null) continue;
+			ParNode par = f.parlist.get(i);
+			parlist.add(copy(par, new ParNode(par.id, par.getType())));
+			parTypes.add(par.getType());
+		}
+		List<DecNode> declist = new ArrayList<>();
+		for (DecNode dec : declare(f.declist)) declist.add(copyDec(dec)); // with the specializations made so far
+		FunNode copy = copy(f, new FunNode(f.id + "$" + specializations, f.retType, parlist, declist, copy(f.exp)));
+		copy.setType(new ArrowTypeNode(parTypes, f.retType));
+		copy.entry = new STentry(f.entry.nl, copy.getType(), f.entry.offset);
+		return copy;
+	}
+
+	/*
+	 * The new entry of a declaration of the function being copied (the same entry for the ones outside it)
+	 * A parameter of the function is renumbered, as the ones before it may have been removed
+	 * */
+	private STentry entry(STentry entry) {
+		if (entry == null || entry.nl <= original.entry.nl) return entry;
+		return entries.computeIfAbsent(entry, e -> {
+			int offset = e.offset;
+			if (e.nl == original.entry.nl + 1 && offset > 0)
+				offset = 1 + (int) constants.subList(0, offset - 1).stream().filter(Objects::isNull).count();
+			return new STentry(e.nl, e.type, offset);
+		});
+	}
+
+	/*
+	 * The constant argument of a parameter of the function being copied, read by an identifier (null otherwise)
+	 * */
+	private Node constant(IdNode n) {
+		if (n.entry.nl != original.entry.nl + 1 || n.entry.offset <= 0 || n.entry.offset > constants.size()) return null;
+		Object value = constants.get(n.entry.offset - 1);
+		if (value instanceof Integer i) return new IntNode(i);
+		if (value instanceof Boolean b) return new BoolNode(b);
+		return null;
+	}
+
+	private <T extends Node> T copy(Node n, T copy) {
+		copy.setLine(n.getLine());
+		copy.setColumn(n.getColumn());
+		copiedNodes++;
+		return copy;
+	}
+
+	private List<Node> copyList(List<Node> nodes) {
+		List<Node> copied = new ArrayList<>();
+		for (Node node : nodes) copied.add(copy(node));
+		return copied;
+	}
+
+	private DecNode copyDec(DecNode dec) {
+		if (dec instanceof VarNode n) {
+			VarNode copy = copy(n, new VarNode(n.id, n.getType(), copy(n.exp)));
+			copy.entry = entry(n.entry);
+			return copy;
+		}
+		FunNode n = (FunNode) dec;
+		List<ParNode> parlist = new ArrayList<>();
+		for (ParNode par : n.parlist) parlist.add(copy(par, new ParNode(par.id, par.getType())));
+		List<DecNode> declist = new ArrayList<>();
+		for (DecNode d : declare(n.declist)) declist.add(copyDec(d));
+		FunNode copy = copy(n, new FunNode(n.id, n.retType, parlist, declist, copy(n.exp)));
+		copy.setType(n.getType());
+		copy.entry = entry(n.entry);
+		return copy;
+	}
+
+	/*
+	 * Copy of an expression of the function being copied, reading the constants in place of their parameters
+	 * */
+	private Node copy(Node exp) {
+		if (exp instanceof IdNode n) {
+			Node constant = constant(n);
+			if (constant != null) return copy(n, constant);
+			IdNode copy = copy(n, new IdNode(n.id));
+			copy.entry = entry(n.entry);
+			copy.nestingLevel = n.nestingLevel;
+			return copy;
+		}
+		if (exp instanceof CallNode n) {
+			CallNode copy = copy(n, new CallNode(n.id, copyList(n.arglist)));
+			copy.entry = entry(n.entry);
+			copy.nl = n.nl;
+			copy.target = n.target;
+			copy.candidate = n.candidate;
+			return copy;
+		}
+		if (exp instanceof ClassCallNode n) {
+			ClassCallNode copy = copy(n, new ClassCallNode(n.id, n.methodId, copyList(n.arg)));
+			copy.entry = entry(n.entry);
+			copy.methodEntry = n.methodEntry; // entry of the class member, not of a declaration
+			copy.nestingLevel = n.nestingLevel;
+			copy.target = n.target;
+			copy.candidate = n.candidate;
+			return copy;
+		}
+		if (exp instanceof NewNode n) {
+			NewNode copy = copy(n, new NewNode(n.id, copyList(n.arg)));
+			copy.entry = n.entry; // entry of the class
+			copy.nestingLevel = n.nestingLevel;
+			return copy;
+		}
+		if (exp instanceof IntNode n) return copy(n, new IntNode(n.val));
+		if (exp instanceof BoolNode n) return copy(n, new BoolNode(n.val));
+		if (exp instanceof EmptyNode n) return copy(n, new EmptyNode());
+		if (exp instanceof PrintNode n) return copy(n, new PrintNode(copy(n.exp)));
+		if (exp instanceof IfNode n) return copy(n, new IfNode(copy(n.cond), copy(n.th), copy(n.el)));
+		if (exp instanceof NotNode n) return copy(n, new NotNode(copy(n.exp)));
+		if (exp instanceof ShiftLeftNode n) return copy(n, new ShiftLeftNode(copy(n.exp), n.bits));
+		if (exp instanceof EqualNode n) return copy(n, new EqualNode(copy(n.left), copy(n.right)));
+		if (exp instanceof TimesNode n) return copy(n, new TimesNode(copy(n.left), copy(n.right)));
+		if (exp instanceof PlusNode n) return copy(n, new PlusNode(copy(n.left), copy(n.right)));
+		if (exp instanceof MinusNode n) return copy(n, new MinusNode(copy(n.left), copy(n.right)));
+		if (exp instanceof DivNode n) return copy(n, new DivNode(copy(n.left), copy(n.right)));
+		if (exp instanceof LessEqualNode n) return copy(n, new LessEqualNode(copy(n.left), copy(n.right)));
+		if (exp instanceof GreaterEqualNode n) return copy(n, new GreaterEqualNode(copy(n.left), copy(n.right)));
+		if (exp instanceof AndNode n) return copy(n, new AndNode(copy(n.left), copy(n.right)));
+		OrNode n = (OrNode) exp;
+		return copy(n, new OrNode(copy(n.left), copy(n.right)));
+	}
+
+	@Override
+	public Node visitNode(ProgLetInNode n) {
+		if (print) printNode(n);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		n.declist = declare(n.declist);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ProgNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(FunNode n) {
+		if (print) printNode(n, n.id);
+		functions.put(n.entry, n);
+		for (Node dec : n.declist) visit(dec);
+		n.exp = visit(n.exp);
+		n.declist = declare(n.declist);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(VarNode n) {
+		if (print) printNode(n, n.id);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PrintNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IfNode n) {
+		if (print) printNode(n);
+		n.cond = visit(n.cond);
+		n.th = visit(n.th);
+		n.el = visit(n.el);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(TimesNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(PlusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	/*
+	 * A call of a function with int or bool constant arguments is replaced by the call of its specialization,
+	 * passing only the other arguments
+	 * */
+	@Override
+	public Node visitNode(CallNode n) {
+		if (print) printNode(n, n.id);
+		n.arglist = visitList(n.arglist);
+		FunNode f = n.entry.type instanceof ArrowTypeNode ? functions.get(n.entry) : null;
+		if (f == null) return n;
+		List<Object> key = new ArrayList<>();
+		List<Node> arglist = new ArrayList<>();
+		for (Node arg : n.arglist) {
+			key.add(arg instanceof IntNode i ? i.val : arg instanceof BoolNode b ? b.val : null);
+			if (key.get(key.size() - 1) == null) arglist.add(arg);
+		}
+		if (arglist.size() == n.arglist.size()) return n;
+		FunNode specialization = specialize(f, key);
+		if (specialization == null) return n;
+		CallNode call = new CallNode(specialization.id, arglist);
+		call.setLine(n.getLine());
+		call.entry = specialization.entry;
+		call.nl = n.nl;
+		specializedCalls++;
+		return call;
+	}
+
+	@Override
+	public Node visitNode(IdNode n) {
+		if (print) printNode(n, n.id);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(BoolNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(IntNode n) {
+		if (print) printNode(n, n.val.toString());
+		return n;
+	}
+
+	@Override
+	public Node visitNode(LessEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(GreaterEqualNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(OrNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(AndNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(DivNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MinusNode n) {
+		if (print) printNode(n);
+		n.left = visit(n.left);
+		n.right = visit(n.right);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NotNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ShiftLeftNode n) {
+		if (print) printNode(n);
+		n.exp = visit(n.exp);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassNode n) {
+		if (print) printNode(n, n.id);
+		for (MethodNode method : n.methodNodeList) visit(method);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(MethodNode n) {
+		if (print) printNode(n, n.id);
+		for (Node dec : n.decList) visit(dec);
+		n.exp = visit(n.exp);
+		n.decList = declare(n.decList);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(ClassCallNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(NewNode n) {
+		if (print) printNode(n, n.id);
+		n.arg = visitList(n.arg);
+		return n;
+	}
+
+	@Override
+	public Node visitNode(EmptyNode n) {
+		if (print) printNode(n);
+		return n;
+	}
+}
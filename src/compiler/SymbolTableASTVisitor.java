@@ -105,7 +105,9 @@ public class SymbolTableASTVisitor extends BaseASTVisitor<Void,VoidException> {
 		for (ParNode par : n.parlist) parTypes.add(par.getType());
 
 		// Create STentry for the function
-		STentry entry = new STentry(nestingLevel, new ArrowTypeNode(parTypes, n.retType), decOffset--);
+		// Functions are called directly through their label, so they do not take a slot in the frame
+		STentry entry = new STentry(nestingLevel, new ArrowTypeNode(parTypes, n.retType), 0);
+		n.entry = entry;
 
 		// Check if there is already a declaration of the same function id in the current scope
 		// Insert fun id into the current symbol table
@@ -167,6 +169,7 @@ public class SymbolTableASTVisitor extends BaseASTVisitor<Void,VoidException> {
 
 		// Create STentry for the variable
 		STentry entry = new STentry(nestingLevel, n.getType(), decOffset--);
+		n.entry = entry;
 
 		// Check if there is already a declaration of the same variable id in the current scope
 		// Insert var id into the current symbol table
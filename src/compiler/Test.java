@@ -1,10 +1,13 @@
 package compiler;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.List;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.*;
 import compiler.lib.*;
 import compiler.exc.*;
+import compiler.ssa.Optimizer;
 import svm.*;
 
 public class Test {
@@ -55,29 +58,85 @@ public class Test {
 		
 		if ( frontEndErrors > 0) System.exit(EXIT_WHIT_ERRORS);
 
+		// -jvm runs the program on the JVM, -jvm=file.jar writes its classes to a jar (the optimization passes,
+		// which annotate the AST for the virtual machine, are not run)
+		String jar = PassManager.option(args, "-jvm=");
+		if (jar != null || Arrays.asList(args).contains("-jvm")) {
+			System.out.println("Generating JVM classes.");
+			jvm.JvmProgram classes = new JvmCodeGenerationASTVisitor("FoolProgram").generate(ast);
+			if (jar != null) {
+				classes.writeJar(jar);
+				System.out.println("Classes written to "+jar+".");
+			} else {
+				System.out.println("Running generated classes via JVM.");
+				classes.run(System.out);
+			}
+			return;
+		}
+
+		// -c compiles the program to C with the system C compiler and runs it, -c=file.c writes the C source and
+		// compiles it into the executable file (the optimization passes are not run, like with -jvm)
+		String cFile = PassManager.option(args, "-c=");
+		if (cFile != null || Arrays.asList(args).contains("-c")) {
+			System.out.println("Generating C code.");
+			c.CProgram cProgram = new c.CProgram(new CCodeGenerationASTVisitor().generate(ast));
+			if (cFile != null) {
+				System.out.println("Executable "+cProgram.compile(java.nio.file.Paths.get(cFile))+" compiled from "+cFile+".");
+			} else {
+				cProgram.compile();
+				System.out.println("Running compiled C code.");
+				cProgram.run(System.out);
+			}
+			return;
+		}
+
+		// -interp runs the program on a tree of nodes compiled from the enriched AST, with no code generation,
+		// assembly or virtual machine (the optimization passes are not run, like with -jvm)
+		if (Arrays.asList(args).contains("-interp")) {
+			System.out.println("Running enriched AST compiled to a tree of nodes.");
+			new ClosureCompilationASTVisitor().compile(ast).run(System.out);
+			return;
+		}
+
+		// -profile=file writes the profile of the execution, -pgo=file optimizes with the profile of a previous one
+		String profileFile = PassManager.option(args, "-profile=");
+		String pgoFile = PassManager.option(args, "-pgo=");
+		Profile profile = pgoFile != null ? Profile.read(pgoFile) : null;
+
+		// optimization passes: -O0 (the default) to -O3, or each one by its option (see PassManager)
+		PassManager passManager = new PassManager(args, profile);
+		passManager.run(ast);
+		boolean memo = passManager.memoizes();
+
     	System.out.println("Generating code.");
-    	String code = new CodeGenerationASTVisitor().visit(ast);        
-    	BufferedWriter out = new BufferedWriter(new FileWriter(fileName+".asm")); 
-    	out.write(code);
-    	out.close(); 
+    	CodeEmitter emitter = new CodeEmitter();
+    	Optimizer optimizer = passManager.optimizer(); // optimizes function bodies in SSA form (null if none)
+    	passManager.statistics.measure("codegen", () -> new CodeGenerationASTVisitor(emitter, optimizer, profileFile != null, profile).visit(ast));
+    	List<Instruction> code = passManager.run(emitter.getCode());
+    	BufferedWriter out = new BufferedWriter(new FileWriter(fileName+".asm")); // textual code, needed only for debug
+    	Assembler.write(code, out);
+    	out.close();
     	System.out.println("");
 
     	System.out.println("Assembling generated code.");
-    	CharStream charsASM = CharStreams.fromFileName(fileName+".asm");
-    	SVMLexer lexerASM = new SVMLexer(charsASM);
-    	CommonTokenStream tokensASM = new CommonTokenStream(lexerASM);
-    	SVMParser parserASM = new SVMParser(tokensASM);
-
-    	parserASM.assembly();
-
-    	// needed only for debug
-    	System.out.println("You had: "+lexerASM.lexicalErrors+" lexical errors and "+parserASM.getNumberOfSyntaxErrors()+" syntax errors.\n");
-    	if (lexerASM.lexicalErrors+parserASM.getNumberOfSyntaxErrors()>0) System.exit(EXIT_WHIT_ERRORS);
+    	List<Instruction> assembled = code;
+    	int[] program = passManager.statistics.measure("assemble", () -> Assembler.assemble(assembled)); // no need to parse the textual code again
+    	System.out.println("Assembled "+code.size()+" instructions in "+program.length+" words.\n");
+    	passManager.report();
 
     	System.out.println("Running generated code via Stack Virtual Machine.");
-    	ExecuteVM vm = new ExecuteVM(parserASM.code);
+    	Profiler profiler = profileFile != null ? new Profiler(code) : null;
+    	ExecuteVM vm = profiler != null ? new ProfilingVM(program, profiler) : new ExecuteVM(program);
     	vm.cpu();
+    	if (memo) System.out.println("\nMemo table: "+vm.memoHits+" hits, "+vm.memoMisses+" misses, "
+    			+vm.memoEvictions+" evictions.");
+    	if (profiler != null) {
+    		BufferedWriter profileOut = new BufferedWriter(new FileWriter(profileFile));
+    		profiler.write(profileOut);
+    		profileOut.close();
+    		System.out.println("\nProfile written to "+profileFile+".");
+    	}
 
     }
-}
 
+}
@@ -76,6 +76,8 @@ public class BaseASTVisitor<S,E extends Exception> {
 	public S visitNode(OrNode n) throws E {throw new UnimplException();}
 	public S visitNode(DivNode n) throws E {throw new UnimplException();}
 	public S visitNode(AndNode n) throws E {throw new UnimplException();}
+	public S visitNode(ShiftLeftNode n) throws E {throw new UnimplException();}
+	public S visitNode(TempNode n) throws E {throw new UnimplException();}
 
 	// OBJECT-ORIENTED EXTENSION
 
@@ -0,0 +1,126 @@
+package compiler.lib;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import svm.*;
+
+/*
+* CodeEmitter Class
+* Collects the generated code as a list of SVM instructions
+* The code of the main program is appended to the list while it is generated, while the code of functions and methods
+* is collected in a separate section which is appended to the list after the main program
+* The static data (dispatch tables and objects built at compile time) goes to a third section, which the program
+* copies to the beginning of the heap with its first instruction
+* */
+public class CodeEmitter {
+
+	private final List<Instruction> code = new ArrayList<>();
+
+	// section with the code of all functions and methods, appended to the code by emitFunctions
+	private final List<Instruction> funCode = new ArrayList<>();
+
+	// section with the words of the static data, whose heap address is their index
+	private final List<Instruction> data = new ArrayList<>();
+	private int dataWords = 0;
+
+	// stack of the function bodies currently being generated (the innermost on top)
+	private final Deque<List<Instruction>> bodies = new ArrayDeque<>();
+
+	/*
+	 * Append an instruction to the innermost function body, or to the main code if no function is open
+	 * */
+	public void emit(Instruction instruction) {
+		(bodies.isEmpty() ? code : bodies.peek()).add(instruction);
+	}
+
+	public void emit(Opcode opcode) {
+		emit(new Instruction(opcode));
+	}
+
+	public void emit(Opcode opcode, int value) {
+		emit(new Instruction(opcode, value));
+	}
+
+	public void emit(Opcode opcode, Label label) {
+		emit(new Instruction(opcode, label));
+	}
+
+	/*
+	 * Append the definition of a label
+	 * */
+	public void label(Label label) {
+		emit(new Instruction(Opcode.LABEL, label));
+	}
+
+	/*
+	 * Append the marker of a profiled site, for the instruction following it
+	 * */
+	public void site(Site site) {
+		emit(new Instruction(site));
+	}
+
+	/*
+	 * Append a word to the static data, returning its address
+	 * */
+	public int data(int value) {
+		data.add(new Instruction(Opcode.WORD, value));
+		return dataWords++;
+	}
+
+	public int data(Label label) {
+		data.add(new Instruction(Opcode.WORD, label));
+		return dataWords++;
+	}
+
+	/*
+	 * Append the marker of a profiled site to the static data, for the word following it
+	 * */
+	public void dataSite(Site site) {
+		data.add(new Instruction(site));
+	}
+
+	/*
+	 * Address of the next word of the static data
+	 * */
+	public int dataSize() {
+		return dataWords;
+	}
+
+	/*
+	 * Start the code of a function (or method): subsequent instructions go to its body until endFunction
+	 * */
+	public void beginFunction() {
+		bodies.push(new ArrayList<>());
+	}
+
+	/*
+	 * Close the innermost function and move its code to the function section
+	 * */
+	public void endFunction() {
+		funCode.addAll(bodies.pop());
+	}
+
+	/*
+	 * Append the function section to the code, once the main program is complete
+	 * */
+	public void emitFunctions() {
+		if (!bodies.isEmpty()) throw new IllegalStateException("Unterminated function code");
+		code.addAll(funCode);
+		funCode.clear();
+	}
+
+	/*
+	 * Return the generated code, preceded by the static data if any
+	 * */
+	public List<Instruction> getCode() {
+		if (data.isEmpty()) return code;
+		List<Instruction> program = new ArrayList<>();
+		program.add(new Instruction(Opcode.DATA, dataWords));
+		program.addAll(data);
+		program.addAll(code);
+		return program;
+	}
+}
@@ -8,6 +8,12 @@ public abstract class Node implements Visitable {
 
 	public int getLine() { return line; }
 
+	int column=-1;  // column -1 means unset (it is set only where the line does not identify the node)
+
+	public void setColumn(int c) { column=c; }
+
+	public int getColumn() { return column; }
+
 }
 
 	  
\ No newline at end of file
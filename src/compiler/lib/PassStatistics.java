@@ -0,0 +1,56 @@
+package compiler.lib;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Supplier;
+
+/*
+* PassStatistics Class
+* Wall time and bytes allocated by the compiler thread in each pass, added up over the runs of the pass
+* A pass running inside another one (like the passes on the SSA form during code generation) is counted in both
+* Allocated bytes are measured by the ThreadMXBean of HotSpot: where it is not available they are -1
+* */
+public class PassStatistics {
+
+	private final Map<String, long[]> passes = new LinkedHashMap<>(); // runs, nanoseconds and bytes, in order of first run
+
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+			return threads.getCurrentThreadAllocatedBytes();
+		return -1;
+	}
+
+	/*
+	 * Run a pass, recording its time and allocated bytes, and return its result
+	 * */
+	public <T> T measure(String pass, Supplier<T> run) {
+		long[] statistics = passes.computeIfAbsent(pass, k -> new long[3]);
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		T result = run.get();
+		statistics[1] += System.nanoTime() - start;
+		statistics[2] = bytes < 0 ? -1 : statistics[2] + allocatedBytes() - bytes;
+		statistics[0]++;
+		return result;
+	}
+
+	public void measure(String pass, Runnable run) {
+		measure(pass, () -> {
+			run.run();
+			return null;
+		});
+	}
+
+	/*
+	 * Write a line for each pass: its name, runs, time in milliseconds and allocated bytes
+	 * */
+	public void write(Appendable out) throws IOException {
+		for (Map.Entry<String, long[]> pass : passes.entrySet()) {
+			long[] statistics = pass.getValue();
+			out.append(String.format("  %-24s %6d runs %10.3f ms %12d bytes%n",
+					pass.getKey(), statistics[0], statistics[1] / 1e6, statistics[2]));
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package compiler.lib;
+
+import java.io.*;
+import java.util.*;
+
+import svm.*;
+
+/*
+* Profile Class
+* The profile of an execution of the program, as written by svm.Profiler, read back to guide the optimizations
+* Sites are looked up by the line of their node and a name, or by the line and column of an if-then-else (see
+* svm.Site): a site missing from the profile was never reached by the code profiled
+* */
+public class Profile {
+
+	private static final double SUPERINSTRUCTION_SHARE = 0.01; // instructions a superinstruction must save, at least
+
+	private long instructions = 0; // instructions executed
+	private final Map<String, Long> counts = new HashMap<>(); // entry and call sites
+	private final Map<String, long[]> branches = new HashMap<>(); // executions and else branches at each position
+	private final Map<String, Map<String, Long>> receivers = new HashMap<>(); // classes at each dispatch site
+	private final Map<String, Long> sequences = new HashMap<>(); // executions of the pattern of each superinstruction
+
+	public static Profile read(String fileName) throws IOException {
+		Profile profile = new Profile();
+		try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] words = line.trim().split("\\s+");
+				switch (words[0]) {
+					case "instructions" -> profile.instructions = Long.parseLong(words[1]);
+					case "entry", "call" -> profile.counts.merge(words[0] + " " + words[1] + " " + words[2],
+							Long.parseLong(words[3]), Long::sum);
+					case "branch" -> profile.branches.put(words[1],
+							new long[] {Long.parseLong(words[2]), Long.parseLong(words[3])});
+					case "dispatch" -> {
+						Map<String, Long> histogram = new HashMap<>();
+						for (int i = 3; i + 1 < words.length; i += 2) histogram.put(words[i], Long.parseLong(words[i + 1]));
+						profile.receivers.put(words[0] + " " + words[1] + " " + words[2], histogram);
+					}
+					case "sequence" -> profile.sequences.put(words[1], Long.parseLong(words[2]));
+					default -> {} // empty line
+				}
+			}
+		}
+		return profile;
+	}
+
+	/*
+	 * Executions of the calls of a function (or method) at the line of a node
+	 * */
+	public long calls(Node n, String callee) {
+		return counts.getOrDefault(new Site(Site.Kind.CALL, n.getLine(), callee).toString(), 0L);
+	}
+
+	/*
+	 * Executions of the conditional branch of an if-then-else, found by the line and column of its node, and how
+	 * many of them reached the else branch (null if it was not profiled)
+	 * */
+	public long[] branch(Node n) {
+		return branches.get(new Site(Site.Kind.BRANCH, n.getLine(), n.getColumn(), null).position());
+	}
+
+	/*
+	 * The class of the objects on which a method is called at the line of a node, if it is the class of the given
+	 * share of them at least (null otherwise)
+	 * */
+	public String receiver(Node n, String method, double share) {
+		Map<String, Long> histogram = receivers.get(new Site(Site.Kind.DISPATCH, n.getLine(), method).toString());
+		if (histogram == null) return null;
+		long total = histogram.values().stream().mapToLong(Long::longValue).sum();
+		for (Map.Entry<String, Long> receiver : histogram.entrySet())
+			if (receiver.getValue() > 0 && receiver.getValue() >= share * total) return receiver.getKey();
+		return null;
+	}
+
+	/*
+	 * The superinstructions worth using: those whose pattern, replaced, saves at least SUPERINSTRUCTION_SHARE of
+	 * the instructions executed
+	 * */
+	public List<Opcode> superinstructions() {
+		List<Opcode> selected = new ArrayList<>();
+		for (Opcode superinstruction : Superinstructions.ALL) {
+			long saved = sequences.getOrDefault(superinstruction.mnemonic, 0L) * (superinstruction.pattern.size() - 1);
+			if (saved > 0 && saved >= SUPERINSTRUCTION_SHARE * instructions) selected.add(superinstruction);
+		}
+		return selected;
+	}
+}
@@ -0,0 +1,62 @@
+package compiler.ssa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Block Class
+* A basic block of the SSA intermediate representation: phi instructions, then the other instructions in
+* evaluation order, then a terminator (JUMP, BRANCH or RETURN)
+* Blocks with phi instructions are only entered through JUMPs, so that no edge needs to be split when lowering
+* */
+public class Block {
+
+	public enum Kind { JUMP, BRANCH, RETURN }
+
+	public final List<Instr> instrs = new ArrayList<>();
+	public final List<Block> preds = new ArrayList<>();
+
+	public Kind kind;
+	public Instr operand;   // BRANCH condition or RETURN value
+	public Block target;    // JUMP target, or BRANCH target when the condition is true
+	public Block other;     // BRANCH target when the condition is false
+	int id;
+
+	/*
+	 * Successors of the block, in the order of the terminator
+	 * */
+	public List<Block> succs() {
+		List<Block> succs = new ArrayList<>();
+		if (kind == Kind.JUMP) succs.add(target);
+		if (kind == Kind.BRANCH) {
+			succs.add(target);
+			succs.add(other);
+		}
+		return succs;
+	}
+
+	/*
+	 * The phi instructions at the beginning of the block
+	 * */
+	public List<Instr> phis() {
+		List<Instr> phis = new ArrayList<>();
+		for (Instr instr : instrs)
+			if (instr.op == Instr.Op.PHI) phis.add(instr);
+		return phis;
+	}
+
+	/*
+	 * Replace the terminator with a jump
+	 * */
+	public void jump(Block block) {
+		kind = Kind.JUMP;
+		operand = null;
+		target = block;
+		other = null;
+	}
+
+	@Override
+	public String toString() {
+		return "b" + id;
+	}
+}
@@ -0,0 +1,35 @@
+package compiler.ssa;
+
+import java.util.*;
+
+/*
+* DeadCodeElimination Class
+* Remove the instructions whose value is never used, directly or indirectly, by an instruction with effects
+* or by a terminator, and the blocks which are not reachable from the entry
+* */
+public class DeadCodeElimination implements Pass {
+
+	@Override
+	public String name() {
+		return "dce";
+	}
+
+	@Override
+	public boolean run(Function function) {
+		boolean changed = function.removeUnreachableBlocks();
+		Set<Instr> live = new HashSet<>();
+		Deque<Instr> worklist = new ArrayDeque<>();
+		for (Block block : function.blocks) {
+			for (Instr instr : block.instrs)
+				if (instr.hasEffects()) worklist.add(instr);
+			if (block.operand != null) worklist.add(block.operand);
+		}
+		while (!worklist.isEmpty()) {
+			Instr instr = worklist.poll();
+			if (live.add(instr)) worklist.addAll(instr.operands);
+		}
+		for (Block block : function.blocks)
+			changed |= block.instrs.retainAll(live);
+		return changed;
+	}
+}
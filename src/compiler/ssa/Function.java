@@ -0,0 +1,208 @@
+package compiler.ssa;
+
+import java.util.*;
+
+import svm.Label;
+import svm.Site;
+
+/*
+* Function Class
+* The SSA intermediate representation of the body of a function, of a method or of the main program
+* The frame layout is the one built by the code generation: parameters and access link above the frame pointer,
+* return address and local declarations below it
+* */
+public class Function {
+
+	public enum Kind { FUN, METHOD, MAIN }
+
+	public final String name;
+	public final Kind kind;
+	public final Label label;     // entry label (null for MAIN)
+	public final int parameters;  // number of parameters
+	public final int declarations; // number of local declarations (global ones for MAIN)
+	public final Block entry;
+	public final List<Block> blocks = new ArrayList<>();
+	public boolean memoized; // FUN only: the results are kept in the memo table of the virtual machine
+	public Site site;        // FUN and METHOD only: the entry site, if the code is profiled
+
+	public Function(String name, Kind kind, Label label, int parameters, int declarations) {
+		this.name = name;
+		this.kind = kind;
+		this.label = label;
+		this.parameters = parameters;
+		this.declarations = declarations;
+		this.entry = newBlock();
+	}
+
+	public Block newBlock() {
+		Block block = new Block();
+		blocks.add(block);
+		return block;
+	}
+
+	/*
+	 * Append an instruction to a block (phi instructions are kept at its beginning)
+	 * */
+	public Instr append(Block block, Instr instr) {
+		instr.block = block;
+		if (instr.op == Instr.Op.PHI) block.instrs.add(block.phis().size(), instr);
+		else block.instrs.add(instr);
+		return instr;
+	}
+
+	public Instr append(Block block, Instr.Op op, int value, Instr... operands) {
+		return append(block, new Instr(op, value, operands));
+	}
+
+	/*
+	 * Set the terminator of a block and update the predecessors of its successors
+	 * */
+	public void jump(Block from, Block to) {
+		from.jump(to);
+		to.preds.add(from);
+	}
+
+	public void branch(Block from, Instr cond, Block ifTrue, Block ifFalse) {
+		from.kind = Block.Kind.BRANCH;
+		from.operand = cond;
+		from.target = ifTrue;
+		from.other = ifFalse;
+		ifTrue.preds.add(from);
+		ifFalse.preds.add(from);
+	}
+
+	public void ret(Block from, Instr value) {
+		from.kind = Block.Kind.RETURN;
+		from.operand = value;
+	}
+
+	/*
+	 * Remove the edge from a block to one of its successors, dropping the corresponding phi operands
+	 * */
+	public void removeEdge(Block from, Block to) {
+		int index = to.preds.indexOf(from);
+		to.preds.remove(index);
+		for (Instr phi : to.phis()) phi.operands.remove(index);
+	}
+
+	/*
+	 * Replace an instruction with another one, placed at the same position of the same block
+	 * */
+	public void replace(Instr old, Instr replacement) {
+		Block block = old.block;
+		block.instrs.set(block.instrs.indexOf(old), replacement);
+		replacement.block = block;
+		replaceAllUses(old, replacement);
+	}
+
+	/*
+	 * Remove an instruction, replacing its uses with another instruction defined elsewhere
+	 * */
+	public void remove(Instr old, Instr replacement) {
+		old.block.instrs.remove(old);
+		replaceAllUses(old, replacement);
+	}
+
+	/*
+	 * Replace every use of an instruction with another instruction
+	 * */
+	public void replaceAllUses(Instr old, Instr replacement) {
+		for (Block block : blocks) {
+			for (Instr instr : block.instrs) instr.operands.replaceAll(o -> o == old ? replacement : o);
+			if (block.operand == old) block.operand = replacement;
+		}
+	}
+
+	/*
+	 * Blocks reachable from the entry, in reverse postorder
+	 * */
+	public List<Block> reversePostorder() {
+		List<Block> order = new ArrayList<>();
+		Set<Block> visited = new HashSet<>();
+		Deque<Iterator<Block>> stack = new ArrayDeque<>();
+		Deque<Block> path = new ArrayDeque<>();
+		visited.add(entry);
+		stack.push(entry.succs().iterator());
+		path.push(entry);
+		while (!stack.isEmpty()) {
+			Iterator<Block> succs = stack.peek();
+			if (succs.hasNext()) {
+				Block succ = succs.next();
+				if (visited.add(succ)) {
+					stack.push(succ.succs().iterator());
+					path.push(succ);
+				}
+			} else {
+				stack.pop();
+				order.add(path.pop());
+			}
+		}
+		Collections.reverse(order);
+		return order;
+	}
+
+	/*
+	 * Remove the blocks which are not reachable from the entry
+	 * Return true if some block has been removed
+	 * */
+	public boolean removeUnreachableBlocks() {
+		Set<Block> reachable = new HashSet<>(reversePostorder());
+		boolean changed = false;
+		for (Block block : new ArrayList<>(blocks)) {
+			if (reachable.contains(block)) continue;
+			for (Block succ : block.succs())
+				if (reachable.contains(succ)) removeEdge(block, succ);
+			blocks.remove(block);
+			changed = true;
+		}
+		return changed;
+	}
+
+	/*
+	 * Map each instruction to the number of its uses (as operand of an instruction or of a terminator)
+	 * */
+	public Map<Instr, Integer> useCounts() {
+		Map<Instr, Integer> uses = new HashMap<>();
+		for (Block block : blocks) {
+			for (Instr instr : block.instrs)
+				for (Instr operand : instr.operands) uses.merge(operand, 1, Integer::sum);
+			if (block.operand != null) uses.merge(block.operand, 1, Integer::sum);
+		}
+		return uses;
+	}
+
+	/*
+	 * Number of instructions, terminators excluded
+	 * */
+	public int size() {
+		int size = 0;
+		for (Block block : blocks) size += block.instrs.size();
+		return size;
+	}
+
+	/*
+	 * Give consecutive numbers to blocks and instructions, for printing
+	 * */
+	public void renumber() {
+		int b = 0, i = 0;
+		for (Block block : blocks) {
+			block.id = b++;
+			for (Instr instr : block.instrs) instr.id = i++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		renumber();
+		StringBuilder s = new StringBuilder(kind.name().toLowerCase() + " " + name + ":\n");
+		for (Block block : blocks) {
+			s.append(block).append(": preds ").append(block.preds).append('\n');
+			for (Instr instr : block.instrs) s.append("  ").append(instr.describe()).append('\n');
+			s.append("  ").append(block.kind.name().toLowerCase());
+			if (block.operand != null) s.append(" ").append(block.operand);
+			for (Block succ : block.succs()) s.append(" ").append(succ);
+			s.append('\n');
+		}
+		return s.toString();
+	}
+}
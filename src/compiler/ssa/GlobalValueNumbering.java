@@ -0,0 +1,99 @@
+package compiler.ssa;
+
+import java.util.*;
+
+import compiler.ssa.Instr.Op;
+
+/*
+* GlobalValueNumbering Class
+* Replace a pure instruction with an equivalent one computed in a dominating position
+* Blocks are visited along the dominator tree, keeping a scoped table of the available values
+* */
+public class GlobalValueNumbering implements Pass {
+
+	private Map<List<Object>, Instr> available;
+	private boolean changed;
+
+	@Override
+	public String name() {
+		return "gvn";
+	}
+
+	@Override
+	public boolean run(Function function) {
+		function.renumber();
+		available = new HashMap<>();
+		changed = false;
+		Map<Block, List<Block>> children = dominatorTree(function);
+		visit(function, function.entry, children);
+		return changed;
+	}
+
+	private void visit(Function function, Block block, Map<Block, List<Block>> children) {
+		List<List<Object>> added = new ArrayList<>();
+		for (Instr instr : new ArrayList<>(block.instrs)) {
+			if (!instr.isPure()) continue;
+			List<Object> key = key(instr);
+			Instr previous = available.get(key);
+			if (previous != null) {
+				function.remove(instr, previous);
+				changed = true;
+			} else {
+				available.put(key, instr);
+				added.add(key);
+			}
+		}
+		for (Block child : children.getOrDefault(block, List.of())) visit(function, child, children);
+		for (List<Object> key : added) available.remove(key);
+	}
+
+	/*
+	 * Key identifying the value computed by a pure instruction, with the operands of commutative operations sorted
+	 * */
+	private List<Object> key(Instr instr) {
+		List<Object> key = new ArrayList<>(List.of(instr.op, instr.value));
+		List<Instr> operands = new ArrayList<>(instr.operands);
+		if (instr.op == Op.ADD || instr.op == Op.MUL || instr.op == Op.EQ) operands.sort(Comparator.comparingInt(o -> o.id));
+		key.addAll(operands);
+		return key;
+	}
+
+	/*
+	 * Compute the immediate dominators with the iterative algorithm by Cooper, Harvey and Kennedy
+	 * and return the children of each block in the dominator tree
+	 * */
+	static Map<Block, List<Block>> dominatorTree(Function function) {
+		List<Block> order = function.reversePostorder();
+		Map<Block, Integer> index = new HashMap<>();
+		for (int i = 0; i < order.size(); i++) index.put(order.get(i), i);
+		Map<Block, Block> idom = new HashMap<>();
+		idom.put(function.entry, function.entry);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Block block : order.subList(1, order.size())) {
+				Block newIdom = null;
+				for (Block pred : block.preds) {
+					if (!idom.containsKey(pred)) continue;
+					newIdom = newIdom == null ? pred : intersect(pred, newIdom, idom, index);
+				}
+				if (newIdom != idom.get(block)) {
+					idom.put(block, newIdom);
+					changed = true;
+				}
+			}
+		}
+		Map<Block, List<Block>> children = new HashMap<>();
+		for (Block block : order.subList(1, order.size()))
+			children.computeIfAbsent(idom.get(block), b -> new ArrayList<>()).add(block);
+		return children;
+	}
+
+	private static Block intersect(Block a, Block b, Map<Block, Block> idom, Map<Block, Integer> index) {
+		while (a != b) {
+			while (index.get(a) > index.get(b)) a = idom.get(a);
+			while (index.get(b) > index.get(a)) b = idom.get(b);
+		}
+		return a;
+	}
+}
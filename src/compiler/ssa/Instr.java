@@ -0,0 +1,95 @@
+package compiler.ssa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import svm.Label;
+import svm.Site;
+
+/*
+* Instr Class
+* An instruction of the SSA intermediate representation, which is also the value it defines
+* Memory is only read through explicit LOADs from a base address (the frame pointer, a static link, an object):
+* FOOL never updates a word after it has been initialized, so loads have no side effects
+* */
+public class Instr {
+
+	public enum Op {
+		CONST,   // integer constant: value
+		FP,      // frame pointer of the current function
+		GP,      // address of the global frame, at the top of the memory (its size is set when the program runs)
+		LOAD,    // memory[operand0 + value]
+		ADD, SUB, MUL, DIV,
+		SHL,     // operand0 multiplied by 2 to the power of value
+		EQ, LE, GE,
+		PRINT,   // print operand0 and return it
+		CALL,    // call label, or through the frame (or dispatch table, if dispatch) at operand(last) + value, with the other operands as arguments
+		NEW,     // allocate an object with the operands as fields and the dispatch pointer stored at offset value of the global frame
+		STORE,   // initialize the local declaration at offset value of the current frame with operand0
+		PHI      // one operand for each predecessor of the block, in the same order
+	}
+
+	public final Op op;
+	public final List<Instr> operands;
+	public int value;          // constant, offset or address, depending on op
+	public Label label;        // CALL only: the label of the function, when it is called directly
+	public boolean dispatch;   // CALL only: the address is found in the dispatch table of operand(last)
+	public Site site;          // CALL only: the call site, if the code is profiled (the dispatch site has the same line)
+	Block block;
+	int id;
+
+	Instr(Op op, int value, Instr... operands) {
+		this.op = op;
+		this.value = value;
+		this.operands = new ArrayList<>(Arrays.asList(operands));
+	}
+
+	public Block getBlock() {
+		return block;
+	}
+
+	/*
+	 * Whether the instruction may print, allocate, call, write memory or stop the program (division by zero)
+	 * Such instructions are never removed nor reordered with respect to each other
+	 * */
+	public boolean hasEffects() {
+		return switch (op) {
+			case PRINT, CALL, NEW, STORE -> true;
+			case DIV -> !(operands.get(1).op == Op.CONST && operands.get(1).value != 0);
+			default -> false;
+		};
+	}
+
+	/*
+	 * Whether the instruction computes its value only from its operands and fields
+	 * */
+	public boolean isPure() {
+		return !hasEffects() && op != Op.PHI;
+	}
+
+	public boolean isConst() {
+		return op == Op.CONST;
+	}
+
+	@Override
+	public String toString() {
+		return "%" + id;
+	}
+
+	/*
+	 * Textual form of the instruction, used for debugging
+	 * */
+	public String describe() {
+		StringBuilder s = new StringBuilder();
+		if (op != Op.STORE) s.append(this).append(" = ");
+		s.append(op.name().toLowerCase());
+		switch (op) {
+			case CONST, LOAD, NEW, STORE, SHL -> s.append(" ").append(value);
+			case CALL -> s.append(label != null ? " " + label : dispatch ? " dispatch " + value : " " + value);
+			default -> {}
+		}
+		for (Instr operand : operands) s.append(" ").append(operand);
+		return s.toString();
+	}
+}
@@ -0,0 +1,538 @@
+package compiler.ssa;
+
+import java.util.*;
+
+import compiler.lib.CodeEmitter;
+import compiler.ssa.Instr.Op;
+import svm.*;
+
+import static compiler.lib.FOOLlib.*;
+import static svm.Opcode.*;
+
+/*
+* Lowering Class
+* Translate a function in SSA form back to SVM code, scheduling its values on the stack
+* Within a block, an instruction used once by a later instruction (or by the terminator) is emitted as part of the
+* code of its user, like in the code generated from the AST; instructions with effects are moved to their user
+* only when that does not change their order with respect to the other effects
+* Constants, the frame pointer and short chains of loads from them are recomputed at every use
+* The remaining values stay on top of the stack when their only user comes right after them,
+* otherwise they are stored in temporary slots of the frame, allocated after the local declarations
+* The value of the phi instruction of a block is left on the stack by the jumps of its predecessors
+* */
+public class Lowering {
+
+	private static final int MAX_REMAT_LOADS = 2; // loads recomputed at every use instead of being stored
+
+	private final Function function;
+	private final CodeEmitter code;
+	private final List<Instruction> body = new ArrayList<>();
+	private final List<Integer> returns = new ArrayList<>(); // positions in body where the epilogue is inserted
+
+	private final Map<Instr, List<Object>> uses = new HashMap<>(); // users: instructions or blocks (terminators)
+	private final Set<Instr> inlined = new HashSet<>();
+	private final Map<Instr, Integer> temps = new HashMap<>();
+	private final Map<Block, Label> labels = new HashMap<>();
+
+	private Instr carried; // value on top of the stack, used only by a later instruction of the current block
+	private Instr consume; // value already on top of the stack, to be used by the instruction being emitted
+
+	public Lowering(Function function, CodeEmitter code) {
+		this.function = function;
+		this.code = code;
+	}
+
+	/*
+	 * Emit the code of the function: for functions and methods the whole activation, for the main program only the
+	 * code of its expression (the declarations being generated from the AST), which leaves its value on the stack
+	 * */
+	public void lower() {
+		collectUses();
+		List<Block> order = function.reversePostorder();
+		for (Block block : order) labels.put(block, freshLabel());
+		for (int i = 0; i < order.size(); i++)
+			lower(order.get(i), i + 1 < order.size() ? order.get(i + 1) : null);
+
+		int slots = function.declarations + temps.size();
+		if (function.kind == Function.Kind.MAIN) {
+			for (int i = 0; i < temps.size(); i++) code.emit(PUSH, 0); // temporary slots after the global declarations
+			body.forEach(code::emit);
+			return;
+		}
+		code.beginFunction();
+		code.label(function.label);
+		if (function.site != null) code.site(function.site);
+		code.emit(COPYFP); // set $fp to $sp value
+		code.emit(LOADRA); // load $ra value
+		Label memo = function.memoized ? freshLabel() : null;
+		if (memo != null) { // return the result recorded in the memo table of the virtual machine, if any
+			Label miss = freshLabel();
+			code.label(memo);
+			code.emit(MEMOGET, function.parameters); // set $tm to the recorded result and push 1 if found, push 0 otherwise
+			code.emit(PUSH, 0);
+			code.emit(BRANCHEQ, miss);
+			code.emit(STORERA); // set $ra to popped value
+			code.emit(POP); // remove Access Link from stack
+			for (int i = 0; i < function.parameters; i++) code.emit(POP); // remove parameters from stack
+			code.emit(STOREFP); // set $fp to popped value (Control Link)
+			code.emit(LOADTM); // load $tm value (recorded result)
+			code.emit(LOADRA); // load $ra value
+			code.emit(JS); // jump to the popped address
+			code.label(miss);
+		}
+		for (int i = 0; i < slots; i++) code.emit(PUSH, 0); // reserve local declarations and temporary slots
+		int from = 0;
+		for (int position : returns) {
+			body.subList(from, position).forEach(code::emit);
+			from = position;
+			if (memo != null) code.emit(MEMOPUT, memo); // record the result in the memo table
+			code.emit(STORETM); // set $tm to popped value (function result)
+			for (int i = 0; i < slots; i++) code.emit(POP); // remove local declarations and temporaries from stack
+			code.emit(STORERA); // set $ra to popped value
+			code.emit(POP); // remove Access Link from stack
+			for (int i = 0; i < function.parameters; i++) code.emit(POP); // remove parameters from stack
+			code.emit(STOREFP); // set $fp to popped value (Control Link)
+			code.emit(LOADTM); // load $tm value (function result)
+			code.emit(LOADRA); // load $ra value
+			code.emit(JS); // jump to the popped address
+		}
+		body.subList(from, body.size()).forEach(code::emit);
+		code.endFunction();
+	}
+
+	/*
+	 * Record the users of every instruction: a phi operand is used by the terminator of the corresponding predecessor
+	 * */
+	private void collectUses() {
+		for (Block block : function.blocks) {
+			for (Instr instr : block.instrs) {
+				if (instr.op == Op.PHI) {
+					for (int i = 0; i < instr.operands.size(); i++)
+						uses.computeIfAbsent(instr.operands.get(i), k -> new ArrayList<>()).add(block.preds.get(i));
+				} else {
+					for (Instr operand : instr.operands)
+						uses.computeIfAbsent(operand, k -> new ArrayList<>()).add(instr);
+				}
+			}
+			if (block.operand != null) uses.computeIfAbsent(block.operand, k -> new ArrayList<>()).add(block);
+		}
+	}
+
+	private List<Object> usesOf(Instr instr) {
+		return uses.getOrDefault(instr, List.of());
+	}
+
+	/*
+	 * Whether the only use of an instruction is in its own block
+	 * */
+	private boolean usedOnceInBlock(Instr instr) {
+		List<Object> users = usesOf(instr);
+		if (users.size() != 1) return false;
+		Object user = users.get(0);
+		return user == instr.block || (user instanceof Instr i && i.block == instr.block && i.op != Op.PHI);
+	}
+
+	/*
+	 * Whether an instruction is recomputed at every use
+	 * */
+	private boolean remat(Instr instr) {
+		return switch (instr.op) {
+			case CONST, FP, GP -> true;
+			case LOAD -> loads(instr) <= MAX_REMAT_LOADS;
+			default -> false;
+		};
+	}
+
+	private int loads(Instr instr) {
+		if (instr.op == Op.FP || instr.op == Op.GP || instr.op == Op.CONST) return 0;
+		if (instr.op != Op.LOAD) return Integer.MAX_VALUE / 2;
+		return 1 + loads(instr.operands.get(0));
+	}
+
+	/*
+	 * Whether an instruction is emitted as part of the code of its user, or its value is computed before
+	 * */
+	private boolean isRoot(Instr instr) {
+		return !remat(instr) && !inlined.contains(instr);
+	}
+
+	/*
+	 * Decide which instructions of a block are emitted as part of their user, from the last one
+	 * */
+	private void schedule(Block block) {
+		List<Instr> instrs = block.instrs;
+		for (int i = instrs.size() - 1; i >= 0; i--) {
+			Instr instr = instrs.get(i);
+			if (instr.op == Op.PHI || instr.op == Op.STORE || remat(instr) || !usedOnceInBlock(instr)) continue;
+			Object user = usesOf(instr).get(0);
+			int end = user instanceof Instr u ? instrs.indexOf(u) : instrs.size();
+			if (!treeEffects(instr) || effectsFollow(instr, user, instrs.subList(i + 1, end))) inlined.add(instr);
+		}
+	}
+
+	/*
+	 * Whether an instruction, or an operand that may be emitted as part of its code, has effects
+	 * */
+	private boolean treeEffects(Instr instr) {
+		if (instr.hasEffects()) return true;
+		for (Instr operand : instr.operands)
+			if (operand.block == instr.block && operand.op != Op.PHI && !remat(operand) && usedOnceInBlock(operand)
+					&& treeEffects(operand)) return true;
+		return false;
+	}
+
+	/*
+	 * Whether the effects computed between an instruction and its user still run after it when it is emitted as part
+	 * of the code of its user: they must be in the same tree, and the tree must push them after the instruction
+	 * (let var x:int = h(y); in print(5) + x must not print 5 first)
+	 * */
+	private boolean effectsFollow(Instr instr, Object user, List<Instr> between) {
+		List<Instr> order = new ArrayList<>();
+		Object root = root(user);
+		if (root instanceof Instr r) treeOrder(r, instr, order);
+		else for (Instr value : values((Block) root))
+			if (value == instr || inlined.contains(value)) treeOrder(value, instr, order);
+		int position = order.indexOf(instr);
+		for (Instr effect : between)
+			if (effect.hasEffects() && order.indexOf(effect) < position) return false;
+		return true;
+	}
+
+	/*
+	 * The instructions of a tree in the order their code is emitted (operands first), the given one being part of it
+	 * */
+	private void treeOrder(Instr instr, Instr moved, List<Instr> order) {
+		for (Instr operand : instr.operands)
+			if (operand == moved || inlined.contains(operand)) treeOrder(operand, moved, order);
+		order.add(instr);
+	}
+
+	/*
+	 * The values used by the terminator of a block
+	 * */
+	private static List<Instr> values(Block block) {
+		List<Instr> values = new ArrayList<>();
+		if (block.operand != null) values.add(block.operand);
+		if (block.kind == Block.Kind.JUMP && !block.target.phis().isEmpty())
+			values.add(block.target.phis().get(0).operands.get(block.target.preds.indexOf(block)));
+		return values;
+	}
+
+	/*
+	 * The instruction (or terminator) whose code contains the code of the given one
+	 * */
+	private Object root(Object user) {
+		while (user instanceof Instr instr && inlined.contains(instr)) user = usesOf(instr).get(0);
+		return user;
+	}
+
+	private void lower(Block block, Block next) {
+		schedule(block);
+		emit(LABEL, labels.get(block));
+		carried = null;
+		for (Instr phi : block.phis()) {
+			if (usesOf(phi).isEmpty()) emit(POP);
+			else if (usedOnceInBlock(phi)) carried = phi;
+			else storeTemp(phi);
+		}
+		for (Instr instr : block.instrs) {
+			if (instr.op == Op.PHI || !isRoot(instr)) continue;
+			prepare(firstLeaf(instr));
+			emitTree(instr);
+			if (instr.op == Op.STORE) continue;
+			if (usesOf(instr).isEmpty()) emit(POP);
+			else if (usedOnceInBlock(instr)) carried = instr;
+			else storeTemp(instr);
+		}
+		switch (block.kind) {
+			case RETURN -> {
+				prepare(leaf(block.operand));
+				if (isTailCall(block.operand)) {
+					tailCall(block.operand);
+					break;
+				}
+				emitValue(block.operand);
+				returns.add(body.size());
+			}
+			case JUMP -> {
+				List<Instr> phis = block.target.phis();
+				if (!phis.isEmpty()) {
+					Instr value = phis.get(0).operands.get(block.target.preds.indexOf(block));
+					prepare(leaf(value));
+					if (returnsPhi(block.target) && isTailCall(value)) { // the value is the result of the function
+						tailCall(value);
+						break;
+					}
+					emitValue(value);
+				}
+				if (block.target != next) emit(BRANCH, labels.get(block.target));
+			}
+			case BRANCH -> branch(block, next);
+		}
+	}
+
+	/*
+	 * Whether a value is the result of a call emitted right before returning, which can reuse the frame
+	 * unless the called function is declared in this one (its Access Link being the frame itself) or the result
+	 * of the function is recorded in the memo table
+	 * */
+	private boolean isTailCall(Instr value) {
+		return function.kind != Function.Kind.MAIN && !function.memoized && value.op == Op.CALL && inlined.contains(value)
+				&& value.operands.get(value.operands.size() - 1).op != Op.FP;
+	}
+
+	/*
+	 * Whether a block just returns the value of its phi instruction, possibly through the phi of another block
+	 * (if-then-else nested in a branch)
+	 * */
+	private static boolean returnsPhi(Block block) {
+		if (block.instrs.size() != 1 || block.instrs.get(0).op != Op.PHI) return false;
+		Instr phi = block.instrs.get(0);
+		return switch (block.kind) {
+			case RETURN -> block.operand == phi;
+			case JUMP -> !block.target.phis().isEmpty()
+					&& block.target.phis().get(0).operands.get(block.target.preds.indexOf(block)) == phi
+					&& returnsPhi(block.target);
+			case BRANCH -> false;
+		};
+	}
+
+	/*
+	 * Emit a call replacing the frame of the function with the one of the called function, which returns directly
+	 * to the caller of the function (no epilogue is needed)
+	 * */
+	private void tailCall(Instr call) {
+		for (Instr argument : call.operands) emitValue(argument); // arguments in reversed order, then the Access Link
+		emit(LOADFP);
+		emit(PUSH, -1);
+		emit(ADD);
+		emit(LOADW);
+		emit(STORERA); // restore the return address of the function
+		emit(LOADFP);
+		emit(PUSH, function.parameters - (call.operands.size() - 1));
+		emit(ADD); // address of the new Access Link, below the Control Link
+		emit(MOVE, call.operands.size()); // move arguments and Access Link over the frame
+		if (call.label != null) {
+			site(call.site);
+			emit(BRANCH, call.label);
+			return;
+		}
+		emit(STORETM);
+		emit(LOADTM);
+		emit(LOADTM); // duplicate the Access Link
+		if (call.dispatch) {
+			site(call.site, Site.Kind.DISPATCH);
+			emit(LOADW); // load dispatch pointer
+		}
+		emit(PUSH, call.value);
+		emit(ADD);
+		emit(LOADW); // load address of the function
+		site(call.site);
+		emit(JUMP);
+	}
+
+	/*
+	 * Emit a conditional branch, comparing the operands directly when the condition is a comparison used only here
+	 * */
+	private void branch(Block block, Block next) {
+		Instr cond = block.operand;
+		Label ifTrue = labels.get(block.target), ifFalse = labels.get(block.other);
+		boolean compare = inlined.contains(cond) && (cond.op == Op.EQ || cond.op == Op.LE || cond.op == Op.GE);
+		prepare(compare ? firstLeaf(cond) : leaf(cond));
+		if (compare) {
+			emitValue(cond.operands.get(0));
+			emitValue(cond.operands.get(1));
+		} else {
+			emitValue(cond);
+		}
+		if (!compare) emit(PUSH, 1); // compare the condition with true
+		boolean negate = block.target == next; // branch to the false block, falling through to the true one
+		emit(branchOpcode(compare ? cond.op : Op.EQ, negate), negate ? ifFalse : ifTrue);
+		if (!negate && block.other != next) emit(BRANCH, ifFalse);
+	}
+
+	/*
+	 * The branch jumping when the comparison holds, or when it does not hold if negated
+	 * */
+	private static Opcode branchOpcode(Op comparison, boolean negated) {
+		return switch (comparison) {
+			case EQ -> negated ? BRANCHNOTEQ : BRANCHEQ;
+			case LE -> negated ? BRANCHGREATER : BRANCHLESSEQ;
+			case GE -> negated ? BRANCHLESS : BRANCHGREATEREQ;
+			default -> throw new IllegalArgumentException("Not a comparison: " + comparison);
+		};
+	}
+
+	/*
+	 * The first computed value pushed by the code of an instruction, if it is pushed before any other instruction
+	 * */
+	private Instr firstLeaf(Instr instr) {
+		return switch (instr.op) {
+			case CONST, FP, GP, CALL -> null;
+			default -> instr.operands.isEmpty() ? null : leaf(instr.operands.get(0));
+		};
+	}
+
+	private Instr leaf(Instr value) {
+		return isRoot(value) ? value : firstLeaf(value);
+	}
+
+	/*
+	 * Make sure that the value on top of the stack is the one the next code starts with, storing it otherwise
+	 * */
+	private void prepare(Instr first) {
+		if (carried == null) return;
+		if (carried == first) consume = carried;
+		else storeTemp(carried);
+		carried = null;
+	}
+
+	private void storeTemp(Instr instr) {
+		emit(LOADFP);
+		emit(PUSH, tempOffset(instr));
+		emit(ADD);
+		emit(STOREW);
+	}
+
+	private int tempOffset(Instr instr) {
+		return -2 - function.declarations - temps.computeIfAbsent(instr, k -> temps.size());
+	}
+
+	/*
+	 * Push a value: recompute it, take it from the top of the stack or load it from its temporary slot
+	 * */
+	private void emitValue(Instr value) {
+		if (value == consume) {
+			consume = null;
+		} else if (!isRoot(value)) {
+			emitTree(value);
+		} else {
+			if (!temps.containsKey(value)) throw new IllegalStateException("Value " + value + " not available");
+			emit(LOADFP);
+			emit(PUSH, tempOffset(value));
+			emit(ADD);
+			emit(LOADW);
+		}
+	}
+
+	private void emitTree(Instr instr) {
+		List<Instr> operands = instr.operands;
+		switch (instr.op) {
+			case CONST -> emit(PUSH, instr.value);
+			case FP -> emit(LOADFP);
+			case GP -> emit(LOADGP);
+			case LOAD -> {
+				if (operands.get(0).isConst()) { // absolute address
+					emit(LOADWA, operands.get(0).value + instr.value);
+					break;
+				}
+				if (operands.get(0).op == Op.GP) { // offset in the global frame
+					emit(LOADWG, instr.value);
+					break;
+				}
+				emitValue(operands.get(0));
+				if (instr.value != 0) {
+					emit(PUSH, instr.value);
+					emit(ADD);
+				}
+				emit(LOADW);
+			}
+			case ADD, SUB, MUL, DIV -> {
+				emitValue(operands.get(0));
+				emitValue(operands.get(1));
+				emit(switch (instr.op) { case ADD -> ADD; case SUB -> SUB; case MUL -> MULT; default -> DIV; });
+			}
+			case SHL -> {
+				emitValue(operands.get(0));
+				emit(SHIFTLEFT, instr.value);
+			}
+			case EQ, LE, GE -> {
+				emitValue(operands.get(0));
+				emitValue(operands.get(1));
+				Label l1 = freshLabel(), l2 = freshLabel();
+				emit(branchOpcode(instr.op, false), l1);
+				emit(PUSH, 0);
+				emit(BRANCH, l2);
+				emit(LABEL, l1);
+				emit(PUSH, 1);
+				emit(LABEL, l2);
+			}
+			case PRINT -> {
+				emitValue(operands.get(0));
+				emit(PRINT);
+			}
+			case CALL -> {
+				emit(LOADFP); // load Control Link
+				for (Instr argument : operands) emitValue(argument); // arguments in reversed order, then the Access Link
+				if (instr.label != null) { // the function is known: jump directly to its label
+					site(instr.site);
+					emit(CALL, instr.label);
+					break;
+				}
+				emit(STORETM);
+				emit(LOADTM);
+				emit(LOADTM); // duplicate the Access Link
+				if (instr.dispatch) {
+					site(instr.site, Site.Kind.DISPATCH);
+					emit(LOADW); // load dispatch pointer
+				}
+				emit(PUSH, instr.value);
+				emit(ADD);
+				emit(LOADW); // load address of the function
+				site(instr.site);
+				emit(JS);
+			}
+			case NEW -> {
+				for (Instr field : operands) emitValue(field);
+				for (int i = 0; i < operands.size(); i++) { // move fields to the heap
+					emit(LOADHP);
+					emit(STOREW);
+					emit(LOADHP);
+					emit(PUSH, 1);
+					emit(ADD);
+					emit(STOREHP);
+				}
+				emit(LOADWG, instr.value); // load dispatch pointer
+				emit(LOADHP);
+				emit(STOREW);
+				emit(LOADHP); // object pointer
+				emit(LOADHP);
+				emit(PUSH, 1);
+				emit(ADD);
+				emit(STOREHP);
+			}
+			case STORE -> {
+				emitValue(operands.get(0));
+				emit(LOADFP);
+				emit(PUSH, instr.value);
+				emit(ADD);
+				emit(STOREW);
+			}
+			case PHI -> throw new IllegalStateException("Phi instructions are not emitted as part of other instructions");
+		}
+	}
+
+	/*
+	 * Mark the site of the next instruction, if the code is profiled: the call site, or the site of the given kind
+	 * at the same line
+	 * */
+	private void site(Site site) {
+		if (site != null) body.add(new Instruction(site));
+	}
+
+	private void site(Site site, Site.Kind kind) {
+		if (site != null) body.add(new Instruction(new Site(kind, site.line, site.name)));
+	}
+
+	private void emit(Opcode opcode) {
+		body.add(new Instruction(opcode));
+	}
+
+	private void emit(Opcode opcode, int value) {
+		body.add(new Instruction(opcode, value));
+	}
+
+	private void emit(Opcode opcode, Label label) {
+		body.add(new Instruction(opcode, label));
+	}
+}
@@ -0,0 +1,55 @@
+package compiler.ssa;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import compiler.lib.PassStatistics;
+
+/*
+* Optimizer Class
+* Run a sequence of passes on a function until none of them changes it (or a maximum number of rounds is reached)
+* The passes can be measured, and the function printed after each pass that changes it, when the pass manager asks
+* */
+public class Optimizer {
+
+	private static final int MAX_ROUNDS = 10;
+
+	private final List<Pass> passes;
+	private final PassStatistics statistics; // null if the passes are not measured
+	private final Predicate<String> dump; // names of the passes after which the function is printed
+
+	public Optimizer(List<Pass> passes) {
+		this(passes, null, name -> false);
+	}
+
+	public Optimizer(List<Pass> passes, PassStatistics statistics, Predicate<String> dump) {
+		this.passes = passes;
+		this.statistics = statistics;
+		this.dump = dump;
+	}
+
+	/*
+	 * The default pipeline: constant propagation, global value numbering and dead code elimination
+	 * */
+	public Optimizer() {
+		this(defaultPasses());
+	}
+
+	public static List<Pass> defaultPasses() {
+		return List.of(new ConstantPropagation(), new GlobalValueNumbering(), new DeadCodeElimination());
+	}
+
+	public void optimize(Function function) {
+		boolean changed = true;
+		for (int round = 0; changed && round < MAX_ROUNDS; round++) {
+			changed = false;
+			for (Pass pass : passes) {
+				boolean passChanged = statistics != null
+						? statistics.measure("ir:" + pass.name(), () -> pass.run(function)) : pass.run(function);
+				if (passChanged && dump.test(pass.name()))
+					System.out.print("After " + pass.name() + ": " + function);
+				changed |= passChanged;
+			}
+		}
+	}
+}
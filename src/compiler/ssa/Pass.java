@@ -0,0 +1,15 @@
+package compiler.ssa;
+
+/*
+* Pass Interface
+* A transformation of a function in SSA form
+* */
+public interface Pass {
+
+	String name();
+
+	/*
+	 * Transform the function, returning true if something has changed
+	 * */
+	boolean run(Function function);
+}
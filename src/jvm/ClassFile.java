@@ -0,0 +1,126 @@
+package jvm;
+
+import java.io.*;
+import java.util.*;
+
+/*
+* ClassFile Class
+* Builds a JVM class file: its constant pool, fields and methods
+* Classes are written in the format of version 49 (Java 5), whose verifier infers the types of the locals and of the
+* stack by itself, so that the code needs no stack map frames
+* */
+public class ClassFile {
+
+	public static final int PUBLIC = 0x0001, STATIC = 0x0008, SUPER = 0x0020;
+
+	private static final int VERSION = 49;
+
+	public final String name;      // internal name, like java/lang/Object
+	public final String superName;
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOut = new DataOutputStream(pool);
+	private final Map<String, Integer> poolIndexes = new HashMap<>(); // entries already in the pool, by their content
+	private int poolCount = 1;
+
+	private final List<byte[]> fields = new ArrayList<>();
+	private final List<Code> methods = new ArrayList<>();
+
+	public ClassFile(String name, String superName) {
+		this.name = name;
+		this.superName = superName;
+	}
+
+	/*
+	 * Index of a constant in the pool, adding it at the first request
+	 * */
+	private int constant(String key, int tag, int... operands) {
+		Integer index = poolIndexes.get(key);
+		if (index != null) return index;
+		try {
+			poolOut.writeByte(tag);
+			if (tag == 1) poolOut.writeUTF(key.substring(2));
+			else if (tag == 3) poolOut.writeInt(operands[0]);
+			else for (int operand : operands) poolOut.writeShort(operand);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // never thrown by a ByteArrayOutputStream
+		}
+		poolIndexes.put(key, poolCount);
+		return poolCount++;
+	}
+
+	int utf8(String s) {
+		return constant("U:" + s, 1);
+	}
+
+	int integer(int value) {
+		return constant("I:" + value, 3, value);
+	}
+
+	int classRef(String internalName) {
+		return constant("C:" + internalName, 7, utf8(internalName));
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		return constant("N:" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+	}
+
+	int fieldRef(String owner, String name, String descriptor) {
+		return constant("F:" + owner + "." + name + ":" + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		return constant("M:" + owner + "." + name + ":" + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+	}
+
+	public void field(int access, String name, String descriptor) {
+		ByteArrayOutputStream field = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(field);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		fields.add(field.toByteArray());
+	}
+
+	/*
+	 * A new method, whose code is emitted through the returned Code
+	 * The parameter slots are reserved from the descriptor (and slot 0 for this, if the method is not static)
+	 * */
+	public Code method(int access, String name, String descriptor) {
+		Code code = new Code(this, access, name, descriptor);
+		methods.add(code);
+		return code;
+	}
+
+	public byte[] toBytes() {
+		int thisIndex = classRef(name), superIndex = classRef(superName);
+		List<byte[]> methodBytes = new ArrayList<>();
+		for (Code method : methods) methodBytes.add(method.toBytes()); // adds the name of the Code attribute to the pool
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0); // minor version
+			out.writeShort(VERSION);
+			out.writeShort(poolCount);
+			pool.writeTo(out);
+			out.writeShort(PUBLIC | SUPER);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(0); // interfaces
+			out.writeShort(fields.size());
+			for (byte[] field : fields) out.write(field);
+			out.writeShort(methodBytes.size());
+			for (byte[] method : methodBytes) out.write(method);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,216 @@
+package jvm;
+
+import java.io.*;
+import java.util.*;
+
+/*
+* Code Class
+* Emits the bytecode of a method, keeping track of the depth of the operand stack and of the locals used, which
+* give the max_stack and max_locals of its Code attribute
+* Every value takes one slot (FOOL has only int values and references); after an unconditional jump the depth is
+* unknown, so the code generator sets it again where the next instruction is reached from a jump
+* */
+public class Code {
+
+	public static final int ACONST_NULL = 1, ICONST_0 = 3, BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19,
+			ILOAD = 21, ALOAD = 25, ISTORE = 54, ASTORE = 58, POP = 87, DUP = 89, SWAP = 95,
+			IADD = 96, ISUB = 100, IMUL = 104, IDIV = 108, ISHL = 120, IXOR = 130,
+			IFEQ = 153, IFNE = 154, IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162,
+			IF_ICMPGT = 163, IF_ICMPLE = 164, IF_ACMPEQ = 165, IF_ACMPNE = 166, GOTO = 167,
+			IRETURN = 172, ARETURN = 176, RETURN = 177, GETSTATIC = 178, PUTSTATIC = 179, GETFIELD = 180,
+			PUTFIELD = 181, INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184, NEW = 187,
+			CHECKCAST = 192, IFNULL = 198, IFNONNULL = 199;
+
+	/*
+	 * Label Class
+	 * A position in the code, the target of jumps emitted before or after it is marked
+	 * */
+	public static class Label {
+		private int position = -1;
+		private final List<Integer> jumps = new ArrayList<>(); // positions of the jumps to the label
+	}
+
+	private final ClassFile classFile;
+	private final int access;
+	private final String name;
+	private final String descriptor;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final List<Label> labels = new ArrayList<>();
+	private int depth = 0;
+	private int maxDepth = 0;
+	private int locals;
+
+	Code(ClassFile classFile, int access, String name, String descriptor) {
+		this.classFile = classFile;
+		this.access = access;
+		this.name = name;
+		this.descriptor = descriptor;
+		locals = parameters(descriptor) + ((access & ClassFile.STATIC) != 0 ? 0 : 1);
+	}
+
+	/*
+	 * Slots taken by the parameters of a method descriptor
+	 * */
+	private static int parameters(String descriptor) {
+		int slots = 0;
+		for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+			while (descriptor.charAt(i) == '[') i++;
+			if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+			slots++;
+		}
+		return slots;
+	}
+
+	public int depth() {
+		return depth;
+	}
+
+	public void depth(int depth) {
+		this.depth = depth;
+	}
+
+	/*
+	 * A new local variable slot
+	 * */
+	public int local() {
+		return locals++;
+	}
+
+	private void stack(int delta) {
+		depth += delta;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private void u1(int value) {
+		bytes.write(value);
+	}
+
+	private void u2(int value) {
+		bytes.write(value >> 8);
+		bytes.write(value);
+	}
+
+	/*
+	 * Emit an instruction without operands, changing the depth of the stack by the given delta
+	 * */
+	public void op(int opcode, int delta) {
+		u1(opcode);
+		stack(delta);
+	}
+
+	public void iconst(int value) {
+		if (value >= -1 && value <= 5) u1(ICONST_0 + value);
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			u1(BIPUSH);
+			u1(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			u1(SIPUSH);
+			u2(value);
+		} else {
+			int index = classFile.integer(value);
+			if (index <= 255) {
+				u1(LDC);
+				u1(index);
+			} else {
+				u1(LDC_W);
+				u2(index);
+			}
+		}
+		stack(1);
+	}
+
+	/*
+	 * Emit a load or store of a local (ILOAD, ALOAD, ISTORE or ASTORE)
+	 * */
+	public void local(int opcode, int slot) {
+		if (slot > 255) throw new IllegalStateException("Too many locals in method " + name);
+		u1(opcode);
+		u1(slot);
+		stack(opcode == ILOAD || opcode == ALOAD ? 1 : -1);
+	}
+
+	/*
+	 * Emit a GETSTATIC, PUTSTATIC, GETFIELD or PUTFIELD
+	 * */
+	public void field(int opcode, String owner, String name, String descriptor) {
+		u1(opcode);
+		u2(classFile.fieldRef(owner, name, descriptor));
+		stack(switch (opcode) {
+			case GETSTATIC -> 1;
+			case PUTSTATIC -> -1;
+			case GETFIELD -> 0;
+			default -> -2; // PUTFIELD
+		});
+	}
+
+	/*
+	 * Emit an INVOKEVIRTUAL, INVOKESPECIAL or INVOKESTATIC
+	 * */
+	public void invoke(int opcode, String owner, String name, String descriptor) {
+		u1(opcode);
+		u2(classFile.methodRef(owner, name, descriptor));
+		int result = descriptor.endsWith("V") ? 0 : 1;
+		stack(result - parameters(descriptor) - (opcode == INVOKESTATIC ? 0 : 1));
+	}
+
+	/*
+	 * Emit a NEW or CHECKCAST of a class
+	 * */
+	public void type(int opcode, String internalName) {
+		u1(opcode);
+		u2(classFile.classRef(internalName));
+		stack(opcode == NEW ? 1 : 0);
+	}
+
+	public Label label() {
+		Label label = new Label();
+		labels.add(label);
+		return label;
+	}
+
+	public void mark(Label label) {
+		label.position = bytes.size();
+	}
+
+	/*
+	 * Emit a jump to a label: a GOTO or a conditional branch on one (IFEQ ...) or two (IF_ICMPEQ ...) values
+	 * */
+	public void jump(int opcode, Label label) {
+		label.jumps.add(bytes.size());
+		u1(opcode);
+		u2(0); // offset, resolved when the code is written
+		stack(opcode == GOTO ? 0 : opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE ? -2 : -1);
+	}
+
+	byte[] toBytes() {
+		byte[] code = bytes.toByteArray();
+		for (Label label : labels)
+			for (int jump : label.jumps) {
+				int offset = label.position - jump;
+				if (label.position < 0 || offset != (short) offset)
+					throw new IllegalStateException("Jump out of range in method " + name);
+				code[jump + 1] = (byte) (offset >> 8);
+				code[jump + 2] = (byte) offset;
+			}
+		ByteArrayOutputStream method = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(method);
+		try {
+			out.writeShort(access);
+			out.writeShort(classFile.utf8(name));
+			out.writeShort(classFile.utf8(descriptor));
+			out.writeShort(1); // attributes: Code
+			out.writeShort(classFile.utf8("Code"));
+			out.writeInt(12 + code.length);
+			out.writeShort(maxDepth);
+			out.writeShort(locals);
+			out.writeInt(code.length);
+			out.write(code);
+			out.writeShort(0); // exception table
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return method.toByteArray();
+	}
+}
@@ -0,0 +1,87 @@
+package jvm;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.jar.*;
+
+/*
+* JvmProgram Class
+* The classes generated for a program, which can be loaded and run in the running JVM or written to a jar
+* The main class has a method run(PrintStream), printing to the given sink, and a main method printing to System.out,
+* so that the jar runs with java -jar
+* */
+public class JvmProgram {
+
+	private static final long STACK_SIZE = 1L << 30; // deep recursions, like the ones on long lists
+
+	public final String mainClass; // internal name
+	private final Map<String, byte[]> classes = new LinkedHashMap<>(); // class files, by internal name
+	private Class<?> loaded; // main class, once loaded
+
+	public JvmProgram(String mainClass) {
+		this.mainClass = mainClass;
+	}
+
+	public void add(ClassFile classFile) {
+		classes.put(classFile.name, classFile.toBytes());
+	}
+
+	/*
+	 * Load the classes of the program with a new class loader, returning the main class
+	 * */
+	public Class<?> load() throws ClassNotFoundException {
+		if (loaded != null) return loaded;
+		ClassLoader loader = new ClassLoader(JvmProgram.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String name) throws ClassNotFoundException {
+				byte[] bytes = classes.get(name.replace('.', '/'));
+				if (bytes == null) throw new ClassNotFoundException(name);
+				return defineClass(name, bytes, 0, bytes.length);
+			}
+		};
+		loaded = loader.loadClass(mainClass.replace('/', '.'));
+		return loaded;
+	}
+
+	/*
+	 * Load and run the program, printing to the given sink
+	 * It runs in a thread with a large stack, since FOOL has recursion only: the exceptions of the program (like a
+	 * division by zero) are thrown again as they are
+	 * */
+	public void run(PrintStream sink) throws ReflectiveOperationException {
+		java.lang.reflect.Method run = load().getMethod("run", PrintStream.class);
+		Throwable[] thrown = new Throwable[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				run.invoke(null, sink);
+			} catch (InvocationTargetException e) {
+				thrown[0] = e.getCause();
+			} catch (ReflectiveOperationException e) {
+				thrown[0] = e;
+			}
+		}, "fool", STACK_SIZE);
+		thread.start();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (thrown[0] instanceof RuntimeException cause) throw cause;
+		if (thrown[0] instanceof Error cause) throw cause;
+		if (thrown[0] instanceof ReflectiveOperationException cause) throw cause;
+	}
+
+	public void writeJar(String fileName) throws IOException {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass.replace('/', '.'));
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(fileName), manifest)) {
+			for (Map.Entry<String, byte[]> c : classes.entrySet()) {
+				out.putNextEntry(new JarEntry(c.getKey() + ".class"));
+				out.write(c.getValue());
+				out.closeEntry();
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package svm;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+* Assembler Class
+* Translates a list of instructions into the code executed by ExecuteVM, or into its textual form
+* */
+public class Assembler {
+
+	private Assembler() {}
+
+	/*
+	 * Assemble the instructions: a first pass computes the address of every label,
+	 * a second one encodes opcodes and operands
+	 * */
+	public static int[] assemble(List<Instruction> instructions) {
+		Map<Label, Integer> labelDef = new IdentityHashMap<>();
+		int size = 0;
+		for (Instruction instruction : instructions) {
+			if (instruction.opcode == Opcode.LABEL && labelDef.put(instruction.label, size) != null)
+				throw new IllegalArgumentException("Label " + instruction.label + " defined twice");
+			size += instruction.opcode.size();
+		}
+		int[] code = new int[size];
+		int i = 0;
+		for (Instruction instruction : instructions) {
+			if (instruction.opcode == Opcode.LABEL || instruction.opcode == Opcode.SITE) continue;
+			if (instruction.opcode != Opcode.WORD) code[i++] = instruction.opcode.code;
+			if (!instruction.opcode.hasOperand) continue;
+			if (instruction.label == null) {
+				code[i++] = instruction.value;
+			} else {
+				Integer address = labelDef.get(instruction.label);
+				if (address == null) throw new IllegalArgumentException("Label " + instruction.label + " not defined");
+				code[i++] = address;
+			}
+		}
+		return code;
+	}
+
+	/*
+	 * Write the instructions as text, one per line
+	 * */
+	public static void write(List<Instruction> instructions, Appendable out) throws IOException {
+		for (Instruction instruction : instructions) out.append(instruction.toString()).append('\n');
+	}
+}
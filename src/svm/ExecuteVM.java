@@ -2,7 +2,12 @@ package svm;
 public class ExecuteVM {
     
     public static final int CODESIZE = 10000;
-    public static final int MEMSIZE = 10000;
+    public static final int MEMSIZE = Integer.getInteger("svm.memsize", 10000); // words, set with -Dsvm.memsize
+
+    // memo table of the results of memoized functions: open addressing over a bounded window of entries
+    public static final int MEMO_ARGS = 4; // largest number of arguments of a memoized function
+    private static final int MEMO_SIZE = Integer.highestOneBit(Integer.getInteger("svm.memosize", 4096)); // entries
+    private static final int MEMO_PROBES = 8; // entries searched for a key, starting from its hash
     
     private int[] code;
     private int[] memory = new int[MEMSIZE];
@@ -14,13 +19,20 @@ public class ExecuteVM {
     private int fp = MEMSIZE; 
     private int ra;           
     private int tm;
-    
+
+    private final int[] memoKeys = new int[MEMO_SIZE * (MEMO_ARGS + 1)]; // function (0 if empty) and arguments
+    private final int[] memoValues = new int[MEMO_SIZE];
+    public int memoHits = 0;
+    public int memoMisses = 0;
+    public int memoEvictions = 0; // entries replaced when all the ones of a window are taken
+
     public ExecuteVM(int[] code) {
       this.code = code;
     }
     
     public void cpu() {
       while ( true ) {
+        executed(ip);
         int bytecode = code[ip++]; // fetch
         int v1,v2;
         int address;
@@ -46,6 +58,9 @@ public class ExecuteVM {
             v2=pop();
             push(v2 / v1);
             break;
+          case SVMParser.SHIFTLEFT : // multiply the top of the stack by 2 to the power of the operand
+            push(pop() << code[ip++]);
+            break;
           case SVMParser.SUB :
             v1=pop();
             v2=pop();
@@ -56,7 +71,24 @@ public class ExecuteVM {
             memory[address] = pop();    
             break;
           case SVMParser.LOADW : //
-            push(memory[pop()]);
+            address = pop();
+            loaded(ip - 1, memory[address]);
+            push(memory[address]);
+            break;
+          case SVMParser.LOADWA :
+            push(memory[code[ip++]]);
+            break;
+          case SVMParser.LOADWG : // load a word of the global frame, at the top of the memory
+            push(memory[MEMSIZE + code[ip++]]);
+            break;
+          case SVMParser.LOADGP : // push the address of the global frame
+            push(MEMSIZE);
+            break;
+          case SVMParser.MOVE : // move the top words of the stack to the popped address, which becomes the top
+            v1 = code[ip++];
+            address = pop();
+            System.arraycopy(memory, sp, memory, address, v1);
+            sp = address;
             break;
           case SVMParser.BRANCH : 
             address = code[ip];
@@ -66,19 +98,51 @@ public class ExecuteVM {
             address = code[ip++];
             v1=pop();
             v2=pop();
-            if (v2 == v1) ip = address;
+            if (v2 == v1) ip = taken(ip - 2, address);
             break;
           case SVMParser.BRANCHLESSEQ :
             address = code[ip++];
             v1=pop();
             v2=pop();
-            if (v2 <= v1) ip = address;
+            if (v2 <= v1) ip = taken(ip - 2, address);
+            break;
+          case SVMParser.BRANCHNOTEQ :
+            address = code[ip++];
+            v1=pop();
+            v2=pop();
+            if (v2 != v1) ip = taken(ip - 2, address);
+            break;
+          case SVMParser.BRANCHLESS :
+            address = code[ip++];
+            v1=pop();
+            v2=pop();
+            if (v2 < v1) ip = taken(ip - 2, address);
+            break;
+          case SVMParser.BRANCHGREATER :
+            address = code[ip++];
+            v1=pop();
+            v2=pop();
+            if (v2 > v1) ip = taken(ip - 2, address);
+            break;
+          case SVMParser.BRANCHGREATEREQ :
+            address = code[ip++];
+            v1=pop();
+            v2=pop();
+            if (v2 >= v1) ip = taken(ip - 2, address);
             break;
           case SVMParser.JS : //
             address = pop();
             ra = ip;
             ip = address;
             break;
+          case SVMParser.JUMP : // jump to the popped address, leaving $ra unchanged
+            ip = pop();
+            break;
+          case SVMParser.CALL :
+            address = code[ip++];
+            ra = ip;
+            ip = address;
+            break;
          case SVMParser.STORERA : //
             ra=pop();
             break;
@@ -106,6 +170,48 @@ public class ExecuteVM {
          case SVMParser.LOADHP : //
             push(hp);
             break;
+         case SVMParser.DATA : // copy the static data following the instruction to the heap
+            v1 = code[ip++];
+            System.arraycopy(code, ip, memory, hp, v1);
+            hp += v1;
+            ip += v1;
+            break;
+         case SVMParser.MEMOGET : // look up the arguments of the current function: if found set $tm to the result and push 1, else push 0
+            v1 = code[ip++];
+            address = memoFind(ip - 2, v1);
+            if (address >= 0 && memoKeys[address * (MEMO_ARGS + 1)] != 0) {
+              memoHits++;
+              tm = memoValues[address];
+              push(1);
+            } else {
+              memoMisses++;
+              push(0);
+            }
+            break;
+         case SVMParser.MEMOPUT : // record the result on top of the stack for the arguments of the current function
+            address = code[ip++]; // its MEMOGET instruction, which identifies the function and has its number of arguments
+            v1 = memoFind(address, code[address + 1]);
+            if (v1 < 0) { // all the entries of the window are taken: replace one of them in turn
+              v1 = (memoHash(address, code[address + 1]) + memoEvictions % MEMO_PROBES) & (MEMO_SIZE - 1);
+              memoEvictions++;
+            }
+            memoKeys[v1 * (MEMO_ARGS + 1)] = address + 1;
+            for (int i = 0; i < code[address + 1]; i++) memoKeys[v1 * (MEMO_ARGS + 1) + 1 + i] = memory[fp + 1 + i];
+            memoValues[v1] = memory[sp];
+            break;
+         case SVMParser.LOADFW : // push the word of the current frame at the offset
+            push(memory[fp + code[ip++]]);
+            break;
+         case SVMParser.STOREFW : // pop a word to the current frame at the offset
+            memory[fp + code[ip++]] = pop();
+            break;
+         case SVMParser.LOADOW : // replace the address on top of the stack with the word at the offset from it
+            push(memory[pop() + code[ip++]]);
+            break;
+         case SVMParser.DUP : // set $tm to the top of the stack and push it again
+            tm = memory[sp];
+            push(tm);
+            break;
          case SVMParser.PRINT :
             System.out.println((sp<MEMSIZE)?memory[sp]:"Empty stack!");
             break;
@@ -115,6 +221,51 @@ public class ExecuteVM {
       }
     } 
     
+    /*
+     * Hooks of the execution, which do nothing here: ProfilingVM overrides them to count what it observes
+     * The JIT compiles them away when no ProfilingVM is loaded, so the interpreter loop does not pay for profiling
+     * */
+    void executed(int address) {}
+
+    /*
+     * The load at the given address read a value
+     * */
+    void loaded(int address, int value) {}
+
+    /*
+     * Target of the conditional branch at the given address, which jumps
+     * */
+    int taken(int branch, int target) {
+      return target;
+    }
+
+    /*
+     * Hash of a function and of its arguments, the parameters of the current frame
+     * */
+    private int memoHash(int function, int arguments) {
+      int hash = function;
+      for (int i = 0; i < arguments; i++) hash = hash * 31 + memory[fp + 1 + i];
+      return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * Entry of the memo table holding the arguments of the current function, or the empty entry where they can be
+     * added (-1 if the entries of their window are all taken by other keys)
+     * */
+    private int memoFind(int function, int arguments) {
+      int hash = memoHash(function, arguments);
+      search:
+      for (int probe = 0; probe < MEMO_PROBES; probe++) {
+        int entry = (hash + probe) & (MEMO_SIZE - 1);
+        int key = entry * (MEMO_ARGS + 1);
+        if (memoKeys[key] == 0) return entry; // entries are never emptied: the key is not in the table
+        if (memoKeys[key] != function + 1) continue;
+        for (int i = 0; i < arguments; i++) if (memoKeys[key + 1 + i] != memory[fp + 1 + i]) continue search;
+        return entry;
+      }
+      return -1;
+    }
+
     private int pop() {
       return memory[sp++];
     }
@@ -0,0 +1,55 @@
+package svm;
+
+/*
+* Instruction Class
+* An instruction of the Stack Virtual Machine: an opcode with its operand, if any
+* The operand is either an integer or a label, whose address is resolved when the code is assembled
+* */
+public class Instruction {
+
+	public final Opcode opcode;
+	public final int value;    // integer operand
+	public final Label label;  // label operand (or defined label, for LABEL), null if the operand is an integer
+	public final Site site;    // profiled site, for SITE only
+
+	private Instruction(Opcode opcode, int value, Label label, Site site) {
+		this.opcode = opcode;
+		this.value = value;
+		this.label = label;
+		this.site = site;
+	}
+
+	private Instruction(Opcode opcode, int value, Label label) {
+		this(opcode, value, label, null);
+	}
+
+	public Instruction(Site site) {
+		this(Opcode.SITE, 0, null, site);
+	}
+
+	public Instruction(Opcode opcode) {
+		this(opcode, 0, null);
+		if (opcode.hasOperand || opcode == Opcode.LABEL || opcode == Opcode.SITE) throw new IllegalArgumentException(opcode + " needs an operand");
+	}
+
+	public Instruction(Opcode opcode, int value) {
+		this(opcode, value, null);
+		if (!opcode.hasOperand) throw new IllegalArgumentException(opcode + " has no operand");
+	}
+
+	public Instruction(Opcode opcode, Label label) {
+		this(opcode, 0, label);
+		if (!opcode.hasOperand && opcode != Opcode.LABEL) throw new IllegalArgumentException(opcode + " has no operand");
+	}
+
+	/*
+	 * Textual form of the instruction, as accepted by SVM.g4 (sites are comments)
+	 * */
+	@Override
+	public String toString() {
+		if (opcode == Opcode.LABEL) return label.name + ":";
+		if (opcode == Opcode.SITE) return "/* " + site + " */";
+		if (!opcode.hasOperand) return opcode.mnemonic;
+		return opcode.mnemonic + " " + (label != null ? label.name : Integer.toString(value));
+	}
+}
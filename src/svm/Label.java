@@ -0,0 +1,20 @@
+package svm;
+
+/*
+* Label Class
+* A position in the code, referenced by branches and pushes and defined by a LABEL pseudo-instruction
+* Labels are compared by identity: the name is only used when the code is printed as text
+* */
+public class Label {
+
+	public final String name;
+
+	public Label(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
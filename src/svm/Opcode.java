@@ -0,0 +1,78 @@
+package svm;
+
+import java.util.List;
+
+/*
+* Opcode Enum
+* The instruction set of the Stack Virtual Machine
+* Each opcode is encoded with the token type of its mnemonic in SVM.g4, which is the value ExecuteVM dispatches on
+* LABEL is a pseudo-instruction marking a position in the code: it is not encoded
+* WORD is a pseudo-instruction for a word of the static data following DATA: only its operand is encoded
+* SITE is a pseudo-instruction marking the profiled site of the instruction following it: it is not encoded
+* Superinstructions replace a sequence of basic instructions (their pattern), taking the operand of its PUSH
+* */
+public enum Opcode {
+	PUSH(SVMParser.PUSH, "push", true),
+	POP(SVMParser.POP, "pop", false),
+	ADD(SVMParser.ADD, "add", false),
+	SUB(SVMParser.SUB, "sub", false),
+	MULT(SVMParser.MULT, "mult", false),
+	DIV(SVMParser.DIV, "div", false),
+	SHIFTLEFT(SVMParser.SHIFTLEFT, "shl", true),
+	STOREW(SVMParser.STOREW, "sw", false),
+	LOADW(SVMParser.LOADW, "lw", false),
+	LOADWA(SVMParser.LOADWA, "lwa", true),
+	LOADWG(SVMParser.LOADWG, "lwg", true),
+	LOADGP(SVMParser.LOADGP, "lgp", false),
+	MOVE(SVMParser.MOVE, "mv", true),
+	BRANCH(SVMParser.BRANCH, "b", true),
+	BRANCHEQ(SVMParser.BRANCHEQ, "beq", true),
+	BRANCHLESSEQ(SVMParser.BRANCHLESSEQ, "bleq", true),
+	BRANCHNOTEQ(SVMParser.BRANCHNOTEQ, "bne", true),
+	BRANCHLESS(SVMParser.BRANCHLESS, "blt", true),
+	BRANCHGREATER(SVMParser.BRANCHGREATER, "bgt", true),
+	BRANCHGREATEREQ(SVMParser.BRANCHGREATEREQ, "bgeq", true),
+	JS(SVMParser.JS, "js", false),
+	JUMP(SVMParser.JUMP, "j", false),
+	CALL(SVMParser.CALL, "call", true),
+	LOADRA(SVMParser.LOADRA, "lra", false),
+	STORERA(SVMParser.STORERA, "sra", false),
+	LOADTM(SVMParser.LOADTM, "ltm", false),
+	STORETM(SVMParser.STORETM, "stm", false),
+	LOADFP(SVMParser.LOADFP, "lfp", false),
+	STOREFP(SVMParser.STOREFP, "sfp", false),
+	COPYFP(SVMParser.COPYFP, "cfp", false),
+	LOADHP(SVMParser.LOADHP, "lhp", false),
+	STOREHP(SVMParser.STOREHP, "shp", false),
+	DATA(SVMParser.DATA, "data", true),
+	MEMOGET(SVMParser.MEMOGET, "mget", true),
+	MEMOPUT(SVMParser.MEMOPUT, "mput", true),
+	PRINT(SVMParser.PRINT, "print", false),
+	HALT(SVMParser.HALT, "halt", false),
+	LOADFW(SVMParser.LOADFW, "lfw", true, LOADFP, PUSH, ADD, LOADW),
+	STOREFW(SVMParser.STOREFW, "sfw", true, LOADFP, PUSH, ADD, STOREW),
+	LOADOW(SVMParser.LOADOW, "low", true, PUSH, ADD, LOADW),
+	DUP(SVMParser.DUP, "dup", false, STORETM, LOADTM, LOADTM),
+	WORD(-1, "word", true),
+	SITE(-1, null, false),
+	LABEL(-1, null, false);
+
+	public final int code;          // value of the opcode in the assembled code
+	public final String mnemonic;   // name of the instruction in the textual assembly
+	public final boolean hasOperand; // whether the opcode is followed by an integer (or label address) operand
+	public final List<Opcode> pattern; // sequence replaced by a superinstruction (empty for the other opcodes)
+
+	Opcode(int code, String mnemonic, boolean hasOperand, Opcode... pattern) {
+		this.code = code;
+		this.mnemonic = mnemonic;
+		this.hasOperand = hasOperand;
+		this.pattern = List.of(pattern);
+	}
+
+	/*
+	 * Number of words of the opcode in the assembled code
+	 * */
+	public int size() {
+		return this == LABEL || this == SITE ? 0 : this == WORD || !hasOperand ? 1 : 2;
+	}
+}
@@ -0,0 +1,97 @@
+package svm;
+
+import java.io.IOException;
+import java.util.*;
+
+/*
+* Profiler Class
+* Counts, while ProfilingVM runs the code, the executions of every instruction, the jumps of every conditional
+* branch and the values loaded by the loads of dispatch pointers, then writes them as a profile of the sites of the
+* code (see Site), one per line:
+* - instructions COUNT: instructions executed
+* - entry LINE NAME COUNT and call LINE NAME COUNT: executions of the site
+* - branch LINE:COLUMN EXECUTIONS ELSE: executions of the conditional branch and how many of them reached the else branch
+* - dispatch LINE NAME CLASS COUNT ...: classes of the objects on which the method was called
+* - sequence MNEMONIC COUNT: executions of the sequences of instructions the superinstruction can replace
+* */
+public class Profiler {
+
+	final long[] executions; // executions of the instruction at each address
+	final long[] taken;      // jumps of the conditional branch at each address
+	private final boolean[] observed; // loads of a dispatch pointer
+	private final Map<Integer, Map<Integer, Long>> values = new HashMap<>(); // values of the observed loads
+
+	private final List<Instruction> code;
+	private final int[] addresses; // address of each instruction
+
+	public Profiler(List<Instruction> code) {
+		this.code = code;
+		addresses = new int[code.size() + 1];
+		for (int i = 0; i < code.size(); i++) addresses[i + 1] = addresses[i] + code.get(i).opcode.size();
+		executions = new long[addresses[code.size()]];
+		taken = new long[executions.length];
+		observed = new boolean[executions.length];
+		for (int i = 0; i < code.size(); i++)
+			if (code.get(i).opcode == Opcode.SITE && code.get(i).site.kind == Site.Kind.DISPATCH) observed[addresses[i]] = true;
+	}
+
+	/*
+	 * Record the value loaded by the LOADW at the given address, if it loads a dispatch pointer
+	 * */
+	void load(int address, int value) {
+		if (observed[address]) values.computeIfAbsent(address, k -> new HashMap<>()).merge(value, 1L, Long::sum);
+	}
+
+	/*
+	 * Write the profile, adding up the counts of the sites with the same key
+	 * */
+	public void write(Appendable out) throws IOException {
+		Map<Integer, String> classes = new HashMap<>(); // dispatch pointers (heap addresses of the dispatch tables)
+		int dataStart = 0; // address of the first word of the static data, copied at the beginning of the heap
+		for (int i = 0; i < code.size(); i++) {
+			Instruction instruction = code.get(i);
+			if (instruction.opcode == Opcode.DATA) dataStart = addresses[i + 1];
+			if (instruction.opcode == Opcode.SITE && instruction.site.kind == Site.Kind.CLASS)
+				classes.put(addresses[i] - dataStart, instruction.site.name);
+		}
+		Map<String, long[]> counts = new LinkedHashMap<>(); // entry, call and branch sites, in order of appearance
+		Map<String, Map<String, Long>> receivers = new LinkedHashMap<>();
+		for (int i = 0; i < code.size(); i++) {
+			Site site = code.get(i).site;
+			if (site == null) continue;
+			int address = addresses[i];
+			switch (site.kind) {
+				case ENTRY, CALL -> counts.computeIfAbsent(site.toString(), k -> new long[1])[0] += executions[address];
+				case BRANCH -> {
+					long[] branch = counts.computeIfAbsent("branch " + site.position(), k -> new long[2]);
+					branch[0] += executions[address];
+					branch[1] += site.name.equals("else") ? taken[address] : executions[address] - taken[address];
+				}
+				case DISPATCH -> {
+					Map<String, Long> histogram = receivers.computeIfAbsent(site.toString(), k -> new LinkedHashMap<>());
+					values.getOrDefault(address, Map.of()).forEach((pointer, count) ->
+							histogram.merge(classes.getOrDefault(pointer, "?"), count, Long::sum));
+				}
+				case CLASS -> {}
+			}
+		}
+		out.append("instructions ").append(Long.toString(Arrays.stream(executions).sum())).append('\n');
+		for (Map.Entry<String, long[]> site : counts.entrySet()) {
+			out.append(site.getKey());
+			for (long count : site.getValue()) out.append(' ').append(Long.toString(count));
+			out.append('\n');
+		}
+		for (Map.Entry<String, Map<String, Long>> site : receivers.entrySet()) {
+			out.append(site.getKey());
+			for (Map.Entry<String, Long> receiver : site.getValue().entrySet())
+				out.append(' ').append(receiver.getKey()).append(' ').append(Long.toString(receiver.getValue()));
+			out.append('\n');
+		}
+		for (Opcode superinstruction : Superinstructions.ALL) {
+			long count = 0;
+			for (int i = 0; i < code.size(); i++)
+				if (Superinstructions.matches(code, i, superinstruction)) count += executions[addresses[i]];
+			out.append("sequence ").append(superinstruction.mnemonic).append(' ').append(Long.toString(count)).append('\n');
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package svm;
+
+/*
+* ProfilingVM Class
+* Runs the code like ExecuteVM, counting for its Profiler the executions of every instruction, the jumps of every
+* conditional branch and the values loaded
+* */
+public class ProfilingVM extends ExecuteVM {
+
+	private final Profiler profiler;
+
+	public ProfilingVM(int[] code, Profiler profiler) {
+		super(code);
+		this.profiler = profiler;
+	}
+
+	@Override
+	void executed(int address) {
+		profiler.executions[address]++;
+	}
+
+	@Override
+	void loaded(int address, int value) {
+		profiler.load(address, value);
+	}
+
+	@Override
+	int taken(int branch, int target) {
+		profiler.taken[branch]++;
+		return target;
+	}
+}
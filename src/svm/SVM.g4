@@ -33,8 +33,17 @@ instruction :
 	  | SUB		    {code[i++] = SUB;}
 	  | MULT	    {code[i++] = MULT;}
 	  | DIV		    {code[i++] = DIV;}
+	  | SHIFTLEFT n=INTEGER {code[i++] = SHIFTLEFT;
+	                         code[i++] = Integer.parseInt($n.text);}
 	  | STOREW	  {code[i++] = STOREW;} //
 	  | LOADW           {code[i++] = LOADW;} //
+	  | LOADWA n=INTEGER {code[i++] = LOADWA;
+	                      code[i++] = Integer.parseInt($n.text);}
+	  | LOADWG n=INTEGER {code[i++] = LOADWG;
+	                      code[i++] = Integer.parseInt($n.text);}
+	  | LOADGP          {code[i++] = LOADGP;}
+	  | MOVE n=INTEGER  {code[i++] = MOVE;
+	                     code[i++] = Integer.parseInt($n.text);}
 	  | l=LABEL COL     {labelDef.put($l.text,i);}
 	  | BRANCH l=LABEL  {code[i++] = BRANCH;
                        labelRef.put(i++,$l.text);}
@@ -42,7 +51,18 @@ instruction :
                         labelRef.put(i++,$l.text);}
 	  | BRANCHLESSEQ l=LABEL {code[i++] = BRANCHLESSEQ;
                           labelRef.put(i++,$l.text);}
+	  | BRANCHNOTEQ l=LABEL {code[i++] = BRANCHNOTEQ;
+                         labelRef.put(i++,$l.text);}
+	  | BRANCHLESS l=LABEL {code[i++] = BRANCHLESS;
+                        labelRef.put(i++,$l.text);}
+	  | BRANCHGREATER l=LABEL {code[i++] = BRANCHGREATER;
+                           labelRef.put(i++,$l.text);}
+	  | BRANCHGREATEREQ l=LABEL {code[i++] = BRANCHGREATEREQ;
+                             labelRef.put(i++,$l.text);}
 	  | JS              {code[i++] = JS;}		     //
+	  | JUMP            {code[i++] = JUMP;}
+	  | CALL l=LABEL    {code[i++] = CALL;
+                       labelRef.put(i++,$l.text);}
 	  | LOADRA          {code[i++] = LOADRA;}    //
 	  | STORERA         {code[i++] = STORERA;}   //
 	  | LOADTM          {code[i++] = LOADTM;}   
@@ -52,6 +72,21 @@ instruction :
 	  | COPYFP          {code[i++] = COPYFP;}   //
 	  | LOADHP          {code[i++] = LOADHP;}   //
 	  | STOREHP         {code[i++] = STOREHP;}   //
+	  | DATA n=INTEGER  {code[i++] = DATA;
+	                     code[i++] = Integer.parseInt($n.text);}
+	  | WORD n=INTEGER  {code[i++] = Integer.parseInt($n.text);}
+	  | WORD l=LABEL    {labelRef.put(i++,$l.text);}
+	  | MEMOGET n=INTEGER {code[i++] = MEMOGET;
+	                       code[i++] = Integer.parseInt($n.text);}
+	  | MEMOPUT l=LABEL {code[i++] = MEMOPUT;
+	                     labelRef.put(i++,$l.text);}
+	  | LOADFW n=INTEGER {code[i++] = LOADFW;
+	                      code[i++] = Integer.parseInt($n.text);}
+	  | STOREFW n=INTEGER {code[i++] = STOREFW;
+	                       code[i++] = Integer.parseInt($n.text);}
+	  | LOADOW n=INTEGER {code[i++] = LOADOW;
+	                      code[i++] = Integer.parseInt($n.text);}
+	  | DUP             {code[i++] = DUP;}
 	  | PRINT           {code[i++] = PRINT;}
 	  | HALT            {code[i++] = HALT;}
 	  ;
@@ -66,12 +101,23 @@ ADD	 : 'add' ;
 SUB	 : 'sub' ;	
 MULT	 : 'mult' ;  	
 DIV	 : 'div' ;	
+SHIFTLEFT : 'shl' ;	
 STOREW	 : 'sw' ; 	
 LOADW	 : 'lw' ;	
+LOADWA	 : 'lwa' ;	
+LOADWG	 : 'lwg' ;
+LOADGP	 : 'lgp' ;	
+MOVE	 : 'mv' ;	
 BRANCH	 : 'b' ;	
 BRANCHEQ : 'beq' ;	
 BRANCHLESSEQ:'bleq' ;	
+BRANCHNOTEQ : 'bne' ;	
+BRANCHLESS : 'blt' ;	
+BRANCHGREATER : 'bgt' ;	
+BRANCHGREATEREQ : 'bgeq' ;	
 JS	 : 'js' ;	
+JUMP	 : 'j' ;	
+CALL	 : 'call' ;	
 LOADRA	 : 'lra' ;	
 STORERA  : 'sra' ;	 
 LOADTM	 : 'ltm' ;	
@@ -81,6 +127,14 @@ STOREFP	 : 'sfp' ;
 COPYFP   : 'cfp' ;      
 LOADHP	 : 'lhp' ;	
 STOREHP	 : 'shp' ;	
+DATA	 : 'data' ;
+WORD	 : 'word' ;
+MEMOGET	 : 'mget' ;
+MEMOPUT	 : 'mput' ;
+LOADFW	 : 'lfw' ;
+STOREFW	 : 'sfw' ;
+LOADOW	 : 'low' ;
+DUP	 : 'dup' ;
 PRINT	 : 'print' ;	
 HALT	 : 'halt' ;	
  
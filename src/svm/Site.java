@@ -0,0 +1,50 @@
+package svm;
+
+/*
+* Site Class
+* A point of the program whose executions are profiled, identified by its source line and a name, so that the
+* profile can be applied to a different compilation of the same source; a BRANCH site is identified by its column too,
+* since several if-then-else can be on the same line
+* It marks the instruction following it in the code (or the dispatch table following it in the static data):
+* - ENTRY: the first instruction of the function (or method) name
+* - CALL: the instruction calling the function (or method) name
+* - BRANCH: the conditional branch of an if-then-else, jumping to the branch name ("then" or "else")
+* - DISPATCH: the load of the dispatch pointer of the object on which the method name is called
+* - CLASS: the dispatch table of the class name
+* Sites with the same line, kind and name share their counts
+* */
+public class Site {
+
+	public enum Kind { ENTRY, CALL, BRANCH, DISPATCH, CLASS }
+
+	public final Kind kind;
+	public final int line;
+	public final int column; // -1 for the sites identified by their line
+	public final String name;
+
+	public Site(Kind kind, int line, String name) {
+		this(kind, line, -1, name);
+	}
+
+	public Site(Kind kind, int line, int column, String name) {
+		this.kind = kind;
+		this.line = line;
+		this.column = column;
+		this.name = name;
+	}
+
+	/*
+	 * Position of the site in the source: its line, followed by its column if it has one
+	 * */
+	public String position() {
+		return column < 0 ? Integer.toString(line) : line + ":" + column;
+	}
+
+	/*
+	 * Key of the site in the profile
+	 * */
+	@Override
+	public String toString() {
+		return kind.name().toLowerCase() + " " + position() + " " + name;
+	}
+}
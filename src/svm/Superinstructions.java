@@ -0,0 +1,68 @@
+package svm;
+
+import java.util.*;
+
+/*
+* Superinstructions Class
+* Finds in the code the sequences of basic instructions a superinstruction can replace, and replaces them
+* A sequence matches the pattern of a superinstruction when its opcodes are the ones of the pattern, with no label
+* or site between them (nothing can jump into the middle of a superinstruction), and its PUSH, if any, has an
+* integer operand, which becomes the operand of the superinstruction
+* */
+public class Superinstructions {
+
+	public static final List<Opcode> ALL = Arrays.stream(Opcode.values()).filter(opcode -> !opcode.pattern.isEmpty()).toList();
+
+	private Superinstructions() {}
+
+	/*
+	 * Whether the instructions starting at the given position match the pattern of the superinstruction
+	 * */
+	static boolean matches(List<Instruction> code, int position, Opcode superinstruction) {
+		List<Opcode> pattern = superinstruction.pattern;
+		if (position + pattern.size() > code.size()) return false;
+		for (int i = 0; i < pattern.size(); i++) {
+			Instruction instruction = code.get(position + i);
+			if (instruction.opcode != pattern.get(i)) return false;
+			if (instruction.opcode == Opcode.PUSH && instruction.label != null) return false;
+		}
+		return true;
+	}
+
+	/*
+	 * The superinstruction, among the given ones, matching the instructions starting at the given position, the
+	 * one replacing the longest sequence first (null if none matches)
+	 * */
+	static Opcode match(List<Instruction> code, int position, Collection<Opcode> superinstructions) {
+		Opcode best = null;
+		for (Opcode superinstruction : superinstructions)
+			if (matches(code, position, superinstruction)
+					&& (best == null || superinstruction.pattern.size() > best.pattern.size())) best = superinstruction;
+		return best;
+	}
+
+	/*
+	 * Replace the sequences matching the given superinstructions, from the beginning of the code
+	 * */
+	public static List<Instruction> fuse(List<Instruction> code, Collection<Opcode> superinstructions) {
+		List<Instruction> fused = new ArrayList<>();
+		int i = 0;
+		while (i < code.size()) {
+			Opcode superinstruction = match(code, i, superinstructions);
+			if (superinstruction == null) {
+				fused.add(code.get(i++));
+				continue;
+			}
+			if (!superinstruction.hasOperand) {
+				fused.add(new Instruction(superinstruction));
+			} else {
+				int operand = 0;
+				for (int j = 0; j < superinstruction.pattern.size(); j++)
+					if (code.get(i + j).opcode == Opcode.PUSH) operand = code.get(i + j).value;
+				fused.add(new Instruction(superinstruction, operand));
+			}
+			i += superinstruction.pattern.size();
+		}
+		return fused;
+	}
+}